@@ -50,6 +50,10 @@ CREATE TABLE "user"
     image      TEXT,
     wallet     INTEGER NOT NULL DEFAULT 20,
     elo        INTEGER NOT NULL DEFAULT 100,
+    -- counters kept by finalizing a user_battle, can be rebuilt from user_battle
+    wins       INTEGER NOT NULL DEFAULT 0,
+    losses     INTEGER NOT NULL DEFAULT 0,
+    ties       INTEGER NOT NULL DEFAULT 0,
     PRIMARY KEY (pk_user_id),
     UNIQUE (username)
 );
@@ -69,9 +73,14 @@ CREATE TABLE "package"
     pk_package_id SERIAL,
     name          TEXT,
     price         SMALLINT NOT NULL DEFAULT 5,
+    -- buyer, NULL while for sale; no cascade, the cards of a sold package may belong to other users by now
+    fk_pk_user_id INTEGER REFERENCES "user" (pk_user_id),
     PRIMARY KEY (pk_package_id)
 );
 
+-- the packages still for sale, in the order they are sold
+CREATE INDEX package_free_idx ON "package" (pk_package_id) WHERE fk_pk_user_id IS NULL;
+
 CREATE TABLE "card"
 (
     pk_card_id       TEXT,
@@ -85,6 +94,8 @@ CREATE TABLE "card"
     PRIMARY KEY (pk_card_id)
 );
 
+CREATE INDEX card_package_idx ON "card" (fk_pk_package_id);
+
 CREATE TABLE "battlelog"
 (
     pk_battlelog_id SERIAL,
@@ -100,6 +111,7 @@ CREATE TABLE "battle"
     time_end           TIMESTAMPTZ,
     rounds_nr          INTEGER,
     fk_pk_battlelog_id INTEGER,
+    replay             BYTEA,
     PRIMARY KEY (pk_battle_id)
 );
 
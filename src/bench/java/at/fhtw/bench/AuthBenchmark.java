@@ -0,0 +1,50 @@
+package at.fhtw.bench;
+
+import at.fhtw.mctg.utils.JWTGenerator;
+import at.fhtw.mctg.utils.PasswordHash;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token validation, done on every authenticated request, and password verification, done on every login.
+ * The token benchmarks report validations per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthBenchmark {
+    private String token;
+    private String signedToken;
+    private String storedPassword;
+
+    @Setup
+    public void setUp() throws Exception {
+        token = JWTGenerator.createJWT("{\"alg\":\"HS256\",\"typ\":\"JWT\"}", "{\"user\":kienboec,\"role\":1}");
+        signedToken = JWTGenerator.createToken(1, "kienboec", "USER", System.currentTimeMillis() / 1000 + 3600);
+        storedPassword = PasswordHash.generateHashedPassword("daniel");
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public boolean validateJWT() {
+        return JWTGenerator.validateJWT(token);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public Map<String, Object> verifyJWT() {
+        return JWTGenerator.verify(signedToken);
+    }
+
+    @Benchmark
+    public boolean verifyPassword() throws Exception {
+        return PasswordHash.verifyPassword("daniel", storedPassword);
+    }
+}
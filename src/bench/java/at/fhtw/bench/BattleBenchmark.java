@@ -0,0 +1,106 @@
+package at.fhtw.bench;
+
+import at.fhtw.mctg.battle.BattleEngine;
+import at.fhtw.mctg.battle.BattleReplay;
+import at.fhtw.mctg.battle.BattleResult;
+import at.fhtw.mctg.model.Card;
+import at.fhtw.mctg.model.CardType;
+import at.fhtw.mctg.model.Elements;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The battle as run by {@code BattleRunner}: the {@link BattleEngine}, encoding the replay and rendering the log.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BattleBenchmark {
+    private final BattleEngine engine = new BattleEngine();
+
+    // one card each, A wins in the first round
+    private List<Card> oneRoundA;
+    private List<Card> oneRoundB;
+
+    // equally strong cards, every round is a tie
+    private List<Card> fullA;
+    private List<Card> fullB;
+
+    // a mix of species, elements and types
+    private List<Card> mixedA;
+    private List<Card> mixedB;
+
+    private long seed;
+
+    private static Card card(String name, int damage, CardType type, Elements element) {
+        return new Card(name, name, damage, type, element, true, 0, 0);
+    }
+
+    @Setup
+    public void setUp() {
+        oneRoundA = List.of(card("Dragon", 50, CardType.MONSTER, Elements.FIRE));
+        oneRoundB = List.of(card("Goblin", 10, CardType.MONSTER, Elements.NORMAL));
+
+        fullA = List.of(
+                card("Knight", 30, CardType.MONSTER, Elements.NORMAL),
+                card("RegularSpell", 30, CardType.SPELL, Elements.NORMAL),
+                card("Ork", 30, CardType.MONSTER, Elements.NORMAL),
+                card("Troll", 30, CardType.MONSTER, Elements.NORMAL));
+        fullB = List.of(
+                card("Knight", 30, CardType.MONSTER, Elements.NORMAL),
+                card("RegularSpell", 30, CardType.SPELL, Elements.NORMAL),
+                card("Goblin", 30, CardType.MONSTER, Elements.NORMAL),
+                card("Troll", 30, CardType.MONSTER, Elements.NORMAL));
+
+        mixedA = List.of(
+                card("Goblin", 10, CardType.MONSTER, Elements.WATER),
+                card("Dragon", 50, CardType.MONSTER, Elements.FIRE),
+                card("WaterSpell", 20, CardType.SPELL, Elements.WATER),
+                card("Ork", 45, CardType.MONSTER, Elements.NORMAL));
+        mixedB = List.of(
+                card("Knight", 25, CardType.MONSTER, Elements.NORMAL),
+                card("FireSpell", 30, CardType.SPELL, Elements.FIRE),
+                card("Kraken", 35, CardType.MONSTER, Elements.WATER),
+                card("Wizard", 40, CardType.MONSTER, Elements.NORMAL));
+
+        if (engine.fight(oneRoundA, oneRoundB, 100, 100, 0).getRounds() != 1
+                || engine.fight(fullA, fullB, 100, 100, 0).getRounds() != BattleEngine.MAX_ROUNDS) {
+            throw new IllegalStateException("benchmark decks do not produce the expected number of rounds");
+        }
+    }
+
+    @Benchmark
+    public BattleResult singleRound() {
+        return engine.fight(oneRoundA, oneRoundB, 100, 100, seed++);
+    }
+
+    @Benchmark
+    public BattleResult fullBattle() {
+        return engine.fight(fullA, fullB, 100, 100, seed++);
+    }
+
+    @Benchmark
+    public BattleResult mixedBattle() {
+        return engine.fight(mixedA, mixedB, 100, 90, seed++);
+    }
+
+    @Benchmark
+    public void fullBattleWithLog(Blackhole blackhole) {
+        BattleResult result = engine.fight(fullA, fullB, 100, 100, seed++);
+        for (int round = 1; round <= result.getRounds(); round++) {
+            result.forEachLogLine(round, blackhole::consume);
+        }
+    }
+
+    @Benchmark
+    public byte[] fullBattleWithReplay() {
+        BattleResult result = engine.fight(fullA, fullB, 100, 100, seed++);
+        return BattleReplay.encode("kienboec", "altenhof", 100, 100, seed, result);
+    }
+}
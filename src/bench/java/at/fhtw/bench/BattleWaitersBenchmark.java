@@ -0,0 +1,134 @@
+package at.fhtw.bench;
+
+import at.fhtw.httpserver.http.ContentType;
+import at.fhtw.httpserver.http.HttpStatus;
+import at.fhtw.httpserver.server.Response;
+import at.fhtw.httpserver.server.Server;
+import at.fhtw.httpserver.utils.Router;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures how many clients can wait on {@code /battles} at the same time
+ * with platform worker threads and with virtual threads.
+ * <p>
+ * The stub service blocks like {@code BattleController.waitForBattle}, polling every
+ * {@value #POLL_MILLIS} ms until the battle is done, so a waiter occupies its worker thread
+ * for the whole battle. No database is needed.
+ * <p>
+ * Run with
+ * {@code mvn -Pbench test-compile exec:java}
+ * and optionally {@code -Dbench.clients=100,1000,2000 -Dbench.battleMillis=2000}.
+ */
+public class BattleWaitersBenchmark {
+    private static final int PORT = 10099;
+    private static final int PLATFORM_WORKERS = 32;
+    private static final long POLL_MILLIS = 100;
+
+    public static void main(String[] args) throws Exception {
+        long battleMillis = Long.getLong("bench.battleMillis", 2000);
+        String[] clientCounts = System.getProperty("bench.clients", "100,1000,2000").split(",");
+
+        System.out.printf("battle duration %d ms, platform pool %d threads%n", battleMillis, PLATFORM_WORKERS);
+        System.out.printf("%-9s %8s %12s %12s %8s%n", "mode", "clients", "elapsed ms", "peak waiters", "errors");
+
+        for (String clientCount : clientCounts) {
+            int clients = Integer.parseInt(clientCount.trim());
+            run("platform", Executors.newFixedThreadPool(PLATFORM_WORKERS), clients, battleMillis);
+            run("virtual", Executors.newVirtualThreadPerTaskExecutor(), clients, battleMillis);
+        }
+        System.exit(0);
+    }
+
+    private static void run(String mode, ExecutorService workers, int clients, long battleMillis) throws Exception {
+        AtomicInteger waiting = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+
+        Router router = new Router();
+        router.addService("/battles", request -> {
+            int now = waiting.incrementAndGet();
+            peak.accumulateAndGet(now, Math::max);
+            try {
+                long done = System.currentTimeMillis() + battleMillis;
+                while (System.currentTimeMillis() < done) {
+                    Thread.sleep(POLL_MILLIS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                waiting.decrementAndGet();
+            }
+            return new Response(HttpStatus.OK, ContentType.JSON, "{ \"message\" : \"Battle finished\" }");
+        });
+
+        Server server = new Server(PORT, router, Runtime.getRuntime().availableProcessors(), workers);
+        Thread serverThread = new Thread(() -> {
+            try {
+                server.start();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }, "bench-server");
+        serverThread.start();
+        awaitServer();
+
+        AtomicInteger errors = new AtomicInteger();
+        CountDownLatch finished = new CountDownLatch(clients);
+        long start = System.nanoTime();
+        try (ExecutorService clientThreads = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                clientThreads.execute(() -> {
+                    try {
+                        if (!post()) {
+                            errors.incrementAndGet();
+                        }
+                    } catch (IOException e) {
+                        errors.incrementAndGet();
+                    } finally {
+                        finished.countDown();
+                    }
+                });
+            }
+            finished.await(10, TimeUnit.MINUTES);
+        }
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        System.out.printf("%-9s %8d %12d %12d %8d%n", mode, clients, elapsed, peak.get(), errors.get());
+
+        server.stop();
+        serverThread.join();
+    }
+
+    private static boolean post() throws IOException {
+        try (Socket socket = new Socket("localhost", PORT)) {
+            OutputStream out = socket.getOutputStream();
+            out.write(("POST /battles HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\nContent-Length: 0\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+
+            InputStream in = socket.getInputStream();
+            String response = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            return response.startsWith("HTTP/1.1 200");
+        }
+    }
+
+    private static void awaitServer() throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            try (Socket ignored = new Socket("localhost", PORT)) {
+                return;
+            } catch (IOException e) {
+                Thread.sleep(50);
+            }
+        }
+        throw new IllegalStateException("server did not start");
+    }
+}
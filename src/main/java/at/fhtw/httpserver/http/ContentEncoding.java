@@ -0,0 +1,138 @@
+package at.fhtw.httpserver.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compression applied to response bodies, chosen from the client's {@code Accept-Encoding} header.
+ */
+public enum ContentEncoding {
+    GZIP("gzip"),
+    DEFLATE("deflate");
+
+    private static final int CACHE_SIZE = Integer.getInteger("mctg.http.compressionCacheSize", 32);
+
+    public final String token;
+
+    // compressed bodies of responses marked as cacheable by their content, least recently used first
+    private final Map<String, byte[]> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    ContentEncoding(String token) {
+        this.token = token;
+    }
+
+    /**
+     * Picks the encoding the client prefers, gzip on a tie
+     *
+     * @param acceptEncoding the {@code Accept-Encoding} header, may be null
+     * @return the encoding, null if the client accepts none of them
+     */
+    public static ContentEncoding negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isEmpty()) {
+            return null;
+        }
+
+        ContentEncoding best = null;
+        double bestQuality = 0;
+        double wildcardQuality = -1;
+        double[] qualities = {-1, -1};
+
+        for (String entry : acceptEncoding.split(",")) {
+            int parameters = entry.indexOf(';');
+            String coding = (parameters >= 0 ? entry.substring(0, parameters) : entry).trim().toLowerCase(Locale.ROOT);
+            double quality = parameters >= 0 ? quality(entry.substring(parameters + 1)) : 1;
+
+            if (coding.equals("*")) {
+                wildcardQuality = quality;
+            }
+            for (ContentEncoding encoding : values()) {
+                if (coding.equals(encoding.token)) {
+                    qualities[encoding.ordinal()] = quality;
+                }
+            }
+        }
+
+        for (ContentEncoding encoding : values()) {
+            // codings not listed get the quality of *
+            double quality = qualities[encoding.ordinal()] >= 0 ? qualities[encoding.ordinal()] : wildcardQuality;
+            if (quality > bestQuality) {
+                best = encoding;
+                bestQuality = quality;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @param data the body
+     * @return the compressed body
+     */
+    public byte[] compress(byte[] data) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+        try (OutputStream out = wrap(compressed)) {
+            out.write(data);
+        } catch (IOException e) {
+            // cannot happen with a byte array
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+
+    /**
+     * @param out receives the compressed body
+     * @return a stream compressing what is written to it; flushing it flushes everything written so far
+     */
+    public OutputStream wrap(OutputStream out) throws IOException {
+        return this == GZIP ? new GZIPOutputStream(out, true) : new DeflaterOutputStream(out, true);
+    }
+
+    /**
+     * Compresses a body that is likely to be sent again unchanged, such as the scoreboard,
+     * reusing the result of an earlier call for the same content
+     *
+     * @param content the body as text, used to recognise it
+     * @param data    the body
+     * @return the compressed body
+     */
+    public byte[] compressCached(String content, byte[] data) {
+        synchronized (this.cache) {
+            byte[] compressed = this.cache.get(content);
+            if (compressed != null) {
+                return compressed;
+            }
+        }
+
+        // compressed outside the lock; a concurrent miss for the same content only costs a second compression
+        byte[] compressed = compress(data);
+        synchronized (this.cache) {
+            this.cache.put(content, compressed);
+        }
+        return compressed;
+    }
+
+    private static double quality(String parameters) {
+        for (String parameter : parameters.split(";")) {
+            String trimmed = parameter.trim();
+            if (trimmed.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(trimmed.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
@@ -1,13 +1,20 @@
 package at.fhtw.httpserver.http;
 
 public enum   ContentType {
-    PLAIN_TEXT("text/plain"),
+    PLAIN_TEXT("text/plain", true), // battle logs
     HTML("text/html"),
-    JSON("application/json");
+    JSON("application/json", true);
 
     public final String type;
+    // whether large bodies of this type are compressed when the client accepts it, off unless a type opts in
+    public final boolean compressible;
 
     ContentType(String type) {
+        this(type, false);
+    }
+
+    ContentType(String type, boolean compressible) {
         this.type = type;
+        this.compressible = compressible;
     }
 }
@@ -11,7 +11,8 @@ public enum  HttpStatus {
     NOT_FOUND(404, "Not Found"),
     CONFLICT(409, "Conflict"),
     INTERNAL_SERVER_ERROR(500, "Internal Server Error"),
-    NOT_IMPLEMENTED(501, "Not Implemented");
+    NOT_IMPLEMENTED(501, "Not Implemented"),
+    SERVICE_UNAVAILABLE(503, "Service Unavailable");
 
     public final int code;
     public final String message;
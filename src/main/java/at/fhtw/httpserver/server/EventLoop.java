@@ -0,0 +1,166 @@
+package at.fhtw.httpserver.server;
+
+import at.fhtw.httpserver.utils.Router;
+
+import java.io.IOException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * A single selector thread that reads, parses and writes for all connections registered with it.
+ * Blocking work (the services) is handed to the worker executor; results come back as tasks
+ * queued with {@link #execute(Runnable)}.
+ */
+public class EventLoop implements Runnable {
+    private static final long SELECT_TIMEOUT_MILLIS = 1000;
+
+    private final Selector selector;
+    private final Router router;
+    private final ExecutorService workers;
+    private final long idleTimeoutMillis;
+    private final int maxRequestsPerConnection;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private volatile boolean running = true;
+
+    /**
+     * @param router                   the router resolving the services
+     * @param workers                  executor running the services
+     * @param idleTimeoutMillis        connections without a request for this long are closed
+     * @param maxRequestsPerConnection connections are closed after this many requests
+     */
+    public EventLoop(Router router, ExecutorService workers, long idleTimeoutMillis, int maxRequestsPerConnection) throws IOException {
+        this.selector = Selector.open();
+        this.router = router;
+        this.workers = workers;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.maxRequestsPerConnection = maxRequestsPerConnection;
+    }
+
+    /**
+     * Hands an accepted channel over to this loop
+     *
+     * @param channel the accepted client channel
+     */
+    public void register(SocketChannel channel) {
+        execute(() -> {
+            try {
+                channel.configureBlocking(false);
+                SelectionKey key = channel.register(this.selector, SelectionKey.OP_READ);
+                key.attach(new HttpConnection(this, channel, key));
+            } catch (IOException e) {
+                System.err.println(Thread.currentThread().getName() + " Error: " + e.getMessage());
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                }
+            }
+        });
+    }
+
+    /**
+     * Runs a task on the loop thread
+     *
+     * @param task the task to run
+     */
+    public void execute(Runnable task) {
+        this.tasks.add(task);
+        this.selector.wakeup();
+    }
+
+    public Router getRouter() {
+        return this.router;
+    }
+
+    public ExecutorService getWorkers() {
+        return this.workers;
+    }
+
+    public long getIdleTimeoutMillis() {
+        return this.idleTimeoutMillis;
+    }
+
+    public int getMaxRequestsPerConnection() {
+        return this.maxRequestsPerConnection;
+    }
+
+    public void stop() {
+        this.running = false;
+        this.selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        long lastIdleCheck = System.currentTimeMillis();
+        try {
+            while (this.running) {
+                this.selector.select(SELECT_TIMEOUT_MILLIS);
+                runTasks();
+
+                long now = System.currentTimeMillis();
+                if (now - lastIdleCheck >= SELECT_TIMEOUT_MILLIS) {
+                    closeIdleConnections(now);
+                    lastIdleCheck = now;
+                }
+
+                Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+
+                    HttpConnection connection = (HttpConnection) key.attachment();
+                    if (connection == null || !key.isValid()) {
+                        continue;
+                    }
+                    if (key.isReadable()) {
+                        connection.onReadable();
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        connection.onWritable();
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            System.err.println(Thread.currentThread().getName() + " Error: " + e.getMessage());
+        } finally {
+            closeAll();
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = this.tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void closeIdleConnections(long now) {
+        for (SelectionKey key : this.selector.keys()) {
+            if (key.isValid() && key.attachment() instanceof HttpConnection connection) {
+                connection.closeIfIdle(now);
+            }
+        }
+    }
+
+    private void closeAll() {
+        for (SelectionKey key : this.selector.keys()) {
+            if (key.attachment() instanceof HttpConnection connection) {
+                connection.close();
+            }
+        }
+        try {
+            this.selector.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -1,18 +1,27 @@
 package at.fhtw.httpserver.server;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.TreeMap;
 
 public class HeaderMap {
     public static final String CONTENT_LENGTH_HEADER = "Content-Length";
     public static final String HEADER_NAME_VALUE_SEPARATOR = ":";
-    private final Map<String, String> headers = new HashMap<>();
+    // header names are case-insensitive
+    private final Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
 
     public void ingest(String headerLine) {
         final String[] split = headerLine.split(HEADER_NAME_VALUE_SEPARATOR, 2);
         headers.put(split[0], split[1].trim());
     }
 
+    /**
+     * @param name  header name
+     * @param value header value, already trimmed
+     */
+    public void put(String name, String value) {
+        headers.put(name, value);
+    }
+
     public String getHeader(String headerName) {
         return headers.get(headerName);
     }
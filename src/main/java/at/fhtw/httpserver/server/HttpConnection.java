@@ -0,0 +1,462 @@
+package at.fhtw.httpserver.server;
+
+import at.fhtw.httpserver.http.ContentEncoding;
+import at.fhtw.httpserver.http.ContentType;
+import at.fhtw.httpserver.http.HttpStatus;
+import at.fhtw.httpserver.utils.RequestParser;
+import at.fhtw.httpserver.utils.RequestHandler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * State of one persistent client connection on an {@link EventLoop}.
+ * <p>
+ * Pipelined requests are parsed as they arrive and handed to the workers one at a time,
+ * so responses are written in the order the requests were received.
+ * All methods except {@link #respond(Response)} and {@link #stream(StreamingResponse)} must be called on the loop thread.
+ */
+public class HttpConnection {
+    private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+    private static final int MAX_REQUEST_SIZE = 1024 * 1024;
+    private static final int MAX_PIPELINED_REQUESTS = 16;
+    private static final int STREAM_CHUNK_SIZE = 8 * 1024;
+    // a streaming worker waits while more than this is queued for the socket
+    private static final long MAX_QUEUED_BYTES = 64 * 1024;
+    private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+
+    private final EventLoop eventLoop;
+    private final SocketChannel channel;
+    private final SelectionKey key;
+
+    private ByteBuffer readBuffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private final RequestParser requestParser = new RequestParser(MAX_REQUEST_SIZE);
+    private final Deque<ByteBuffer> writeQueue = new ArrayDeque<>();
+    // bytes in the write queue, guarded by writeQueueLock so streaming workers can wait on it
+    private final Object writeQueueLock = new Object();
+    private long queuedBytes = 0;
+
+    // parsed requests waiting for their turn
+    private final Deque<Request> pendingRequests = new ArrayDeque<>();
+    private Request currentRequest;
+    private int requestCount = 0;
+
+    // no more requests are read once the last one has been parsed
+    private boolean lastRequestParsed = false;
+    private boolean invalidRequestPending = false;
+    private boolean inputClosed = false;
+    private boolean closeAfterWrite = false;
+    // a streaming response is still being produced, the write queue running empty does not end it
+    private boolean streaming = false;
+    private boolean streamChunked = false;
+    private volatile boolean closed = false;
+    private long lastActivity = System.currentTimeMillis();
+
+    public HttpConnection(EventLoop eventLoop, SocketChannel channel, SelectionKey key) {
+        this.eventLoop = eventLoop;
+        this.channel = channel;
+        this.key = key;
+    }
+
+    /**
+     * Reads what is available and queues every complete request
+     */
+    void onReadable() {
+        try {
+            int read = this.channel.read(this.readBuffer);
+            if (read < 0) {
+                // the client is done sending, answer what has been received
+                this.inputClosed = true;
+                this.lastRequestParsed = true;
+                this.key.interestOps(this.key.interestOps() & ~SelectionKey.OP_READ);
+                if (this.currentRequest == null && this.pendingRequests.isEmpty() && !this.invalidRequestPending) {
+                    close();
+                }
+                return;
+            }
+            this.lastActivity = System.currentTimeMillis();
+
+            parseRequests();
+            dispatchNext();
+        } catch (IOException e) {
+            System.err.println(Thread.currentThread().getName() + " Error: " + e.getMessage());
+            close();
+        }
+    }
+
+    /**
+     * Writes as much of the queued responses as the socket accepts
+     */
+    void onWritable() {
+        if (this.closed) {
+            return;
+        }
+        try {
+            if (!this.writeQueue.isEmpty()) {
+                // heads and bodies of all queued responses in one gathering write
+                this.channel.write(this.writeQueue.toArray(new ByteBuffer[0]));
+                while (!this.writeQueue.isEmpty() && !this.writeQueue.peekFirst().hasRemaining()) {
+                    released(this.writeQueue.pollFirst().limit());
+                }
+                if (!this.writeQueue.isEmpty()) {
+                    this.key.interestOps(this.key.interestOps() | SelectionKey.OP_WRITE);
+                    return;
+                }
+            }
+            this.lastActivity = System.currentTimeMillis();
+
+            this.key.interestOps(this.key.interestOps() & ~SelectionKey.OP_WRITE);
+            if (this.closeAfterWrite && !this.streaming) {
+                close();
+            }
+        } catch (IOException e) {
+            System.err.println(Thread.currentThread().getName() + " Error: " + e.getMessage());
+            close();
+        }
+    }
+
+    /**
+     * Hands the response for the current request back to the loop; may be called from any thread
+     *
+     * @param response the response to send
+     */
+    public void respond(Response response) {
+        this.eventLoop.execute(() -> {
+            if (this.closed) {
+                return;
+            }
+
+            boolean keepAlive = decideKeepAlive();
+            String acceptEncoding = this.currentRequest.getHeaderMap().getHeader("Accept-Encoding");
+            for (ByteBuffer buffer : response.encode(keepAlive, acceptEncoding)) {
+                queueWrite(buffer);
+            }
+            finishRequest();
+        });
+    }
+
+    /**
+     * Sends a response while its body is being produced; must be called on a worker thread.
+     * The body goes out chunked to HTTP/1.1 clients, older clients get it until the connection closes;
+     * it is compressed if the client accepts it.
+     * Writing blocks while the client is not keeping up.
+     *
+     * @param response the response to send
+     */
+    public void stream(StreamingResponse response) {
+        // the current request does not change until this response is finished
+        ContentEncoding encoding = response.negotiateEncoding(this.currentRequest.getHeaderMap().getHeader("Accept-Encoding"));
+
+        this.eventLoop.execute(() -> {
+            if (this.closed) {
+                return;
+            }
+
+            this.streaming = true;
+            this.streamChunked = "HTTP/1.1".equals(this.currentRequest.getVersion());
+            boolean keepAlive = this.streamChunked && decideKeepAlive();
+            if (!keepAlive) {
+                decideClose();
+            }
+            queueWrite(response.getHead(keepAlive, this.streamChunked, encoding).getBytes(StandardCharsets.UTF_8));
+            onWritable();
+        });
+
+        try (OutputStream out = encoding != null ? encoding.wrap(new ChunkOutputStream()) : new ChunkOutputStream()) {
+            response.getBody().writeTo(out);
+        } catch (IOException e) {
+            // the client went away
+            System.err.println(Thread.currentThread().getName() + " Error: " + e.getMessage());
+            this.eventLoop.execute(this::close);
+            return;
+        } catch (Exception e) {
+            // the head is already out, the client only learns about the failure from the cut connection
+            e.printStackTrace();
+            this.eventLoop.execute(this::close);
+            return;
+        }
+
+        this.eventLoop.execute(() -> {
+            if (this.closed) {
+                return;
+            }
+            if (this.streamChunked) {
+                queueWrite(LAST_CHUNK);
+            }
+            this.streaming = false;
+            finishRequest();
+        });
+    }
+
+    /**
+     * Decides whether the connection stays open after the current request
+     *
+     * @return true if the connection is kept alive
+     */
+    private boolean decideKeepAlive() {
+        boolean keepAlive = isKeepAlive(this.currentRequest)
+                && this.requestCount < this.eventLoop.getMaxRequestsPerConnection()
+                && !(this.inputClosed && this.pendingRequests.isEmpty() && !this.invalidRequestPending);
+        if (!keepAlive) {
+            decideClose();
+        }
+        return keepAlive;
+    }
+
+    private void decideClose() {
+        // requests pipelined after this one are dropped
+        this.pendingRequests.clear();
+        this.invalidRequestPending = false;
+        this.lastRequestParsed = true;
+        this.closeAfterWrite = true;
+    }
+
+    /**
+     * Moves on to the next request once the current response is completely queued
+     */
+    private void finishRequest() {
+        this.currentRequest = null;
+
+        parseRequests();
+        dispatchNext();
+        onWritable();
+    }
+
+    private void queueWrite(byte[] data) {
+        queueWrite(ByteBuffer.wrap(data));
+    }
+
+    private void queueWrite(ByteBuffer buffer) {
+        synchronized (this.writeQueueLock) {
+            this.queuedBytes += buffer.remaining();
+        }
+        this.writeQueue.addLast(buffer);
+    }
+
+    private void released(int length) {
+        synchronized (this.writeQueueLock) {
+            this.queuedBytes -= length;
+            this.writeQueueLock.notifyAll();
+        }
+    }
+
+    /**
+     * Blocks the streaming worker until the client has caught up
+     */
+    private void awaitWriteCapacity() throws IOException {
+        synchronized (this.writeQueueLock) {
+            while (this.queuedBytes > MAX_QUEUED_BYTES && !this.closed) {
+                try {
+                    this.writeQueueLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while streaming", e);
+                }
+            }
+        }
+        if (this.closed) {
+            throw new IOException("Connection closed");
+        }
+    }
+
+    /**
+     * Collects the body of a streaming response on the worker and passes every full buffer to the loop
+     */
+    private class ChunkOutputStream extends OutputStream {
+        private final byte[] buffer = new byte[STREAM_CHUNK_SIZE];
+        private int count = 0;
+
+        @Override
+        public void write(int b) throws IOException {
+            if (this.count == this.buffer.length) {
+                flush();
+            }
+            this.buffer[this.count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] data, int offset, int length) throws IOException {
+            while (length > 0) {
+                if (this.count == this.buffer.length) {
+                    flush();
+                }
+                int copied = Math.min(length, this.buffer.length - this.count);
+                System.arraycopy(data, offset, this.buffer, this.count, copied);
+                this.count += copied;
+                offset += copied;
+                length -= copied;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (this.count == 0) {
+                return;
+            }
+            awaitWriteCapacity();
+
+            byte[] data = new byte[this.count];
+            System.arraycopy(this.buffer, 0, data, 0, this.count);
+            this.count = 0;
+            synchronized (writeQueueLock) {
+                // counted before the loop queues it, so a fast producer cannot run ahead
+                queuedBytes += data.length;
+            }
+            eventLoop.execute(() -> {
+                synchronized (writeQueueLock) {
+                    queuedBytes -= data.length;
+                }
+                if (closed) {
+                    return;
+                }
+                if (streamChunked) {
+                    queueWrite((Integer.toHexString(data.length) + "\r\n").getBytes(StandardCharsets.ISO_8859_1));
+                    queueWrite(data);
+                    queueWrite("\r\n".getBytes(StandardCharsets.ISO_8859_1));
+                } else {
+                    queueWrite(data);
+                }
+                onWritable();
+            });
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
+    /**
+     * Closes the connection if it has been waiting for a new request for too long
+     *
+     * @param now current time in milliseconds
+     */
+    void closeIfIdle(long now) {
+        boolean idle = this.currentRequest == null
+                && this.pendingRequests.isEmpty()
+                && this.writeQueue.isEmpty();
+        if (idle && now - this.lastActivity > this.eventLoop.getIdleTimeoutMillis()) {
+            close();
+        }
+    }
+
+    void close() {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        synchronized (this.writeQueueLock) {
+            this.writeQueueLock.notifyAll();
+        }
+        this.key.cancel();
+        try {
+            this.channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Moves all complete requests from the read buffer into the pending queue
+     */
+    private void parseRequests() {
+        if (this.closed) {
+            return;
+        }
+        while (!this.lastRequestParsed && this.pendingRequests.size() < MAX_PIPELINED_REQUESTS) {
+            Request request;
+            try {
+                request = this.requestParser.parse(this.readBuffer);
+            } catch (RuntimeException e) {
+                this.invalidRequestPending = true;
+                this.lastRequestParsed = true;
+                break;
+            }
+
+            if (request == null) {
+                // incomplete, wait for more unless the request does not fit
+                if (!this.readBuffer.hasRemaining() && !growReadBuffer()) {
+                    this.invalidRequestPending = true;
+                    this.lastRequestParsed = true;
+                }
+                break;
+            }
+
+            this.pendingRequests.addLast(request);
+            if (!isKeepAlive(request)) {
+                this.lastRequestParsed = true;
+            }
+        }
+
+        // stop reading while the pipeline is full or nothing more is expected
+        boolean wantsRead = !this.lastRequestParsed && this.pendingRequests.size() < MAX_PIPELINED_REQUESTS;
+        if (wantsRead) {
+            this.key.interestOps(this.key.interestOps() | SelectionKey.OP_READ);
+        } else {
+            this.key.interestOps(this.key.interestOps() & ~SelectionKey.OP_READ);
+        }
+    }
+
+    /**
+     * Hands the next pending request to the workers unless one is already being handled
+     */
+    private void dispatchNext() {
+        if (this.currentRequest != null) {
+            return;
+        }
+
+        Request request = this.pendingRequests.pollFirst();
+        if (request != null) {
+            this.currentRequest = request;
+            this.requestCount++;
+            this.eventLoop.getWorkers().execute(new RequestHandler(this, request, this.eventLoop.getRouter()));
+        } else if (this.invalidRequestPending) {
+            this.invalidRequestPending = false;
+            this.closeAfterWrite = true;
+            for (ByteBuffer buffer : new Response(
+                    HttpStatus.BAD_REQUEST,
+                    ContentType.JSON,
+                    "[]"
+            ).encode(false)) {
+                queueWrite(buffer);
+            }
+            onWritable();
+        }
+    }
+
+    /**
+     * HTTP/1.1 connections stay open unless the client asks to close them,
+     * HTTP/1.0 connections only if the client asks for keep-alive
+     *
+     * @param request the request
+     * @return true if the connection may be reused after this request
+     */
+    private static boolean isKeepAlive(Request request) {
+        if (request == null || request.getVersion() == null) {
+            return false;
+        }
+
+        String connection = request.getHeaderMap().getHeader("Connection");
+        if ("HTTP/1.1".equals(request.getVersion())) {
+            return connection == null || !connection.equalsIgnoreCase("close");
+        }
+        return connection != null && connection.equalsIgnoreCase("keep-alive");
+    }
+
+    private boolean growReadBuffer() {
+        if (this.readBuffer.capacity() >= MAX_REQUEST_SIZE) {
+            return false;
+        }
+        ByteBuffer bigger = ByteBuffer.allocate(Math.min(this.readBuffer.capacity() * 2, MAX_REQUEST_SIZE));
+        this.readBuffer.flip();
+        bigger.put(this.readBuffer);
+        this.readBuffer = bigger;
+        return true;
+    }
+}
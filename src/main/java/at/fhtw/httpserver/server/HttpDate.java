@@ -0,0 +1,40 @@
+package at.fhtw.httpserver.server;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * The value of the Date header, formatted at most once per second and shared by all responses.
+ */
+public final class HttpDate {
+    private static volatile Formatted current = new Formatted(-1, null);
+
+    private HttpDate() {
+    }
+
+    /**
+     * @return the current time in RFC 1123 format
+     */
+    public static String now() {
+        long second = System.currentTimeMillis() / 1000;
+        Formatted formatted = current;
+        if (formatted.second != second) {
+            // racing threads format the same value, whichever is stored last is fine
+            formatted = new Formatted(second, DateTimeFormatter.RFC_1123_DATE_TIME.format(
+                    Instant.ofEpochSecond(second).atOffset(ZoneOffset.UTC)));
+            current = formatted;
+        }
+        return formatted.value;
+    }
+
+    private static final class Formatted {
+        private final long second;
+        private final String value;
+
+        private Formatted(long second, String value) {
+            this.second = second;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package at.fhtw.httpserver.server;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * The non-empty segments of a path, kept as offsets into the path.
+ * A segment only becomes a String when it is read.
+ */
+final class PathParts extends AbstractList<String> implements RandomAccess {
+    private final String path;
+    // start and end of every segment
+    private final int[] bounds;
+    private final int size;
+    private final String[] parts;
+
+    PathParts(String path) {
+        int[] bounds = new int[8];
+        int size = 0;
+        int length = path.length();
+        int i = 0;
+
+        while (i < length) {
+            if (path.charAt(i) == '/') {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < length && path.charAt(i) != '/') {
+                i++;
+            }
+            if (size * 2 == bounds.length) {
+                bounds = Arrays.copyOf(bounds, bounds.length * 2);
+            }
+            bounds[size * 2] = start;
+            bounds[size * 2 + 1] = i;
+            size++;
+        }
+
+        this.path = path;
+        this.bounds = bounds;
+        this.size = size;
+        this.parts = new String[size];
+    }
+
+    @Override
+    public String get(int index) {
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + this.size);
+        }
+        String part = this.parts[index];
+        if (part == null) {
+            part = this.path.substring(this.bounds[index * 2], this.bounds[index * 2 + 1]);
+            this.parts[index] = part;
+        }
+        return part;
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+}
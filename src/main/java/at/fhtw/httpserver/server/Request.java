@@ -4,13 +4,13 @@ import at.fhtw.httpserver.http.Method;
 import lombok.Getter;
 import lombok.Setter;
 
-import java.util.ArrayList;
 import java.util.List;
 
 @Getter
 @Setter
 public class Request {
     private Method method;
+    private String version;
     private String urlContent;
     private String pathname;
     private List<String> pathParts;
@@ -62,17 +62,7 @@ public class Request {
 
     public void setPathname(String pathname) {
         this.pathname = pathname;
-        String[] stringParts = pathname.split("/");
-        this.pathParts = new ArrayList<>();
-        for (String part :stringParts)
-        {
-            if (part != null &&
-                    part.length() > 0)
-            {
-                this.pathParts.add(part);
-            }
-        }
-
+        this.pathParts = new PathParts(pathname);
     }
     public String getParams() {
         return params;
@@ -1,38 +1,126 @@
 package at.fhtw.httpserver.server;
 
+import at.fhtw.httpserver.http.ContentEncoding;
 import at.fhtw.httpserver.http.ContentType;
 import at.fhtw.httpserver.http.HttpStatus;
+import lombok.AccessLevel;
 import lombok.Getter;
 
-import java.time.ZoneId;
-import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
 @Getter
 public class Response {
+    /**
+     * Bodies smaller than this are sent uncompressed
+     */
+    private static final int COMPRESSION_THRESHOLD = Integer.getInteger("mctg.http.compressionThreshold", 1024);
+
     private final int status;
     private final String message;
     private final String contentType;
     private final String content;
+    private final boolean compressible;
+    @Getter(AccessLevel.NONE)
+    private boolean cacheCompressed = false;
+
+    // the content as UTF-8, encoded on first use
+    @Getter(AccessLevel.NONE)
+    private byte[] contentBytes;
 
     public Response(HttpStatus httpStatus, ContentType contentType, String content) {
         this.status = httpStatus.code;
         this.message = httpStatus.message;
         this.contentType = contentType.type;
         this.content = content;
+        this.compressible = contentType.compressible;
+    }
+
+    /**
+     * Marks the body as likely to be sent again unchanged, so its compressed form is kept for the next response
+     *
+     * @return this response
+     */
+    public Response cacheCompressed() {
+        this.cacheCompressed = true;
+        return this;
     }
 
     public String get() {
-        String localDatetime = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneId.of("UTC")));
-        return "HTTP/1.1 " + this.status + " " + this.message + "\r\n" +
-                "Cache-Control: max-age=0\r\n" +
-                "Connection: close\r\n" +
-                "Date: " + localDatetime + "\r\n" +
-                "Expires: " + localDatetime + "\r\n" +
-                "Content-Type: " + this.contentType + "\r\n" +
-                "Content-Length: " + this.content.length() + "\r\n" +
-                "\r\n" +
-                this.content;
+        return get(false);
+    }
+
+    /**
+     * @param keepAlive whether the connection stays open after this response
+     * @return the serialized response
+     */
+    public String get(boolean keepAlive) {
+        return head(keepAlive, "Content-Length: " + getContentBytes().length) + this.content;
+    }
+
+    /**
+     * Serializes the response for writing to a socket, head and body in separate buffers
+     * so they can go out with one gathering write without being copied together
+     *
+     * @param keepAlive whether the connection stays open after this response
+     * @return the head and the body
+     */
+    public ByteBuffer[] encode(boolean keepAlive) {
+        return encode(keepAlive, null);
+    }
+
+    /**
+     * Serializes the response like {@link #encode(boolean)}, compressing a large enough body
+     * of a compressible type with the encoding the client prefers
+     *
+     * @param keepAlive      whether the connection stays open after this response
+     * @param acceptEncoding the request's {@code Accept-Encoding} header, may be null
+     * @return the head and the body
+     */
+    public ByteBuffer[] encode(boolean keepAlive, String acceptEncoding) {
+        byte[] body = getContentBytes();
+        String bodyHeaders = "Content-Length: " + body.length;
+
+        if (this.compressible && body.length >= COMPRESSION_THRESHOLD) {
+            ContentEncoding encoding = ContentEncoding.negotiate(acceptEncoding);
+            if (encoding != null) {
+                body = this.cacheCompressed ? encoding.compressCached(this.content, body) : encoding.compress(body);
+                bodyHeaders = "Content-Encoding: " + encoding.token + "\r\n" +
+                        "Content-Length: " + body.length;
+            }
+            // caches must tell clients with different Accept-Encoding apart
+            bodyHeaders = "Vary: Accept-Encoding\r\n" + bodyHeaders;
+        }
+
+        byte[] head = head(keepAlive, bodyHeaders).getBytes(StandardCharsets.ISO_8859_1);
+        return new ByteBuffer[]{ByteBuffer.wrap(head), ByteBuffer.wrap(body)};
+    }
+
+    private byte[] getContentBytes() {
+        if (this.contentBytes == null) {
+            this.contentBytes = this.content.getBytes(StandardCharsets.UTF_8);
+        }
+        return this.contentBytes;
+    }
+
+    /**
+     * @param keepAlive  whether the connection stays open after this response
+     * @param bodyHeader the headers describing the body and how it is delimited, null if closing the connection ends it
+     * @return status line and headers, including the empty line ending them
+     */
+    protected String head(boolean keepAlive, String bodyHeader) {
+        String date = HttpDate.now();
+        StringBuilder head = new StringBuilder(256)
+                .append("HTTP/1.1 ").append(this.status).append(' ').append(this.message).append("\r\n")
+                .append("Cache-Control: max-age=0\r\n")
+                .append("Connection: ").append(keepAlive ? "keep-alive" : "close").append("\r\n")
+                .append("Date: ").append(date).append("\r\n")
+                .append("Expires: ").append(date).append("\r\n")
+                .append("Content-Type: ").append(this.contentType).append("\r\n");
+        if (bodyHeader != null) {
+            head.append(bodyHeader).append("\r\n");
+        }
+        return head.append("\r\n").toString();
     }
 
     @Override
@@ -1,35 +1,101 @@
 package at.fhtw.httpserver.server;
 
-import at.fhtw.httpserver.utils.RequestHandler;
 import at.fhtw.httpserver.utils.Router;
 
 import java.io.IOException;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 public class Server {
     private final int port;
     private final Router router;
+    private final int eventLoopThreads;
+    private final ExecutorService workers;
+    private long idleTimeoutMillis = 15000;
+    private int maxRequestsPerConnection = 100;
+
+    private volatile ServerSocketChannel serverChannel;
+    private EventLoop[] eventLoops;
 
     public Server(int port, Router router) {
+        this(port, router, Runtime.getRuntime().availableProcessors(), Executors.newFixedThreadPool(32));
+    }
+
+    /**
+     * @param port             the port to listen on
+     * @param router           the router resolving the services
+     * @param eventLoopThreads number of selector threads doing the socket I/O
+     * @param workers          executor running {@link Service#handleRequest(Request)}
+     */
+    public Server(int port, Router router, int eventLoopThreads, ExecutorService workers) {
         this.port = port;
         this.router = router;
+        this.eventLoopThreads = Math.max(1, eventLoopThreads);
+        this.workers = workers;
     }
 
-    public void start() throws IOException {
-        final ExecutorService executorService = Executors.newFixedThreadPool(10);
+    /**
+     * @param idleTimeoutMillis keep-alive connections without a new request for this long are closed
+     */
+    public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
 
+    /**
+     * @param maxRequestsPerConnection a keep-alive connection is closed after this many requests
+     */
+    public void setMaxRequestsPerConnection(int maxRequestsPerConnection) {
+        this.maxRequestsPerConnection = Math.max(1, maxRequestsPerConnection);
+    }
+
+    public void start() throws IOException {
         System.out.println("Start http-server...");
         System.out.println("http-server running at: http://localhost:" + this.port);
 
-        try(ServerSocket serverSocket = new ServerSocket(this.port)) {
-            while(true) {
-                final Socket clientConnection = serverSocket.accept();
-                final RequestHandler socketHandler = new RequestHandler(clientConnection, this.router);
-                executorService.submit(socketHandler);
+        this.eventLoops = new EventLoop[this.eventLoopThreads];
+        for (int i = 0; i < this.eventLoops.length; i++) {
+            this.eventLoops[i] = new EventLoop(this.router, this.workers, this.idleTimeoutMillis, this.maxRequestsPerConnection);
+            new Thread(this.eventLoops[i], "event-loop-" + i).start();
+        }
+
+        try (ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+            this.serverChannel = serverChannel;
+            serverChannel.bind(new InetSocketAddress(this.port));
+
+            int next = 0;
+            while (serverChannel.isOpen()) {
+                final SocketChannel clientConnection = serverChannel.accept();
+                this.eventLoops[next].register(clientConnection);
+                next = (next + 1) % this.eventLoops.length;
+            }
+        } catch (IOException e) {
+            if (this.serverChannel == null || this.serverChannel.isOpen()) {
+                throw e;
+            }
+        } finally {
+            stop();
+        }
+    }
+
+    /**
+     * Stops accepting connections and shuts down the event loops and workers
+     */
+    public void stop() {
+        try {
+            if (this.serverChannel != null) {
+                this.serverChannel.close();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        if (this.eventLoops != null) {
+            for (EventLoop eventLoop : this.eventLoops) {
+                eventLoop.stop();
             }
         }
+        this.workers.shutdownNow();
     }
 }
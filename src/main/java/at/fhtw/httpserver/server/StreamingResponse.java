@@ -0,0 +1,78 @@
+package at.fhtw.httpserver.server;
+
+import at.fhtw.httpserver.http.ContentEncoding;
+import at.fhtw.httpserver.http.ContentType;
+import at.fhtw.httpserver.http.HttpStatus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A response whose body is produced while it is being sent.
+ * <p>
+ * The body is written on the worker thread in chunks ({@code Transfer-Encoding: chunked} for HTTP/1.1 clients);
+ * writing blocks while the client is not keeping up, so the body never has to fit into memory.
+ */
+public class StreamingResponse extends Response {
+
+    /**
+     * Produces the body
+     */
+    @FunctionalInterface
+    public interface Body {
+        /**
+         * @param out receives the body; flushing sends what has been written so far
+         */
+        void writeTo(OutputStream out) throws Exception;
+    }
+
+    private final Body body;
+
+    public StreamingResponse(HttpStatus httpStatus, ContentType contentType, Body body) {
+        super(httpStatus, contentType, "");
+        this.body = body;
+    }
+
+    public Body getBody() {
+        return this.body;
+    }
+
+    /**
+     * @param keepAlive whether the connection stays open after this response
+     * @param chunked   true for a chunked body, false if closing the connection ends the body
+     * @param encoding  the compression of the body, null for none
+     * @return status line and headers
+     */
+    public String getHead(boolean keepAlive, boolean chunked, ContentEncoding encoding) {
+        String bodyHeaders = chunked ? "Transfer-Encoding: chunked" : null;
+        if (encoding != null) {
+            bodyHeaders = "Content-Encoding: " + encoding.token + "\r\n" +
+                    "Vary: Accept-Encoding" + (bodyHeaders != null ? "\r\n" + bodyHeaders : "");
+        }
+        return head(keepAlive, bodyHeaders);
+    }
+
+    /**
+     * @param acceptEncoding the request's {@code Accept-Encoding} header, may be null
+     * @return the compression for the body, null for none; the size is not known up front,
+     * so any body of a compressible type is compressed
+     */
+    public ContentEncoding negotiateEncoding(String acceptEncoding) {
+        return this.isCompressible() ? ContentEncoding.negotiate(acceptEncoding) : null;
+    }
+
+    /**
+     * Produces the whole body up front, for callers that cannot stream
+     */
+    @Override
+    public String get(boolean keepAlive) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            this.body.writeTo(out);
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not produce the response body", e);
+        }
+        return head(keepAlive, "Content-Length: " + out.size()) + out.toString(StandardCharsets.UTF_8);
+    }
+}
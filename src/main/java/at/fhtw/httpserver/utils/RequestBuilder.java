@@ -7,6 +7,10 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.util.Locale;
 
+/**
+ * Builds a request from a reader, one line at a time.
+ * The server parses requests from the raw bytes with {@link RequestParser} instead.
+ */
 public class RequestBuilder {
     public Request buildRequest(BufferedReader bufferedReader) throws IOException {
         Request request = new Request();
@@ -17,6 +21,9 @@ public class RequestBuilder {
 
             request.setMethod(getMethod(splitFirstLine[0]));
             setPathname(request, splitFirstLine[1]);
+            if (splitFirstLine.length > 2) {
+                request.setVersion(splitFirstLine[2]);
+            }
 
             line = bufferedReader.readLine();
             while (!line.isEmpty()) {
@@ -2,60 +2,65 @@ package at.fhtw.httpserver.utils;
 
 import at.fhtw.httpserver.http.ContentType;
 import at.fhtw.httpserver.http.HttpStatus;
+import at.fhtw.httpserver.server.HttpConnection;
 import at.fhtw.httpserver.server.Request;
 import at.fhtw.httpserver.server.Response;
+import at.fhtw.httpserver.server.Service;
+import at.fhtw.httpserver.server.StreamingResponse;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
-import java.net.Socket;
-
+/**
+ * Runs a parsed request through the router on a worker thread
+ * and hands the response back to the connection.
+ */
 public class RequestHandler implements Runnable {
-    private final Socket clientSocket;
+    private final HttpConnection connection;
+    private final Request request;
     private final Router router;
-    private final PrintWriter printWriter;
-    private final BufferedReader bufferedReader;
 
-    public RequestHandler(Socket clientSocket, Router router) throws IOException {
-        this.clientSocket = clientSocket;
-        this.bufferedReader = new BufferedReader(new InputStreamReader(this.clientSocket.getInputStream()));
-        this.printWriter = new PrintWriter(this.clientSocket.getOutputStream(), true);
+    public RequestHandler(HttpConnection connection, Request request, Router router) {
+        this.connection = connection;
+        this.request = request;
         this.router = router;
     }
 
     @Override
     public void run() {
+        Response response;
         try {
-            Response response;
-            Request request = new RequestBuilder().buildRequest(this.bufferedReader);
+            response = handle(this.request);
+        } catch (Exception e) {
+            e.printStackTrace();
+            response = new Response(
+                    HttpStatus.INTERNAL_SERVER_ERROR,
+                    ContentType.JSON,
+                    "{ \"message\" : \"Internal Server Error\" }"
+            );
+        }
+        if (response instanceof StreamingResponse streamingResponse) {
+            this.connection.stream(streamingResponse);
+        } else {
+            this.connection.respond(response);
+        }
+    }
 
-            if (request.getPathname() == null) {
-                response = new Response(
+    private Response handle(Request request) {
+        if (request.getPathname() == null) {
+            return new Response(
                     HttpStatus.BAD_REQUEST,
                     ContentType.JSON,
                     "[]"
-                );
-            } else {
-                response = this.router.resolve(request.getServiceRoute()).handleRequest(request);
-            }
-            printWriter.write(response.get());
-        } catch (IOException e) {
-            System.err.println(Thread.currentThread().getName() + " Error: " + e.getMessage());
-        }catch (Exception e) {
-            e.printStackTrace();
-        } finally {
-            try {
-                if (printWriter != null) {
-                    printWriter.close();
-                }
-                if (bufferedReader != null) {
-                    bufferedReader.close();
-                    clientSocket.close();
-                }
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+            );
         }
+
+        Service service = this.router.resolve(request.getServiceRoute());
+        if (service == null) {
+            return new Response(
+                    HttpStatus.NOT_FOUND,
+                    ContentType.JSON,
+                    "{ \"message\" : \"Not Found\" }"
+            );
+        }
+
+        return service.handleRequest(request);
     }
 }
@@ -0,0 +1,279 @@
+package at.fhtw.httpserver.utils;
+
+import at.fhtw.httpserver.http.Method;
+import at.fhtw.httpserver.server.Request;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Incremental HTTP/1.x request parser working directly on the bytes of a connection's read buffer.
+ * <p>
+ * Every call looks only at the bytes received since the last call, so a request arriving in many small reads
+ * is scanned once and a partial request never blocks. The head is parsed as ASCII without splitting strings;
+ * common header names are shared constants instead of new strings.
+ * The body is decoded as UTF-8 from exactly {@code Content-Length} bytes.
+ * <p>
+ * One parser belongs to one connection; it keeps the state of the request being received.
+ */
+public class RequestParser {
+    private static final Method[] METHODS = Method.values();
+    private static final byte[][] METHOD_NAMES = ascii(names(METHODS));
+
+    private static final String[] VERSIONS = {"HTTP/1.1", "HTTP/1.0"};
+    private static final byte[][] VERSION_NAMES = ascii(VERSIONS);
+
+    private static final String[] HEADER_NAMES = {
+            "Host",
+            "User-Agent",
+            "Accept",
+            "Accept-Encoding",
+            "Accept-Language",
+            "Authorization",
+            "Cache-Control",
+            "Connection",
+            "Content-Length",
+            "Content-Type",
+            "Cookie",
+            "Expect",
+            "Origin",
+            "Referer",
+            "Transfer-Encoding",
+            "Upgrade"
+    };
+    private static final byte[][] HEADER_NAME_BYTES = ascii(HEADER_NAMES);
+
+    private final int maxRequestSize;
+
+    // everything before this offset has been searched for the end of the head
+    private int scanned = 0;
+
+    // the request whose head has been parsed, waiting for its body
+    private Request request;
+    private int headLength;
+    private int contentLength;
+
+    /**
+     * @param maxRequestSize largest accepted request, head and body, in bytes
+     */
+    public RequestParser(int maxRequestSize) {
+        this.maxRequestSize = maxRequestSize;
+    }
+
+    /**
+     * Takes the next complete request out of the buffer.
+     * Bytes of pipelined requests following it are moved to the start of the buffer.
+     *
+     * @param buffer an array-backed buffer ready for reading into, the received bytes are before its position
+     * @return the request, null if it has not been received completely yet
+     * @throws IllegalArgumentException if the bytes are not a valid request
+     */
+    public Request parse(ByteBuffer buffer) {
+        byte[] data = buffer.array();
+        int filled = buffer.position();
+
+        if (this.request == null) {
+            int headEnd = findHeadEnd(data, filled);
+            if (headEnd < 0) {
+                return null;
+            }
+
+            this.request = parseHead(data, headEnd);
+            this.headLength = headEnd;
+            this.contentLength = this.request.getHeaderMap().getContentLength();
+            if (this.contentLength < 0 || this.contentLength > this.maxRequestSize - headEnd) {
+                throw new IllegalArgumentException("Invalid Content-Length " + this.contentLength);
+            }
+        }
+
+        int requestLength = this.headLength + this.contentLength;
+        if (filled < requestLength) {
+            return null;
+        }
+
+        Request complete = this.request;
+        if (this.contentLength > 0) {
+            complete.setBody(new String(data, this.headLength, this.contentLength, StandardCharsets.UTF_8));
+        }
+
+        buffer.flip();
+        buffer.position(requestLength);
+        buffer.compact();
+
+        this.request = null;
+        this.scanned = 0;
+        return complete;
+    }
+
+    /**
+     * Continues the search for the empty line ending the head, with or without carriage returns
+     *
+     * @return the length of the head including the empty line, -1 if it is not complete yet
+     */
+    private int findHeadEnd(byte[] data, int filled) {
+        for (int i = this.scanned; i < filled; i++) {
+            if (data[i] != '\n') {
+                continue;
+            }
+            if (i + 1 < filled && data[i + 1] == '\n') {
+                return i + 2;
+            }
+            if (i + 2 < filled && data[i + 1] == '\r' && data[i + 2] == '\n') {
+                return i + 3;
+            }
+        }
+        // a line break in the last two bytes may still turn out to end the head
+        this.scanned = Math.max(this.scanned, filled - 2);
+        return -1;
+    }
+
+    private static Request parseHead(byte[] data, int headEnd) {
+        Request request = new Request();
+
+        // request line: method, target and optionally the version
+        int lineEnd = lineEnd(data, 0, headEnd);
+        int position = skipSpaces(data, 0, lineEnd);
+        int tokenEnd = tokenEnd(data, position, lineEnd);
+        request.setMethod(METHODS[find(METHOD_NAMES, data, position, tokenEnd, "method")]);
+
+        position = skipSpaces(data, tokenEnd, lineEnd);
+        tokenEnd = tokenEnd(data, position, lineEnd);
+        if (position == tokenEnd) {
+            throw new IllegalArgumentException("Request target missing");
+        }
+        String target = new String(data, position, tokenEnd - position, StandardCharsets.UTF_8);
+        int query = target.indexOf('?');
+        if (query >= 0) {
+            request.setPathname(target.substring(0, query));
+            request.setParams(target.substring(query + 1));
+        } else {
+            request.setPathname(target);
+            request.setParams(null);
+        }
+
+        position = skipSpaces(data, tokenEnd, lineEnd);
+        tokenEnd = tokenEnd(data, position, lineEnd);
+        if (position < tokenEnd) {
+            int version = indexOf(VERSION_NAMES, data, position, tokenEnd, false);
+            request.setVersion(version >= 0
+                    ? VERSIONS[version]
+                    : new String(data, position, tokenEnd - position, StandardCharsets.ISO_8859_1));
+        }
+
+        // header lines up to the empty line
+        int lineStart = lineEnd + 1;
+        while (lineStart < headEnd) {
+            lineEnd = lineEnd(data, lineStart, headEnd);
+            if (skipSpaces(data, lineStart, lineEnd) == lineEnd) {
+                break;
+            }
+
+            int colon = lineStart;
+            while (colon < lineEnd && data[colon] != ':') {
+                colon++;
+            }
+            if (colon == lineEnd) {
+                throw new IllegalArgumentException("Malformed header line");
+            }
+
+            int nameEnd = colon;
+            while (nameEnd > lineStart && isSpace(data[nameEnd - 1])) {
+                nameEnd--;
+            }
+            int header = indexOf(HEADER_NAME_BYTES, data, lineStart, nameEnd, true);
+            String name = header >= 0
+                    ? HEADER_NAMES[header]
+                    : new String(data, lineStart, nameEnd - lineStart, StandardCharsets.ISO_8859_1);
+
+            int valueStart = skipSpaces(data, colon + 1, lineEnd);
+            int valueEnd = lineEnd;
+            while (valueEnd > valueStart && isSpace(data[valueEnd - 1])) {
+                valueEnd--;
+            }
+            request.getHeaderMap().put(name, new String(data, valueStart, valueEnd - valueStart, StandardCharsets.ISO_8859_1));
+
+            lineStart = lineEnd + 1;
+        }
+
+        return request;
+    }
+
+    /**
+     * @return the index of the line feed ending the line; a carriage return before it is skipped as whitespace
+     */
+    private static int lineEnd(byte[] data, int from, int limit) {
+        while (from < limit && data[from] != '\n') {
+            from++;
+        }
+        return from;
+    }
+
+    private static int skipSpaces(byte[] data, int from, int limit) {
+        while (from < limit && isSpace(data[from])) {
+            from++;
+        }
+        return from;
+    }
+
+    private static int tokenEnd(byte[] data, int from, int limit) {
+        while (from < limit && !isSpace(data[from])) {
+            from++;
+        }
+        return from;
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    private static int find(byte[][] names, byte[] data, int from, int to, String what) {
+        int index = indexOf(names, data, from, to, true);
+        if (index < 0) {
+            throw new IllegalArgumentException("Unknown " + what + " " + new String(data, from, to - from, StandardCharsets.ISO_8859_1));
+        }
+        return index;
+    }
+
+    /**
+     * Looks up an ASCII token without creating a String
+     *
+     * @return the index of the matching name, -1 if there is none
+     */
+    private static int indexOf(byte[][] names, byte[] data, int from, int to, boolean ignoreCase) {
+        int length = to - from;
+        for (int n = 0; n < names.length; n++) {
+            byte[] name = names[n];
+            if (name.length != length) {
+                continue;
+            }
+            int i = 0;
+            while (i < length && (name[i] == data[from + i] || ignoreCase && lowerCase(name[i]) == lowerCase(data[from + i]))) {
+                i++;
+            }
+            if (i == length) {
+                return n;
+            }
+        }
+        return -1;
+    }
+
+    private static int lowerCase(byte b) {
+        return b >= 'A' && b <= 'Z' ? b + ('a' - 'A') : b;
+    }
+
+    private static String[] names(Method[] methods) {
+        String[] names = new String[methods.length];
+        for (int i = 0; i < methods.length; i++) {
+            names[i] = methods[i].name();
+        }
+        return names;
+    }
+
+    private static byte[][] ascii(String[] names) {
+        byte[][] bytes = new byte[names.length][];
+        for (int i = 0; i < names.length; i++) {
+            bytes[i] = names[i].getBytes(StandardCharsets.US_ASCII);
+        }
+        return bytes;
+    }
+}
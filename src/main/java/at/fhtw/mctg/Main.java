@@ -2,6 +2,10 @@ package at.fhtw.mctg;
 
 import at.fhtw.httpserver.server.Server;
 import at.fhtw.httpserver.utils.Router;
+import at.fhtw.mctg.controller.pack.PackController;
+import at.fhtw.mctg.dal.Repository.UserRepository;
+import at.fhtw.mctg.dal.UnitOfWork;
+import at.fhtw.mctg.model.Card;
 import at.fhtw.mctg.service.battle.BattleService;
 import at.fhtw.mctg.service.card.CardService;
 import at.fhtw.mctg.service.deck.DeckService;
@@ -12,12 +16,50 @@ import at.fhtw.mctg.service.stats.StatService;
 import at.fhtw.mctg.service.trade.TradeService;
 import at.fhtw.mctg.service.transaction.TransactionService;
 import at.fhtw.mctg.service.users.UserService;
+import at.fhtw.mctg.threads.BattleExecutor;
+import at.fhtw.mctg.utils.PackageParser;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class Main {
     public static void main(String[] args) {
-        Server server = new Server(10001, configureRouter());
+        // start with --virtual-threads (or -Dmctg.virtualThreads=true) to run requests and battles on virtual threads
+        boolean virtualThreads = Arrays.asList(args).contains("--virtual-threads") || Boolean.getBoolean("mctg.virtualThreads");
+
+        // start with --rebuild-stats (or -Dmctg.rebuildStats=true) to recompute the win/loss/tie counters from the battle history
+        if (Arrays.asList(args).contains("--rebuild-stats") || Boolean.getBoolean("mctg.rebuildStats")) {
+            rebuildStatCounters();
+        }
+
+        // start with --import-packages <file> (or -Dmctg.importPackages=<file>) to bulk import a JSON or CSV package file
+        int importIndex = Arrays.asList(args).indexOf("--import-packages");
+        String importFile = importIndex >= 0 && importIndex + 1 < args.length ? args[importIndex + 1] : System.getProperty("mctg.importPackages");
+        if (importFile != null) {
+            importPackages(Path.of(importFile));
+        }
+
+        ExecutorService workers;
+        if (virtualThreads) {
+            workers = Executors.newVirtualThreadPerTaskExecutor();
+            BattleExecutor.INSTANCE.useVirtualThreads();
+        } else {
+            workers = Executors.newFixedThreadPool(Integer.getInteger("mctg.http.workers", 32));
+        }
+
+        Server server = new Server(
+                10001,
+                configureRouter(),
+                Integer.getInteger("mctg.http.eventLoops", Runtime.getRuntime().availableProcessors()),
+                workers
+        );
+        server.setIdleTimeoutMillis(Long.getLong("mctg.http.idleTimeoutMillis", 15000L));
+        server.setMaxRequestsPerConnection(Integer.getInteger("mctg.http.maxRequestsPerConnection", 100));
         try {
             server.start();
         } catch (IOException e) {
@@ -25,6 +67,39 @@ public class Main {
         }
     }
 
+    private static void rebuildStatCounters() {
+        UnitOfWork unitOfWork = new UnitOfWork();
+        try (unitOfWork) {
+            int changed = new UserRepository(unitOfWork).rebuildStatCounters();
+
+            unitOfWork.commitTransaction();
+            System.out.println("Rebuilt stat counters, " + changed + " users corrected");
+        } catch (Exception e) {
+            e.printStackTrace();
+
+            unitOfWork.rollbackTransaction();
+        }
+    }
+
+    private static void importPackages(Path file) {
+        try {
+            String content = Files.readString(file);
+            List<List<Card>> packages = file.toString().toLowerCase().endsWith(".csv")
+                    ? PackageParser.parseCsv(content)
+                    : PackageParser.parseJson(content);
+
+            PackController.ImportResult result = PackController.importPackages(packages);
+            if (result.isComplete()) {
+                System.out.println("Imported " + result.packages() + " packages with " + result.cards() + " cards in "
+                        + result.millis() + " ms (" + result.cardsPerSecond() + " cards/s)");
+            } else {
+                System.out.println("Nothing imported, " + (result.cards() - result.created()) + " card ids exist already");
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
     private static Router configureRouter() {
         Router router = new Router();
         router.addService("/users", new UserService());
@@ -0,0 +1,124 @@
+package at.fhtw.mctg.battle;
+
+import at.fhtw.mctg.model.Card;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * The battle rules, without any database access or logging.
+ * <p>
+ * A battle is fully determined by the two decks, the ELO of both players and the seed,
+ * so the same input always produces the same {@link BattleResult}.
+ * The cards passed in are not modified; damage changes during the battle are tracked internally.
+ */
+public class BattleEngine {
+    /**
+     * Defines the maximum number of battle rounds allowed in a game.
+     */
+    public static final int MAX_ROUNDS = 100;
+
+    /**
+     * Runs a battle
+     *
+     * @param deckA cards of user A
+     * @param deckB cards of user B
+     * @param eloA  ELO of user A, used by the custom rule
+     * @param eloB  ELO of user B, used by the custom rule
+     * @param seed  seed for drawing the cards
+     * @return the outcome and what happened in every round
+     */
+    public BattleResult fight(List<Card> deckA, List<Card> deckB, int eloA, int eloB, long seed) {
+        int sizeA = deckA.size();
+        int sizeB = deckB.size();
+        int total = sizeA + sizeB;
+
+        // every card gets an index; the decks only hold indices
+        Card[] cards = new Card[total];
+        int[] kinds = new int[total];
+        int[] damage = new int[total];
+        int[] handA = new int[total];
+        int[] handB = new int[total];
+
+        for (int i = 0; i < total; i++) {
+            Card card = i < sizeA ? deckA.get(i) : deckB.get(i - sizeA);
+            cards[i] = card;
+            kinds[i] = RuleTable.kind(card);
+            damage[i] = card.getDamage();
+        }
+        for (int i = 0; i < sizeA; i++) {
+            handA[i] = i;
+        }
+        for (int i = 0; i < sizeB; i++) {
+            handB[i] = sizeA + i;
+        }
+
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] roundData = new int[MAX_ROUNDS * BattleResult.ROUND_STRIDE];
+        int round = 0;
+
+        while (round < MAX_ROUNDS && sizeA > 0 && sizeB > 0) {
+            int offset = round * BattleResult.ROUND_STRIDE;
+            round++;
+
+            // Select random card
+            int a = handA[random.nextInt(sizeA)];
+            int b = handB[random.nextInt(sizeB)];
+
+            int damageA = damage[a];
+            int damageB = damage[b];
+            roundData[offset] = a;
+            roundData[offset + 1] = b;
+            roundData[offset + 2] = damageA;
+            roundData[offset + 3] = damageB;
+
+            int events = 0;
+
+            // Custom Rule! The card of the weaker player keeps double damage for the following rounds
+            if ((sizeA == 1 || sizeB == 1) && (round % 2 == 0)) {
+                events |= BattleEvent.CUSTOM_RULE.bit();
+                if (eloA > eloB) {
+                    damage[b] *= 2;
+                } else if (eloA < eloB) {
+                    damage[a] *= 2;
+                }
+            }
+
+            // Special rules and element advantages
+            int rule = RuleTable.lookup(kinds[a], kinds[b]);
+            events |= RuleTable.events(rule);
+            damageA *= RuleTable.factorA(rule);
+            damageB *= RuleTable.factorB(rule);
+
+            roundData[offset + 4] = events;
+            roundData[offset + 5] = damageA;
+            roundData[offset + 6] = damageB;
+
+            // the winner of the round takes the other card
+            if (damageA > damageB) {
+                handA[sizeA++] = b;
+                sizeB = remove(handB, sizeB, b);
+            } else if (damageA < damageB) {
+                handB[sizeB++] = a;
+                sizeA = remove(handA, sizeA, a);
+            }
+        }
+
+        return new BattleResult(cards, deckA.size(), round, roundData, sizeA, sizeB);
+    }
+
+    /**
+     * Removes a card from a hand, keeping the order of the remaining cards
+     *
+     * @return the new size of the hand
+     */
+    private static int remove(int[] hand, int size, int card) {
+        for (int i = 0; i < size; i++) {
+            if (hand[i] == card) {
+                System.arraycopy(hand, i + 1, hand, i, size - i - 1);
+                return size - 1;
+            }
+        }
+        return size;
+    }
+}
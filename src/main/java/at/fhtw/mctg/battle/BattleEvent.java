@@ -0,0 +1,51 @@
+package at.fhtw.mctg.battle;
+
+/**
+ * Things that can happen in a battle round besides drawing the cards and comparing damage.
+ * <p>
+ * A round stores the events that occurred as a bit mask (see {@link #bit()});
+ * the declaration order is the order in which they are logged.
+ */
+public enum BattleEvent {
+    CUSTOM_RULE("Custom Rule active!"),
+    GOBLIN_AFRAID("-> Goblin is too afraid to attack!"),
+    WIZARD_CONTROLS_ORK("-> Wizard controls Ork. No damage!"),
+    KNIGHT_DROWNS("-> Knight drowns due to WaterSpell!"),
+    KRAKEN_IMMUNE("-> Kraken is immune to spells!"),
+    FIRE_ELF_EVADES("-> FireElf evades Dragon's attack!"),
+    SPELL("Spell affects the damage calculation!"),
+    WATER_OVER_FIRE("-> Water > Fire"),
+    FIRE_OVER_NORMAL("-> Fire > Normal"),
+    NORMAL_OVER_WATER("-> Normal > Water");
+
+    private static final BattleEvent[] VALUES = values();
+
+    private final String logText;
+
+    BattleEvent(String logText) {
+        this.logText = logText;
+    }
+
+    public String getLogText() {
+        return this.logText;
+    }
+
+    /**
+     * @return the bit representing this event in a round's event mask
+     */
+    public int bit() {
+        return 1 << ordinal();
+    }
+
+    /**
+     * @param mask an event mask
+     * @return true if this event is set in the mask
+     */
+    public boolean isIn(int mask) {
+        return (mask & bit()) != 0;
+    }
+
+    static BattleEvent[] all() {
+        return VALUES;
+    }
+}
@@ -0,0 +1,288 @@
+package at.fhtw.mctg.battle;
+
+import at.fhtw.mctg.model.Card;
+import at.fhtw.mctg.model.CardType;
+import at.fhtw.mctg.model.Elements;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Compact binary record of a finished battle, stored instead of one text row per log line.
+ * <p>
+ * A replay holds the seed, both players, a snapshot of both decks and a few small numbers per round
+ * (the drawn cards, the {@link BattleEvent} mask and the damage values); numbers are written as variable-length ints.
+ * A battle of 100 rounds takes about 1 KiB. The text log is rendered from it with {@link #forEachLogLine(Consumer)}.
+ * <p>
+ * The snapshot is enough to run the battle again with the {@link BattleEngine},
+ * but rendering only reads the stored rounds, so old replays stay readable when the rules change.
+ */
+public final class BattleReplay {
+    private static final int FORMAT_VERSION = 1;
+
+    private final long seed;
+    private final String usernameA;
+    private final String usernameB;
+    private final int eloA;
+    private final int eloB;
+    private final BattleResult result;
+
+    private BattleReplay(long seed, String usernameA, String usernameB, int eloA, int eloB, BattleResult result) {
+        this.seed = seed;
+        this.usernameA = usernameA;
+        this.usernameB = usernameB;
+        this.eloA = eloA;
+        this.eloB = eloB;
+        this.result = result;
+    }
+
+    /**
+     * Encodes a battle
+     *
+     * @param usernameA user A
+     * @param usernameB user B
+     * @param eloA      ELO of user A before the battle
+     * @param eloB      ELO of user B before the battle
+     * @param seed      the seed the battle was run with
+     * @param result    the outcome from the {@link BattleEngine}
+     * @return the replay
+     */
+    public static byte[] encode(String usernameA, String usernameB, int eloA, int eloB, long seed, BattleResult result) {
+        Encoder out = new Encoder(256 + result.getRounds() * 12);
+        out.writeByte(FORMAT_VERSION);
+        out.writeLong(seed);
+        out.writeString(usernameA);
+        out.writeString(usernameB);
+        out.writeInt(eloA);
+        out.writeInt(eloB);
+
+        Card[] cards = result.getCards();
+        out.writeInt(result.getDeckSizeA());
+        out.writeInt(cards.length - result.getDeckSizeA());
+        for (Card card : cards) {
+            out.writeString(card.getCardId());
+            out.writeString(card.getName());
+            out.writeInt(card.getDamage());
+            // 0 for a missing value, otherwise ordinal + 1
+            out.writeByte(card.getType() != null ? card.getType().ordinal() + 1 : 0);
+            out.writeByte(card.getElement() != null ? card.getElement().ordinal() + 1 : 0);
+        }
+
+        out.writeInt(result.getRounds());
+        out.writeInt(result.getRemainingCardsA());
+        out.writeInt(result.getRemainingCardsB());
+        for (int round = 1; round <= result.getRounds(); round++) {
+            for (int field = 0; field < BattleResult.ROUND_STRIDE; field++) {
+                out.writeInt(result.value(round, field));
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes a replay written by {@link #encode}
+     *
+     * @param data the replay
+     * @return the decoded replay
+     * @throws IllegalArgumentException if the data is not a replay of a known format
+     */
+    public static BattleReplay decode(byte[] data) {
+        Decoder in = new Decoder(data);
+        int version = in.readByte();
+        if (version != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unknown replay format " + version);
+        }
+
+        long seed = in.readLong();
+        String usernameA = in.readString();
+        String usernameB = in.readString();
+        int eloA = in.readInt();
+        int eloB = in.readInt();
+
+        int deckSizeA = in.readCount(data.length);
+        int deckSizeB = in.readCount(data.length);
+        Card[] cards = new Card[deckSizeA + deckSizeB];
+        for (int i = 0; i < cards.length; i++) {
+            String cardId = in.readString();
+            String name = in.readString();
+            int damage = in.readInt();
+            CardType type = in.readOptional(CardType.values());
+            Elements element = in.readOptional(Elements.values());
+            cards[i] = new Card(cardId, name, damage, type, element, true, 0, 0);
+        }
+
+        int rounds = in.readCount(BattleEngine.MAX_ROUNDS);
+        int remainingCardsA = in.readInt();
+        int remainingCardsB = in.readInt();
+        int[] roundData = new int[rounds * BattleResult.ROUND_STRIDE];
+        for (int i = 0; i < roundData.length; i++) {
+            roundData[i] = in.readInt();
+        }
+        for (int offset = 0; offset < roundData.length; offset += BattleResult.ROUND_STRIDE) {
+            if (roundData[offset] < 0 || roundData[offset] >= cards.length
+                    || roundData[offset + 1] < 0 || roundData[offset + 1] >= cards.length) {
+                throw new IllegalArgumentException("Replay refers to an unknown card");
+            }
+        }
+
+        return new BattleReplay(seed, usernameA, usernameB, eloA, eloB,
+                new BattleResult(cards, deckSizeA, rounds, roundData, remainingCardsA, remainingCardsB));
+    }
+
+    public long getSeed() {
+        return this.seed;
+    }
+
+    public String getUsernameA() {
+        return this.usernameA;
+    }
+
+    public String getUsernameB() {
+        return this.usernameB;
+    }
+
+    public int getEloA() {
+        return this.eloA;
+    }
+
+    public int getEloB() {
+        return this.eloB;
+    }
+
+    public BattleResult getResult() {
+        return this.result;
+    }
+
+    /**
+     * Renders the text log of the battle
+     *
+     * @param sink receives the lines in order
+     */
+    public void forEachLogLine(Consumer<String> sink) {
+        sink.accept("User A is : " + this.usernameA);
+        sink.accept("User B is : " + this.usernameB);
+        for (int round = 1; round <= this.result.getRounds(); round++) {
+            this.result.forEachLogLine(round, sink);
+        }
+
+        sink.accept("### Rounds complete ###");
+        switch (this.result.getStatusA()) {
+            case WIN -> sink.accept("User A (" + this.usernameA + ") wins!");
+            case LOSS -> sink.accept("User B (" + this.usernameB + ") wins!");
+            case TIE -> sink.accept("Battle is a draw!");
+        }
+    }
+
+    /**
+     * Appends to a growing byte array; ints are written in as few bytes as possible,
+     * small values, positive or negative, take one byte
+     */
+    private static final class Encoder {
+        private byte[] buffer;
+        private int length = 0;
+
+        Encoder(int capacity) {
+            this.buffer = new byte[capacity];
+        }
+
+        void writeByte(int value) {
+            if (this.length == this.buffer.length) {
+                this.buffer = Arrays.copyOf(this.buffer, this.buffer.length * 2);
+            }
+            this.buffer[this.length++] = (byte) value;
+        }
+
+        void writeInt(int value) {
+            int zigzag = (value << 1) ^ (value >> 31);
+            while ((zigzag & ~0x7F) != 0) {
+                writeByte((zigzag & 0x7F) | 0x80);
+                zigzag >>>= 7;
+            }
+            writeByte(zigzag);
+        }
+
+        void writeLong(long value) {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                writeByte((int) (value >>> shift));
+            }
+        }
+
+        void writeString(String value) {
+            byte[] bytes = (value != null ? value : "").getBytes(StandardCharsets.UTF_8);
+            writeInt(bytes.length);
+            for (byte b : bytes) {
+                writeByte(b);
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(this.buffer, this.length);
+        }
+    }
+
+    /**
+     * Reads what the {@link Encoder} wrote; running past the end or out of range values fail the decoding
+     */
+    private static final class Decoder {
+        private final byte[] data;
+        private int position = 0;
+
+        Decoder(byte[] data) {
+            this.data = data;
+        }
+
+        int readByte() {
+            if (this.position >= this.data.length) {
+                throw new IllegalArgumentException("Replay is damaged");
+            }
+            return this.data[this.position++] & 0xFF;
+        }
+
+        int readInt() {
+            int zigzag = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = readByte();
+                zigzag |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return (zigzag >>> 1) ^ -(zigzag & 1);
+                }
+            }
+            throw new IllegalArgumentException("Replay is damaged");
+        }
+
+        long readLong() {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | readByte();
+            }
+            return value;
+        }
+
+        String readString() {
+            int length = readCount(this.data.length - this.position);
+            String value = new String(this.data, this.position, length, StandardCharsets.UTF_8);
+            this.position += length;
+            return value;
+        }
+
+        /**
+         * Reads a count and checks it against an upper bound, so damaged data cannot cause huge allocations
+         */
+        int readCount(int max) {
+            int count = readInt();
+            if (count < 0 || count > max) {
+                throw new IllegalArgumentException("Replay is damaged");
+            }
+            return count;
+        }
+
+        <T> T readOptional(T[] values) {
+            int value = readByte();
+            if (value > values.length) {
+                throw new IllegalArgumentException("Replay is damaged");
+            }
+            return value > 0 ? values[value - 1] : null;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package at.fhtw.mctg.battle;
+
+import at.fhtw.mctg.model.BattleStatus;
+import at.fhtw.mctg.model.Card;
+
+import java.util.function.Consumer;
+
+/**
+ * Outcome of a battle run by the {@link BattleEngine}.
+ * <p>
+ * Every round is kept as a fixed number of ints: the two drawn cards, their damage when drawn,
+ * the mask of {@link BattleEvent}s and the damage compared at the end of the round.
+ * The text log is only rendered on request with {@link #forEachLogLine(int, Consumer)}.
+ */
+public class BattleResult {
+    static final int ROUND_STRIDE = 7;
+
+    private final Card[] cards;
+    private final int deckSizeA;
+    private final int rounds;
+    private final int[] roundData;
+    private final int remainingCardsA;
+    private final int remainingCardsB;
+
+    BattleResult(Card[] cards, int deckSizeA, int rounds, int[] roundData, int remainingCardsA, int remainingCardsB) {
+        this.cards = cards;
+        this.deckSizeA = deckSizeA;
+        this.rounds = rounds;
+        this.roundData = roundData;
+        this.remainingCardsA = remainingCardsA;
+        this.remainingCardsB = remainingCardsB;
+    }
+
+    /**
+     * @return number of rounds played
+     */
+    public int getRounds() {
+        return this.rounds;
+    }
+
+    /**
+     * @return WIN if user B ran out of cards, LOSS if user A did, TIE otherwise
+     */
+    public BattleStatus getStatusA() {
+        if (this.remainingCardsB == 0) {
+            return BattleStatus.WIN;
+        }
+        if (this.remainingCardsA == 0) {
+            return BattleStatus.LOSS;
+        }
+        return BattleStatus.TIE;
+    }
+
+    /**
+     * @return the result from the point of view of user B
+     */
+    public BattleStatus getStatusB() {
+        return switch (getStatusA()) {
+            case WIN -> BattleStatus.LOSS;
+            case LOSS -> BattleStatus.WIN;
+            case TIE -> BattleStatus.TIE;
+        };
+    }
+
+    /**
+     * @param round the round, starting at 1
+     * @return the card user A played
+     */
+    public Card getCardA(int round) {
+        return this.cards[value(round, 0)];
+    }
+
+    /**
+     * @param round the round, starting at 1
+     * @return the card user B played
+     */
+    public Card getCardB(int round) {
+        return this.cards[value(round, 1)];
+    }
+
+    /**
+     * @param round the round, starting at 1
+     * @return mask of the {@link BattleEvent}s of the round
+     */
+    public int getEvents(int round) {
+        return value(round, 4);
+    }
+
+    /**
+     * @param round the round, starting at 1
+     * @return damage of user A's card after all rules were applied
+     */
+    public int getDamageA(int round) {
+        return value(round, 5);
+    }
+
+    /**
+     * @param round the round, starting at 1
+     * @return damage of user B's card after all rules were applied
+     */
+    public int getDamageB(int round) {
+        return value(round, 6);
+    }
+
+    /**
+     * Renders the log lines of one round
+     *
+     * @param round the round, starting at 1
+     * @param sink  receives the lines in order
+     */
+    public void forEachLogLine(int round, Consumer<String> sink) {
+        int damageA = getDamageA(round);
+        int damageB = getDamageB(round);
+        int events = getEvents(round);
+
+        sink.accept("Starting round " + round);
+        sink.accept("Card of User A: " + getCardA(round).getName() + " with damage " + value(round, 2));
+        sink.accept("Card of User B: " + getCardB(round).getName() + " with damage " + value(round, 3));
+
+        for (BattleEvent event : BattleEvent.all()) {
+            if (event.isIn(events)) {
+                sink.accept(event.getLogText());
+            }
+        }
+
+        sink.accept("Damage is " + damageA + " (A) vs " + damageB + "(B)");
+        if (damageA > damageB) {
+            sink.accept("User A wins round " + round);
+        } else if (damageA < damageB) {
+            sink.accept("User B wins round " + round);
+        } else {
+            sink.accept("Round " + round + " is a tie");
+        }
+    }
+
+    /**
+     * @return all cards of the battle, user A's deck first
+     */
+    Card[] getCards() {
+        return this.cards;
+    }
+
+    int getDeckSizeA() {
+        return this.deckSizeA;
+    }
+
+    int getRemainingCardsA() {
+        return this.remainingCardsA;
+    }
+
+    int getRemainingCardsB() {
+        return this.remainingCardsB;
+    }
+
+    /**
+     * @param round the round, starting at 1
+     * @param field one of the {@link #ROUND_STRIDE} values of a round
+     * @return the raw value
+     */
+    int value(int round, int field) {
+        if (round < 1 || round > this.rounds) {
+            throw new IndexOutOfBoundsException("Round " + round + " of " + this.rounds);
+        }
+        return this.roundData[(round - 1) * ROUND_STRIDE + field];
+    }
+}
@@ -0,0 +1,363 @@
+package at.fhtw.mctg.battle;
+
+import at.fhtw.mctg.model.Stats;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory copy of the scoreboard, ordered by ELO (highest first) and then by user id.
+ * <p>
+ * The users are kept in a treap whose nodes know the size of their subtree, so the top N users,
+ * a page at any offset and the rank of a user are found in O(log n) (plus the length of the page)
+ * instead of sorting the whole user table.
+ * <p>
+ * It is loaded from the database on first use and then kept up to date with the stats of every finished battle.
+ * Changes that cannot be applied in place, such as a renamed user, drop it until it is loaded again.
+ */
+public class Leaderboard {
+
+    /**
+     * The leaderboard shared by the controllers and the battle threads
+     */
+    public static final Leaderboard INSTANCE = new Leaderboard();
+
+    private static final class Node {
+        final Stats stats;
+        final int priority = ThreadLocalRandom.current().nextInt();
+        Node left;
+        Node right;
+        int size = 1;
+
+        Node(Stats stats) {
+            this.stats = stats;
+        }
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // guarded by the lock
+    private Node root;
+    private final Map<Integer, Stats> byUserId = new HashMap<>();
+    private final Map<String, Stats> byUsername = new HashMap<>();
+    private boolean loaded = false;
+    // counts every change, so a load that raced with one can be rejected
+    private long generation = 0;
+
+    /**
+     * @return true if the leaderboard can answer queries
+     */
+    public boolean isLoaded() {
+        this.lock.readLock().lock();
+        try {
+            return this.loaded;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * To be read before the stats for {@link #load} are selected
+     *
+     * @return the current generation
+     */
+    public long getGeneration() {
+        this.lock.readLock().lock();
+        try {
+            return this.generation;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the content with the stats of all users
+     *
+     * @param stats      the stats of every user
+     * @param generation the value of {@link #getGeneration()} before the stats were selected
+     * @return false if something changed since then, the stats may be outdated and were not loaded
+     */
+    public boolean load(Collection<Stats> stats, long generation) {
+        this.lock.writeLock().lock();
+        try {
+            if (generation != this.generation) {
+                return false;
+            }
+
+            this.root = null;
+            this.byUserId.clear();
+            this.byUsername.clear();
+            for (Stats userStats : stats) {
+                put(userStats);
+            }
+            this.loaded = true;
+            return true;
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Applies the current stats of a user, usually right after a battle has been committed
+     * <p>
+     * The number of battles played only grows, so stats with fewer battles than the ones held
+     * were overtaken by a later battle and are ignored.
+     *
+     * @param stats the stats read in the transaction that changed them
+     */
+    public void update(Stats stats) {
+        this.lock.writeLock().lock();
+        try {
+            this.generation++;
+            if (!this.loaded) {
+                return;
+            }
+
+            Stats current = this.byUserId.get(stats.getUserId());
+            if (current != null) {
+                if (played(stats) < played(current)) {
+                    return;
+                }
+                remove(current);
+            }
+            put(stats);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drops the content; the next query has to {@link #load} it again
+     */
+    public void invalidate() {
+        this.lock.writeLock().lock();
+        try {
+            this.generation++;
+            this.loaded = false;
+            this.root = null;
+            this.byUserId.clear();
+            this.byUsername.clear();
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of users
+     */
+    public int size() {
+        this.lock.readLock().lock();
+        try {
+            return size(this.root);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param count maximum number of users
+     * @return the users with the highest ELO, highest first, null if the leaderboard is not loaded
+     */
+    public List<Stats> top(int count) {
+        return page(0, count);
+    }
+
+    /**
+     * @param offset number of users to skip, from the top
+     * @param limit  maximum number of users
+     * @return the users from the offset on, highest ELO first, null if the leaderboard is not loaded
+     */
+    public List<Stats> page(int offset, int limit) {
+        this.lock.readLock().lock();
+        try {
+            if (!this.loaded) {
+                return null;
+            }
+            List<Stats> page = new ArrayList<>(Math.max(0, Math.min(limit, size(this.root) - offset)));
+            collect(this.root, Math.max(0, offset), page, limit);
+            return page;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param username the user
+     * @return the 1-based position of the user, 0 if the user is unknown or the leaderboard is not loaded
+     */
+    public int rankOf(String username) {
+        this.lock.readLock().lock();
+        try {
+            Stats stats = this.byUsername.get(username);
+            return stats != null ? rank(stats) + 1 : 0;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param username the user
+     * @return the stats of the user, null if the user is unknown or the leaderboard is not loaded
+     */
+    public Stats get(String username) {
+        this.lock.readLock().lock();
+        try {
+            return this.byUsername.get(username);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    private static int played(Stats stats) {
+        return stats.getWins() + stats.getLosses() + stats.getTies();
+    }
+
+    private static int size(Node node) {
+        return node != null ? node.size : 0;
+    }
+
+    /**
+     * Orders by ELO, highest first, then by user id
+     */
+    private static int compare(Stats a, Stats b) {
+        int byElo = Integer.compare(b.getElo(), a.getElo());
+        return byElo != 0 ? byElo : Integer.compare(a.getUserId(), b.getUserId());
+    }
+
+    private void put(Stats stats) {
+        this.root = insert(this.root, new Node(stats));
+        this.byUserId.put(stats.getUserId(), stats);
+        this.byUsername.put(stats.getUsername(), stats);
+    }
+
+    private void remove(Stats stats) {
+        this.root = delete(this.root, stats);
+        this.byUserId.remove(stats.getUserId());
+        this.byUsername.remove(stats.getUsername());
+    }
+
+    private static Node insert(Node node, Node inserted) {
+        if (node == null) {
+            return inserted;
+        }
+        if (compare(inserted.stats, node.stats) < 0) {
+            node.left = insert(node.left, inserted);
+            if (node.left.priority > node.priority) {
+                node = rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, inserted);
+            if (node.right.priority > node.priority) {
+                node = rotateLeft(node);
+            }
+        }
+        node.size = size(node.left) + size(node.right) + 1;
+        return node;
+    }
+
+    private static Node delete(Node node, Stats stats) {
+        if (node == null) {
+            return null;
+        }
+        int order = compare(stats, node.stats);
+        if (order < 0) {
+            node.left = delete(node.left, stats);
+        } else if (order > 0) {
+            node.right = delete(node.right, stats);
+        } else {
+            return merge(node.left, node.right);
+        }
+        node.size = size(node.left) + size(node.right) + 1;
+        return node;
+    }
+
+    /**
+     * Joins two treaps where every node of the left one comes before every node of the right one
+     */
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.size = size(left.left) + size(left.right) + 1;
+            return left;
+        }
+        right.left = merge(left, right.left);
+        right.size = size(right.left) + size(right.right) + 1;
+        return right;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node left = node.left;
+        node.left = left.right;
+        left.right = node;
+        node.size = size(node.left) + size(node.right) + 1;
+        left.size = size(left.left) + size(left.right) + 1;
+        return left;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node right = node.right;
+        node.right = right.left;
+        right.left = node;
+        node.size = size(node.left) + size(node.right) + 1;
+        right.size = size(right.left) + size(right.right) + 1;
+        return right;
+    }
+
+    /**
+     * @return the number of users ordered before the given stats
+     */
+    private int rank(Stats stats) {
+        int rank = 0;
+        Node node = this.root;
+        while (node != null) {
+            int order = compare(stats, node.stats);
+            if (order <= 0) {
+                if (order == 0) {
+                    return rank + size(node.left);
+                }
+                node = node.left;
+            } else {
+                rank += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Adds the nodes of a subtree in order, skipping the first {@code skip} of them without visiting them
+     *
+     * @return how many of the nodes to skip are left
+     */
+    private static int collect(Node node, int skip, List<Stats> page, int limit) {
+        if (node == null || page.size() >= limit) {
+            return skip;
+        }
+        if (skip >= node.size) {
+            return skip - node.size;
+        }
+
+        skip = collect(node.left, skip, page, limit);
+        if (page.size() >= limit) {
+            return skip;
+        }
+        if (skip > 0) {
+            skip--;
+        } else {
+            page.add(node.stats);
+        }
+        return collect(node.right, skip, page, limit);
+    }
+}
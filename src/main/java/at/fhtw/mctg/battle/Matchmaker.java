@@ -0,0 +1,178 @@
+package at.fhtw.mctg.battle;
+
+import at.fhtw.mctg.model.Battle;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * In-process queue of players waiting for an opponent.
+ * <p>
+ * Pairing happens under a lock, so a waiting player is matched exactly once.
+ * The battle is only created (through the {@link BattleFactory}) once two players are paired;
+ * both players' tickets are then completed with it.
+ * With an ELO range set, only players whose ELO differs by at most that range are paired.
+ */
+public class Matchmaker {
+
+    /**
+     * Creates and starts the battle for a pair of players
+     */
+    @FunctionalInterface
+    public interface BattleFactory {
+        /**
+         * @param usernameA the player who waited longer
+         * @param usernameB the player who completed the pair
+         * @return the new battle
+         */
+        Battle createBattle(String usernameA, String usernameB) throws Exception;
+    }
+
+    /**
+     * A player's place in the queue
+     */
+    public static class Ticket {
+        private final String username;
+        private final int elo;
+        private final CompletableFuture<Battle> battle = new CompletableFuture<>();
+
+        private Ticket(String username, int elo) {
+            this.username = username;
+            this.elo = elo;
+        }
+
+        public String getUsername() {
+            return this.username;
+        }
+
+        public int getElo() {
+            return this.elo;
+        }
+
+        /**
+         * Waits until the player has been paired
+         *
+         * @param timeoutMillis maximum time to wait
+         * @return the battle
+         * @throws TimeoutException      if no opponent was found in time
+         * @throws ExecutionException    if the battle could not be created
+         * @throws java.util.concurrent.CancellationException if the ticket was cancelled
+         */
+        public Battle await(long timeoutMillis) throws InterruptedException, ExecutionException, TimeoutException {
+            return this.battle.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+
+        public boolean isDone() {
+            return this.battle.isDone();
+        }
+    }
+
+    private final BattleFactory battleFactory;
+    private final int eloRange;
+
+    // oldest first, guarded by this
+    private final List<Ticket> waiting = new ArrayList<>();
+
+    /**
+     * @param battleFactory creates the battle for a pair
+     * @param eloRange      maximum ELO difference of a pair, 0 to pair any two players
+     */
+    public Matchmaker(BattleFactory battleFactory, int eloRange) {
+        this.battleFactory = battleFactory;
+        this.eloRange = Math.max(0, eloRange);
+    }
+
+    /**
+     * Pairs the player with the longest waiting suitable opponent or puts them in the queue.
+     * If an opponent is found the battle is created on the calling thread before this method returns.
+     *
+     * @param username the player
+     * @param elo      the player's ELO
+     * @return the player's ticket, null if the player is already waiting
+     */
+    public Ticket enqueue(String username, int elo) {
+        Ticket ticket = new Ticket(username, elo);
+        Ticket opponent;
+
+        synchronized (this) {
+            for (Ticket waitingTicket : this.waiting) {
+                if (waitingTicket.username.equals(username)) {
+                    return null;
+                }
+            }
+
+            opponent = removeOpponent(ticket);
+            if (opponent == null) {
+                this.waiting.add(ticket);
+                return ticket;
+            }
+        }
+
+        // paired; the database is only touched outside the lock
+        try {
+            Battle battle = this.battleFactory.createBattle(opponent.username, ticket.username);
+            opponent.battle.complete(battle);
+            ticket.battle.complete(battle);
+        } catch (Exception e) {
+            opponent.battle.completeExceptionally(e);
+            ticket.battle.completeExceptionally(e);
+        }
+        return ticket;
+    }
+
+    /**
+     * Removes a ticket from the queue
+     *
+     * @param ticket the ticket
+     * @return true if the ticket was still waiting, false if it has already been paired
+     */
+    public boolean cancel(Ticket ticket) {
+        synchronized (this) {
+            if (!this.waiting.remove(ticket)) {
+                return false;
+            }
+        }
+        ticket.battle.cancel(false);
+        return true;
+    }
+
+    /**
+     * Removes a player from the queue
+     *
+     * @param username the player
+     * @return true if the player was waiting
+     */
+    public boolean cancel(String username) {
+        Ticket ticket = null;
+        synchronized (this) {
+            for (Ticket waitingTicket : this.waiting) {
+                if (waitingTicket.username.equals(username)) {
+                    ticket = waitingTicket;
+                    break;
+                }
+            }
+        }
+        return ticket != null && cancel(ticket);
+    }
+
+    public synchronized int getWaitingCount() {
+        return this.waiting.size();
+    }
+
+    private Ticket removeOpponent(Ticket ticket) {
+        Iterator<Ticket> iterator = this.waiting.iterator();
+        while (iterator.hasNext()) {
+            Ticket candidate = iterator.next();
+            if (this.eloRange == 0 || Math.abs(candidate.elo - ticket.elo) <= this.eloRange) {
+                iterator.remove();
+                return candidate;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,176 @@
+package at.fhtw.mctg.battle;
+
+import at.fhtw.mctg.model.Card;
+import at.fhtw.mctg.model.CardType;
+import at.fhtw.mctg.model.Elements;
+
+/**
+ * Precomputed outcome of the species and element rules for every pair of cards.
+ * <p>
+ * A card is reduced to a kind code combining {@link Species}, {@link Elements} and {@link CardType}.
+ * The table holds one int per (kind of A, kind of B) pair: the {@link BattleEvent} mask in the low bits
+ * and the damage factor (0, 1 or 2) for each side above it. New rules only change {@link #resolve},
+ * which runs once per pair when the class is loaded.
+ */
+public final class RuleTable {
+    private static final int ELEMENTS = Elements.values().length;
+    private static final int TYPES = CardType.values().length;
+
+    /**
+     * Number of distinct kind codes
+     */
+    public static final int KINDS = Species.values().length * ELEMENTS * TYPES;
+
+    private static final int FACTOR_A_SHIFT = 16;
+    private static final int FACTOR_B_SHIFT = 18;
+    private static final int FACTOR_MASK = 0b11;
+    private static final int EVENT_MASK = (1 << FACTOR_A_SHIFT) - 1;
+
+    private static final int[] RULES = new int[KINDS * KINDS];
+
+    static {
+        for (int kindA = 0; kindA < KINDS; kindA++) {
+            for (int kindB = 0; kindB < KINDS; kindB++) {
+                RULES[kindA * KINDS + kindB] = resolve(kindA, kindB);
+            }
+        }
+    }
+
+    private RuleTable() {
+    }
+
+    /**
+     * @param card the card
+     * @return the kind code of the card
+     */
+    public static int kind(Card card) {
+        return kind(Species.of(card.getName()), card.getElement(), card.getType());
+    }
+
+    public static int kind(Species species, Elements element, CardType type) {
+        return (species.ordinal() * ELEMENTS + element.ordinal()) * TYPES + type.ordinal();
+    }
+
+    /**
+     * @param kindA kind of user A's card
+     * @param kindB kind of user B's card
+     * @return the packed rule for the pair, to be read with {@link #events}, {@link #factorA} and {@link #factorB}
+     */
+    public static int lookup(int kindA, int kindB) {
+        return RULES[kindA * KINDS + kindB];
+    }
+
+    public static int events(int rule) {
+        return rule & EVENT_MASK;
+    }
+
+    public static int factorA(int rule) {
+        return (rule >>> FACTOR_A_SHIFT) & FACTOR_MASK;
+    }
+
+    public static int factorB(int rule) {
+        return (rule >>> FACTOR_B_SHIFT) & FACTOR_MASK;
+    }
+
+    private static Species species(int kind) {
+        return Species.values()[kind / (ELEMENTS * TYPES)];
+    }
+
+    private static Elements element(int kind) {
+        return Elements.values()[(kind / TYPES) % ELEMENTS];
+    }
+
+    private static CardType type(int kind) {
+        return CardType.values()[kind % TYPES];
+    }
+
+    /**
+     * The rules for one pair of kinds. A card that is stopped by a special rule does no damage,
+     * the element advantage doubles the damage of the stronger card.
+     */
+    private static int resolve(int kindA, int kindB) {
+        Species speciesA = species(kindA);
+        Species speciesB = species(kindB);
+        Elements elementA = element(kindA);
+        Elements elementB = element(kindB);
+        CardType typeA = type(kindA);
+        CardType typeB = type(kindB);
+
+        int events = 0;
+        int factorA = 1;
+        int factorB = 1;
+
+        // Special rules
+        if (speciesA == Species.GOBLIN && speciesB == Species.DRAGON) {
+            events |= BattleEvent.GOBLIN_AFRAID.bit();
+            factorA = 0;
+        } else if (speciesB == Species.GOBLIN && speciesA == Species.DRAGON) {
+            events |= BattleEvent.GOBLIN_AFRAID.bit();
+            factorB = 0;
+        }
+
+        if (speciesA == Species.WIZARD && speciesB == Species.ORK) {
+            events |= BattleEvent.WIZARD_CONTROLS_ORK.bit();
+            factorB = 0;
+        } else if (speciesB == Species.WIZARD && speciesA == Species.ORK) {
+            events |= BattleEvent.WIZARD_CONTROLS_ORK.bit();
+            factorA = 0;
+        }
+
+        if (speciesA == Species.KNIGHT && typeB == CardType.SPELL && elementB == Elements.WATER) {
+            events |= BattleEvent.KNIGHT_DROWNS.bit();
+            factorA = 0;
+        } else if (speciesB == Species.KNIGHT && typeA == CardType.SPELL && elementA == Elements.WATER) {
+            events |= BattleEvent.KNIGHT_DROWNS.bit();
+            factorB = 0;
+        }
+
+        if (speciesA == Species.KRAKEN && typeB == CardType.SPELL) {
+            events |= BattleEvent.KRAKEN_IMMUNE.bit();
+            factorB = 0;
+        } else if (speciesB == Species.KRAKEN && typeA == CardType.SPELL) {
+            events |= BattleEvent.KRAKEN_IMMUNE.bit();
+            factorA = 0;
+        }
+
+        if (speciesA == Species.FIRE_ELF && speciesB == Species.DRAGON) {
+            events |= BattleEvent.FIRE_ELF_EVADES.bit();
+            factorB = 0;
+        } else if (speciesB == Species.FIRE_ELF && speciesA == Species.DRAGON) {
+            events |= BattleEvent.FIRE_ELF_EVADES.bit();
+            factorA = 0;
+        }
+
+        // Spell affects damage
+        if (typeA == CardType.SPELL || typeB == CardType.SPELL) {
+            events |= BattleEvent.SPELL.bit();
+
+            BattleEvent advantage = advantage(elementA, elementB);
+            if (advantage != null) {
+                events |= advantage.bit();
+                factorA *= 2;
+            } else if ((advantage = advantage(elementB, elementA)) != null) {
+                events |= advantage.bit();
+                factorB *= 2;
+            }
+        }
+
+        return events | factorA << FACTOR_A_SHIFT | factorB << FACTOR_B_SHIFT;
+    }
+
+    /**
+     * @return the event if the attacker's element beats the defender's, null otherwise
+     */
+    private static BattleEvent advantage(Elements attacker, Elements defender) {
+        if (attacker == Elements.WATER && defender == Elements.FIRE) {
+            return BattleEvent.WATER_OVER_FIRE;
+        }
+        if (attacker == Elements.FIRE && defender == Elements.NORMAL) {
+            return BattleEvent.FIRE_OVER_NORMAL;
+        }
+        if (attacker == Elements.NORMAL && defender == Elements.WATER) {
+            return BattleEvent.NORMAL_OVER_WATER;
+        }
+        return null;
+    }
+}
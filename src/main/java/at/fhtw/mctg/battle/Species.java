@@ -0,0 +1,43 @@
+package at.fhtw.mctg.battle;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Card species that have special rules, resolved once from the card name.
+ * Every other name is {@link #OTHER}.
+ */
+public enum Species {
+    OTHER(null),
+    GOBLIN("Goblin"),
+    DRAGON("Dragon"),
+    WIZARD("Wizard"),
+    ORK("Ork"),
+    KNIGHT("Knight"),
+    KRAKEN("Kraken"),
+    FIRE_ELF("FireElf");
+
+    private static final Map<String, Species> BY_NAME = new HashMap<>();
+
+    static {
+        for (Species species : values()) {
+            if (species.cardName != null) {
+                BY_NAME.put(species.cardName, species);
+            }
+        }
+    }
+
+    private final String cardName;
+
+    Species(String cardName) {
+        this.cardName = cardName;
+    }
+
+    /**
+     * @param cardName the name of a card
+     * @return the species with exactly this name, {@link #OTHER} if there is none
+     */
+    public static Species of(String cardName) {
+        return cardName == null ? OTHER : BY_NAME.getOrDefault(cardName, OTHER);
+    }
+}
@@ -4,17 +4,31 @@ import at.fhtw.httpserver.http.ContentType;
 import at.fhtw.httpserver.http.HttpStatus;
 import at.fhtw.httpserver.server.Request;
 import at.fhtw.httpserver.server.Response;
+import at.fhtw.httpserver.server.StreamingResponse;
+import at.fhtw.mctg.battle.BattleReplay;
+import at.fhtw.mctg.battle.Matchmaker;
 import at.fhtw.mctg.controller.Controller;
 import at.fhtw.mctg.controller.session.SessionController;
 import at.fhtw.mctg.dal.Repository.BattleRepository;
+import at.fhtw.mctg.dal.Repository.UserRepository;
 import at.fhtw.mctg.dal.UnitOfWork;
 import at.fhtw.mctg.model.Battle;
 import at.fhtw.mctg.model.BattleLog;
+import at.fhtw.mctg.model.User;
+import at.fhtw.mctg.threads.BattleExecutor;
 import at.fhtw.mctg.threads.BattleRunner;
 
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-
-import static java.lang.Thread.sleep;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * App controller for Battle Routes
@@ -22,76 +36,343 @@ import static java.lang.Thread.sleep;
 public class BattleController extends Controller {
 
     /**
-     * Method to initialize a battle on request
+     * Players waiting for an opponent, shared by all requests
+     */
+    private static final Matchmaker MATCHMAKER = new Matchmaker(
+            BattleController::startBattle,
+            Integer.getInteger("mctg.matchmaking.eloRange", 0)
+    );
+
+    /**
+     * How long a player waits for an opponent before giving up
+     */
+    private static final long MATCHMAKING_TIMEOUT_MILLIS = Long.getLong("mctg.matchmaking.timeoutMillis", 60000);
+
+    /**
+     * How long a request waits for a running battle before answering with its id
+     */
+    private static final long BATTLE_WAIT_TIMEOUT_MILLIS = Long.getLong("mctg.battle.waitTimeoutMillis", 30000);
+
+    /**
+     * Method to initialize a battle on request.
+     * Puts the user into the matchmaking queue and blocks until an opponent is found.
      *
      * @param request req by user
-     * @return the battle
+     * @return the battle, null if no opponent was found in time, the user left the queue or is already waiting
      */
     public Battle initBattle(Request request) {
+        Matchmaker.Ticket ticket;
         UnitOfWork unitOfWork = new UnitOfWork();
 
         try (unitOfWork) {
             String requestingUser = new SessionController().getUserByToken(request);
 
-            ArrayList<Battle> availableBattles = (ArrayList<Battle>) new BattleRepository(unitOfWork).getPendingBattles();
+            ArrayList<User> users = (ArrayList<User>) new UserRepository(unitOfWork).getUserByName(requestingUser);
+
+            unitOfWork.commitTransaction();
 
-            Battle battle;
+            if (users.isEmpty()) {
+                return null;
+            }
 
-            boolean startThread = false;
+            ticket = MATCHMAKER.enqueue(requestingUser, users.get(0).getElo());
+        } catch (Exception e) {
+            e.printStackTrace();
 
-            if (availableBattles.isEmpty()) {
-                // create new battle
-                battle = new BattleRepository(unitOfWork).createNewBattle(requestingUser);
-            } else {
-                battle = availableBattles.get(0);
+            unitOfWork.rollbackTransaction();
+            return null;
+        }
 
-                // join battle
-                new BattleRepository(unitOfWork).joinBattle(battle.getBattleId(), requestingUser);
+        if (ticket == null) {
+            // already waiting with another request
+            return null;
+        }
 
-                startThread = true;
+        try {
+            return ticket.await(MATCHMAKING_TIMEOUT_MILLIS);
+        } catch (TimeoutException e) {
+            if (MATCHMAKER.cancel(ticket)) {
+                return null;
+            }
+            // paired just now, the battle is being created
+            try {
+                return ticket.await(MATCHMAKING_TIMEOUT_MILLIS);
+            } catch (Exception ex) {
+                ex.printStackTrace();
+                return null;
             }
+        } catch (CancellationException e) {
+            return null;
+        } catch (InterruptedException e) {
+            MATCHMAKER.cancel(ticket);
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            e.getCause().printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Method to leave the matchmaking queue
+     *
+     * @param request req by user
+     * @return the Response for the user
+     */
+    public Response leaveQueue(Request request) {
+        String requestingUser = new SessionController().getUserByToken(request);
+
+        if (requestingUser != null && MATCHMAKER.cancel(requestingUser)) {
+            return new Response(
+                    HttpStatus.OK,
+                    ContentType.JSON,
+                    "{ \"message\" : \"Left the battle queue\" }"
+            );
+        }
+
+        return new Response(
+                HttpStatus.NOT_FOUND,
+                ContentType.JSON,
+                "{ \"message\" : \"Not waiting for a battle\" }"
+        );
+    }
+
+    /**
+     * Creates the battle for two paired users in one transaction and starts it
+     *
+     * @param usernameA the user who waited longer
+     * @param usernameB the user who completed the pair
+     * @return the battle
+     */
+    private static Battle startBattle(String usernameA, String usernameB) throws Exception {
+        Battle battle;
+        UnitOfWork unitOfWork = new UnitOfWork();
+
+        try (unitOfWork) {
+            battle = new BattleRepository(unitOfWork).createNewBattle(usernameA);
+            new BattleRepository(unitOfWork).joinBattle(battle.getBattleId(), usernameB);
 
             unitOfWork.commitTransaction();
+        } catch (Exception e) {
+            unitOfWork.rollbackTransaction();
+            throw e;
+        }
 
-            if (startThread) {
-                // Create new Battle Thread
-                Runnable task = new BattleRunner(battle);
-                Thread battleThread = new Thread(task);
+        // Start the Battle Thread
+        BattleExecutor.INSTANCE.submit(new BattleRunner(battle));
 
-                // Start the Battle Thread
-                battleThread.start();
+        return battle;
+    }
+
+    /**
+     * Method to wait until battle completes.
+     * Returns as soon as the battle thread has stored the result; no database connection is held while waiting.
+     *
+     * @param battle the battle to check
+     * @return true if the battle is complete, false if it is still running after the wait timeout
+     */
+    public boolean waitForBattle(Battle battle) {
+        try {
+            CompletableFuture<Void> finished = BattleExecutor.INSTANCE.getCompletion(battle.getBattleId());
+            if (finished != null) {
+                finished.get(BATTLE_WAIT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                return true;
             }
 
-            return battle;
+            // not running in this process (anymore), the database knows
+            return isBattleComplete(battle);
+        } catch (TimeoutException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
         } catch (Exception e) {
             e.printStackTrace();
+            return false;
+        }
+    }
 
-            unitOfWork.rollbackTransaction();
-            return null;
+    /**
+     * Method to get the result of a battle by id, waiting for it if it is still running
+     *
+     * @param request req by user, the battle id is the second part of the path
+     * @return the Response for the user
+     */
+    public Response getBattleResult(Request request) {
+        int battleId;
+        try {
+            battleId = Integer.parseInt(request.getPathParts().get(1));
+        } catch (NumberFormatException e) {
+            return new Response(
+                    HttpStatus.BAD_REQUEST,
+                    ContentType.JSON,
+                    "{ \"message\" : \"Invalid battle id\" }"
+            );
+        }
+
+        Battle battle = new Battle(battleId, null, null, 0, 0);
+        if (!waitForBattle(battle)) {
+            return battlePending(battle);
         }
+        return getLog(battle);
     }
 
+    /**
+     * Method to tell the user that a battle is still running
+     *
+     * @param battle the running battle
+     * @return the Response for the user, containing the battle id to ask again with
+     */
+    public Response battlePending(Battle battle) {
+        return new Response(
+                HttpStatus.ACCEPTED,
+                ContentType.JSON,
+                "{ \"message\" : \"Battle is still running\", \"battleId\" : " + battle.getBattleId() + " }"
+        );
+    }
 
     /**
-     * Method to wait until battle completes
+     * Method to check once if a battle is complete
      *
      * @param battle the battle to check
+     * @return true if the battle is complete
      */
-    public void waitForBattle(Battle battle) {
+    private boolean isBattleComplete(Battle battle) throws Exception {
         UnitOfWork unitOfWork = new UnitOfWork();
 
         try (unitOfWork) {
-            while (!new BattleRepository(unitOfWork).checkBattleComplete(battle.getBattleId())) {
-                sleep(1000);
-            }
+            boolean complete = new BattleRepository(unitOfWork).checkBattleComplete(battle.getBattleId());
 
             unitOfWork.commitTransaction();
 
-        } catch (Exception e) {
-            e.printStackTrace();
+            return complete;
+        }
+    }
 
+    /**
+     * Method to stream the log of a battle by id.
+     * Stored rows are sent as they are read from the database, so a long log never has to fit into memory.
+     * The rounds are rendered from the battle's replay, so a running battle is waited for first;
+     * if it is still running after the wait timeout the user gets 202 with the battle id to ask again with.
+     *
+     * @param request req by user, the battle id is the second part of the path
+     * @return the Response for the user
+     */
+    public Response streamLog(Request request) {
+        int battleId;
+        try {
+            battleId = Integer.parseInt(request.getPathParts().get(1));
+        } catch (NumberFormatException e) {
+            return new Response(
+                    HttpStatus.BAD_REQUEST,
+                    ContentType.JSON,
+                    "{ \"message\" : \"Invalid battle id\" }"
+            );
+        }
+
+        // the status line goes out before the first row, so a missing battle has to be caught here
+        UnitOfWork unitOfWork = new UnitOfWork();
+        try (unitOfWork) {
+            new BattleRepository(unitOfWork).getBattleLogId(battleId);
+
+            unitOfWork.commitTransaction();
+        } catch (Exception e) {
             unitOfWork.rollbackTransaction();
+            return new Response(
+                    HttpStatus.NOT_FOUND,
+                    ContentType.JSON,
+                    "{ \"message\" : \"Battle not found\" }"
+            );
+        }
+
+        // the rounds are rendered from the replay, which is stored when the battle is over;
+        // a battle still running after the wait is answered like a pending result, before any row is sent
+        CompletableFuture<Void> finished = BattleExecutor.INSTANCE.getCompletion(battleId);
+        if (finished != null) {
+            try {
+                finished.get(BATTLE_WAIT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                return battlePending(new Battle(battleId, null, null, 0, 0));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return battlePending(new Battle(battleId, null, null, 0, 0));
+            } catch (ExecutionException e) {
+                // the battle failed, stream what has been stored
+                e.printStackTrace();
+            }
         }
+
+        return new StreamingResponse(HttpStatus.OK, ContentType.PLAIN_TEXT, out -> {
+            Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+
+            int lastRowNr = writeLogRows(battleId, writer);
+            writer.flush();
+
+            UnitOfWork replayUnitOfWork = new UnitOfWork();
+            byte[] replay;
+            try (replayUnitOfWork) {
+                replay = new BattleRepository(replayUnitOfWork).getBattleReplay(battleId);
+
+                replayUnitOfWork.commitTransaction();
+            }
+            appendReplay(replay, lastRowNr, writer);
+            writer.flush();
+        });
+    }
+
+    /**
+     * Writes the log rows of a battle
+     *
+     * @param battleId the battle
+     * @param writer   receives the rows
+     * @return the last row written
+     */
+    private int writeLogRows(int battleId, Writer writer) throws Exception {
+        UnitOfWork unitOfWork = new UnitOfWork();
+
+        try (unitOfWork) {
+            int lastRowNr = new BattleRepository(unitOfWork).streamBattleLog(battleId, battleLog -> {
+                try {
+                    writer
+                            .append(String.valueOf(battleLog.getRowNr()))
+                            .append(": ")
+                            .append(battleLog.getLogRow())
+                            .append("\n");
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+
+            unitOfWork.commitTransaction();
+
+            return lastRowNr;
+        }
+    }
+
+    /**
+     * Renders the rounds of a battle as numbered log lines
+     *
+     * @param replay    the stored replay, null if the battle has none
+     * @param lastRowNr the number of the row before the first rendered line
+     * @param out       receives the lines
+     */
+    private static void appendReplay(byte[] replay, int lastRowNr, Appendable out) {
+        if (replay == null) {
+            return;
+        }
+
+        int[] rowNr = {lastRowNr};
+        BattleReplay.decode(replay).forEachLogLine(line -> {
+            try {
+                out
+                        .append(String.valueOf(++rowNr[0]))
+                        .append(": ")
+                        .append(line)
+                        .append("\n");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
     }
 
     /**
@@ -104,10 +385,12 @@ public class BattleController extends Controller {
 
         try (unitOfWork) {
             ArrayList<BattleLog> bl = (ArrayList<BattleLog>) new BattleRepository(unitOfWork).getBattleLog(battle.getBattleId());
+            byte[] replay = new BattleRepository(unitOfWork).getBattleReplay(battle.getBattleId());
 
             unitOfWork.commitTransaction();
 
             StringBuilder log = new StringBuilder();
+            int lastRowNr = 0;
 
             for (BattleLog battleLog : bl) {
                 log
@@ -115,7 +398,9 @@ public class BattleController extends Controller {
                         .append(": ")
                         .append(battleLog.getLogRow())
                         .append("\n");
+                lastRowNr = battleLog.getRowNr();
             }
+            appendReplay(replay, lastRowNr, log);
 
             return new Response(
                     HttpStatus.OK,
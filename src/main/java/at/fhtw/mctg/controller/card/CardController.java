@@ -6,16 +6,20 @@ import at.fhtw.httpserver.server.Request;
 import at.fhtw.httpserver.server.Response;
 import at.fhtw.mctg.controller.Controller;
 import at.fhtw.mctg.controller.session.SessionController;
+import at.fhtw.mctg.dal.Repository.CardCache;
 import at.fhtw.mctg.dal.Repository.CardRepository;
-import at.fhtw.mctg.dal.Repository.UserRepository;
+import at.fhtw.mctg.dal.Repository.PackageRepository;
 import at.fhtw.mctg.dal.UnitOfWork;
 import at.fhtw.mctg.model.Card;
-import at.fhtw.mctg.model.CardType;
-import at.fhtw.mctg.model.Elements;
-import at.fhtw.mctg.model.User;
+import at.fhtw.mctg.model.Principal;
+import at.fhtw.mctg.model.Role;
+import at.fhtw.mctg.utils.PackageParser;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * App controller for Card Routes
@@ -35,41 +39,25 @@ public class CardController extends Controller {
         try (unitOfWork) {
             Card[] requestedCards = this.getObjectMapper().readValue(request.getBody(), Card[].class);
 
-            // Check if ids are unique
+            // Set pack id, type and element
             for (Card requestedCard : requestedCards) {
-                if (!new CardRepository(unitOfWork).getCardById(requestedCard.getCardId()).isEmpty()) {
-                    unitOfWork.rollbackTransaction();
-                    return new Response(
-                            HttpStatus.CONFLICT,
-                            ContentType.JSON,
-                            "{ \"message\" : \"At least one card in the packages already exists\" }"
-                    );
-                }
+                requestedCard.setPackageId(packId);
+                PackageParser.classify(requestedCard);
             }
 
-            // Generate objects
-            for (Card requestedCard : requestedCards) {
-                // set pack id
-                requestedCard.setPackageId(packId);
+            // Save all cards at once, an existing id is reported as a conflict
+            int created = new CardRepository(unitOfWork).createCards(Arrays.asList(requestedCards));
+            if (created != requestedCards.length) {
+                unitOfWork.rollbackTransaction();
 
-                // check if card is spell or monster
-                if (requestedCard.getName().contains("Spell")) {
-                    requestedCard.setType(CardType.SPELL);
-                } else {
-                    requestedCard.setType(CardType.MONSTER);
-                }
-
-                // check element of card
-                if (requestedCard.getName().contains("Water")) {
-                    requestedCard.setElement(Elements.WATER);
-                } else if (requestedCard.getName().contains("Fire")) {
-                    requestedCard.setElement(Elements.FIRE);
-                } else {
-                    requestedCard.setElement(Elements.NORMAL);
-                }
-
-                // save object to db
-                new CardRepository(unitOfWork).createCard(requestedCard);
+                // the pack was created before, it must not stay for sale without cards
+                new PackageRepository(unitOfWork).deletePackage(packId);
+                unitOfWork.commitTransaction();
+                return new Response(
+                        HttpStatus.CONFLICT,
+                        ContentType.JSON,
+                        "{ \"message\" : \"At least one card in the packages already exists\" }"
+                );
             }
 
             unitOfWork.commitTransaction();
@@ -102,11 +90,9 @@ public class CardController extends Controller {
         UnitOfWork unitOfWork = new UnitOfWork();
 
         try (unitOfWork) {
-            String requestingUser = new SessionController().getUserByToken(request);
-
             // Check if requesting user exists
-            ArrayList<User> users = ((ArrayList<User>) new UserRepository(unitOfWork).getUserByName(requestingUser));
-            if (users.isEmpty()) {
+            Principal principal = new SessionController().authenticate(request, unitOfWork);
+            if (principal == null) {
                 return new Response(
                         HttpStatus.FORBIDDEN,
                         ContentType.JSON,
@@ -114,11 +100,8 @@ public class CardController extends Controller {
                 );
             }
 
-            // Get object of requesting user
-            User user = users.get(0);
-
             // Get cards by user id
-            ArrayList<Card> cards = (ArrayList<Card>) new CardRepository(unitOfWork).getCardsByUserId(user.getUserId());
+            ArrayList<Card> cards = (ArrayList<Card>) new CardRepository(unitOfWork).getCardsByUserId(principal.getUserId());
 
             // Check if there are more then 0 cards
             if (cards.isEmpty()) {
@@ -150,4 +133,47 @@ public class CardController extends Controller {
             );
         }
     }
+
+    /**
+     * Method to get the hit rate and size of the card cache, only for the admin
+     *
+     * @param request request by user
+     * @return the Response with the cache metrics
+     */
+    public Response getCacheMetrics(Request request) {
+        try {
+            Principal principal = new SessionController().authenticate(request);
+            if (principal == null || principal.getRole() != Role.ADMIN) {
+                return new Response(
+                        HttpStatus.FORBIDDEN,
+                        ContentType.JSON,
+                        "{ \"message\" : \"Provided user is not admin\" }"
+                );
+            }
+
+            CardCache cache = CardCache.INSTANCE;
+            Map<String, Object> metrics = new LinkedHashMap<>();
+            metrics.put("hits", cache.getHits());
+            metrics.put("misses", cache.getMisses());
+            metrics.put("hitRate", cache.getHitRate());
+            metrics.put("evictions", cache.getEvictions());
+            metrics.put("users", cache.size());
+            metrics.put("cards", cache.cardCount());
+
+            return new Response(
+                    HttpStatus.OK,
+                    ContentType.JSON,
+                    this.getObjectMapper().writeValueAsString(metrics)
+            );
+
+        } catch (Exception e) {
+            e.printStackTrace();
+
+            return new Response(
+                    HttpStatus.INTERNAL_SERVER_ERROR,
+                    ContentType.JSON,
+                    "{ \"message\" : \"Internal Server Error\" }"
+            );
+        }
+    }
 }
@@ -7,13 +7,15 @@ import at.fhtw.httpserver.server.Response;
 import at.fhtw.mctg.controller.Controller;
 import at.fhtw.mctg.controller.session.SessionController;
 import at.fhtw.mctg.dal.Repository.CardRepository;
-import at.fhtw.mctg.dal.Repository.UserRepository;
 import at.fhtw.mctg.dal.UnitOfWork;
 import at.fhtw.mctg.model.Card;
-import at.fhtw.mctg.model.User;
+import at.fhtw.mctg.model.Principal;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
 
 /**
  * App controller for Deck Routes
@@ -30,11 +32,9 @@ public class DeckController extends Controller {
         UnitOfWork unitOfWork = new UnitOfWork();
 
         try (unitOfWork) {
-            String requestingUser = new SessionController().getUserByToken(request);
-
             // check if requesting user exists
-            ArrayList<User> users = ((ArrayList<User>) new UserRepository(unitOfWork).getUserByName(requestingUser));
-            if (users.isEmpty()) {
+            Principal principal = new SessionController().authenticate(request, unitOfWork);
+            if (principal == null) {
                 return new Response(
                         HttpStatus.FORBIDDEN,
                         ContentType.JSON,
@@ -42,11 +42,8 @@ public class DeckController extends Controller {
                 );
             }
 
-            // get user object
-            User user = users.get(0);
-
             // get active cards
-            ArrayList<Card> cards = (ArrayList<Card>) new CardRepository(unitOfWork).getActiveCardsByUserId(user.getUserId());
+            ArrayList<Card> cards = (ArrayList<Card>) new CardRepository(unitOfWork).getActiveCardsByUserId(principal.getUserId());
 
             // check if there are more that 0 cards
             if (cards.isEmpty()) {
@@ -95,7 +92,8 @@ public class DeckController extends Controller {
     }
 
     /**
-     * Method to set an array of cards as active for a user
+     * Method to set an array of cards as active for a user.
+     * With the param {@code replace=true} an already chosen deck is swapped for the new one in the same transaction.
      *
      * @param request the users Request containing an array of cards
      * @return Confirmation message
@@ -104,24 +102,22 @@ public class DeckController extends Controller {
         UnitOfWork unitOfWork = new UnitOfWork();
 
         try (unitOfWork) {
-            String requestingUser = new SessionController().getUserByToken(request);
-
             // Get User
-            ArrayList<User> users = ((ArrayList<User>) new UserRepository(unitOfWork).getUserByName(requestingUser));
-            if (users.isEmpty()) {
+            Principal principal = new SessionController().authenticate(request, unitOfWork);
+            if (principal == null) {
                 return new Response(
                         HttpStatus.FORBIDDEN,
                         ContentType.JSON,
                         "{ \"message\" : \"Token Not Accepted\" }"
                 );
             }
-            User user = users.get(0);
 
             // Get Ids from request body
             String[] cardIdArray = new ObjectMapper().readValue(request.getBody(), String[].class);
 
-            // Check if request has 4 cards
-            if (cardIdArray.length != 4) {
+            // Check if request has 4 different cards
+            Set<String> cardIds = new HashSet<>(Arrays.asList(cardIdArray));
+            if (cardIdArray.length != 4 || cardIds.size() != 4) {
                 return new Response(
                         HttpStatus.BAD_REQUEST,
                         ContentType.JSON,
@@ -129,32 +125,22 @@ public class DeckController extends Controller {
                 );
             }
 
+            // Lock the requested cards of the user and the current deck
+            ArrayList<Card> lockedCards = (ArrayList<Card>) new CardRepository(unitOfWork).lockDeckCards(principal.getUserId(), cardIdArray);
+
             // Check if all requested cards belong to the user
-            for (String s : cardIdArray) {
-                ArrayList<Card> tempCardCheck = (ArrayList<Card>) (new CardRepository(unitOfWork).getCardById(s));
-
-                // Check if card exists
-                if (tempCardCheck.isEmpty()) {
-                    return new Response(
-                            HttpStatus.FORBIDDEN,
-                            ContentType.JSON,
-                            "{ \"message\" : \"At least one of the provided cards does not belong to the user or is not available. (LEER)\" }"
-                    );
-                }
-
-                // Check if card belongs to the user
-                if (tempCardCheck.get(0).getUserId() != user.getUserId()) {
-                    return new Response(
-                            HttpStatus.FORBIDDEN,
-                            ContentType.JSON,
-                            "{ \"message\" : \"At least one of the provided cards does not belong to the user or is not available.\" }"
-                    );
-                }
+            long ownedCards = lockedCards.stream().filter(card -> cardIds.contains(card.getCardId())).count();
+            if (ownedCards != cardIds.size()) {
+                return new Response(
+                        HttpStatus.FORBIDDEN,
+                        ContentType.JSON,
+                        "{ \"message\" : \"At least one of the provided cards does not belong to the user or is not available.\" }"
+                );
             }
 
-            // Check if user has no other cards already active
-            ArrayList<Card> currActiveCards = (ArrayList<Card>) new CardRepository(unitOfWork).getActiveCardsByUserId(user.getUserId());
-            if (!currActiveCards.isEmpty()) {
+            // Check if user has no other cards already active, unless the deck is to be replaced
+            boolean deckChosen = lockedCards.stream().anyMatch(Card::isActive);
+            if (deckChosen && !isReplace(request.getParams())) {
                 return new Response(
                         HttpStatus.FORBIDDEN,
                         ContentType.JSON,
@@ -162,10 +148,8 @@ public class DeckController extends Controller {
                 );
             }
 
-            // Set requested cards as active
-            for (String s : cardIdArray) {
-                new CardRepository(unitOfWork).setCardAsActive(s);
-            }
+            // Set requested cards as active and the previous deck as inactive
+            new CardRepository(unitOfWork).replaceDeck(principal.getUserId(), cardIdArray);
 
             unitOfWork.commitTransaction();
 
@@ -186,4 +170,16 @@ public class DeckController extends Controller {
             );
         }
     }
+
+    private static boolean isReplace(String params) {
+        if (params == null) {
+            return false;
+        }
+        for (String param : params.split("&")) {
+            if (param.equals("replace=true")) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
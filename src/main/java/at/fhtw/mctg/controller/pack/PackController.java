@@ -1,15 +1,51 @@
 package at.fhtw.mctg.controller.pack;
 
+import at.fhtw.httpserver.http.ContentType;
+import at.fhtw.httpserver.http.HttpStatus;
 import at.fhtw.httpserver.server.Request;
+import at.fhtw.httpserver.server.Response;
 import at.fhtw.mctg.controller.Controller;
+import at.fhtw.mctg.dal.Repository.CardRepository;
 import at.fhtw.mctg.dal.Repository.PackageRepository;
 import at.fhtw.mctg.dal.UnitOfWork;
+import at.fhtw.mctg.model.Card;
+import at.fhtw.mctg.utils.PackageParser;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * App controller for Pack Routes
  */
 public class PackController extends Controller {
 
+    /**
+     * Outcome of a bulk import
+     *
+     * @param packages number of packages in the import
+     * @param cards    number of cards in the import
+     * @param created  number of cards created; the import is rolled back unless this equals {@code cards}
+     * @param millis   time taken by the database work
+     */
+    public record ImportResult(int packages, int cards, int created, long millis) {
+
+        /**
+         * @return true if every card was created
+         */
+        public boolean isComplete() {
+            return this.created == this.cards;
+        }
+
+        /**
+         * @return cards imported per second
+         */
+        public long cardsPerSecond() {
+            return this.cards * 1000L / Math.max(1, this.millis);
+        }
+    }
+
     /**
      * Method to create a pack
      *
@@ -17,12 +53,12 @@ public class PackController extends Controller {
      * @return the pack id
      */
     public int createPack(Request request) {
-        UnitOfWork unitOfWork = new UnitOfWork();
-
         if (request.getBody() == null) {
             return -1;
         }
 
+        UnitOfWork unitOfWork = new UnitOfWork();
+
         try (unitOfWork) {
             int id = new PackageRepository(unitOfWork).createPackage();
 
@@ -37,4 +73,99 @@ public class PackController extends Controller {
             return -1;
         }
     }
+
+    /**
+     * Method to import many packages at once, as a JSON array of packages or as CSV ({@code Content-Type: text/csv}),
+     * see {@link PackageParser}
+     *
+     * @param request request from the admin
+     * @return the Response with the number of packages and cards and the throughput
+     */
+    public Response importPackages(Request request) {
+        List<List<Card>> packages;
+        try {
+            if (request.getBody() == null) {
+                throw new IllegalArgumentException("Invalid package file: no packages");
+            }
+            String contentType = request.getHeaderMap().getHeader("Content-Type");
+            packages = contentType != null && contentType.startsWith("text/csv")
+                    ? PackageParser.parseCsv(request.getBody())
+                    : PackageParser.parseJson(request.getBody());
+        } catch (IllegalArgumentException e) {
+            return new Response(
+                    HttpStatus.BAD_REQUEST,
+                    ContentType.JSON,
+                    "{ \"message\" : \"The provided packages are not valid\" }"
+            );
+        }
+
+        try {
+            ImportResult result = importPackages(packages);
+            if (!result.isComplete()) {
+                return new Response(
+                        HttpStatus.CONFLICT,
+                        ContentType.JSON,
+                        "{ \"message\" : \"At least one card in the packages already exists\" }"
+                );
+            }
+
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("message", "Packages and cards successfully created");
+            body.put("packages", result.packages());
+            body.put("cards", result.cards());
+            body.put("millis", result.millis());
+            body.put("cardsPerSecond", result.cardsPerSecond());
+            return new Response(
+                    HttpStatus.CREATED,
+                    ContentType.JSON,
+                    this.getObjectMapper().writeValueAsString(body)
+            );
+
+        } catch (Exception e) {
+            e.printStackTrace();
+
+            return new Response(
+                    HttpStatus.INTERNAL_SERVER_ERROR,
+                    ContentType.JSON,
+                    "{ \"message\" : \"Internal Server Error\" }"
+            );
+        }
+    }
+
+    /**
+     * Creates the packages and copies all their cards into the database in one transaction.
+     * If any card id exists already nothing is imported.
+     *
+     * @param packages the packages, type and element of the cards set
+     * @return the outcome
+     */
+    public static ImportResult importPackages(List<List<Card>> packages) throws Exception {
+        long start = System.nanoTime();
+        UnitOfWork unitOfWork = new UnitOfWork();
+
+        try (unitOfWork) {
+            List<Integer> packageIds = new PackageRepository(unitOfWork).createPackages(packages.size());
+
+            List<Card> cards = new ArrayList<>();
+            for (int i = 0; i < packages.size(); i++) {
+                for (Card card : packages.get(i)) {
+                    card.setPackageId(packageIds.get(i));
+                    cards.add(card);
+                }
+            }
+
+            int created = new CardRepository(unitOfWork).importCards(cards);
+            if (created == cards.size()) {
+                unitOfWork.commitTransaction();
+            } else {
+                unitOfWork.rollbackTransaction();
+            }
+
+            return new ImportResult(packages.size(), cards.size(), created, (System.nanoTime() - start) / 1_000_000);
+
+        } catch (Exception e) {
+            unitOfWork.rollbackTransaction();
+            throw e;
+        }
+    }
 }
@@ -4,60 +4,131 @@ import at.fhtw.httpserver.http.ContentType;
 import at.fhtw.httpserver.http.HttpStatus;
 import at.fhtw.httpserver.server.Request;
 import at.fhtw.httpserver.server.Response;
+import at.fhtw.mctg.battle.Leaderboard;
 import at.fhtw.mctg.controller.Controller;
 import at.fhtw.mctg.controller.session.SessionController;
 import at.fhtw.mctg.dal.Repository.UserRepository;
 import at.fhtw.mctg.dal.UnitOfWork;
+import at.fhtw.mctg.model.Principal;
 import at.fhtw.mctg.model.Stats;
-import at.fhtw.mctg.model.User;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * App controller for Scoreboard Routes
+ * <p>
+ * The scoreboard is served from the {@link Leaderboard}; the database is only queried to load it.
  */
 public class ScoreboardController extends Controller {
 
     /**
-     * Method to get the scoreboard
+     * Method to get the scoreboard, optionally a page of it with the {@code offset} and {@code limit} params
      *
      * @param request the users request
      * @return the response containing the scoreboard
      */
     public Response getScoreboard(Request request) {
-        UnitOfWork unitOfWork = new UnitOfWork();
+        int offset;
+        int limit;
+        try {
+            offset = intParam(request.getParams(), "offset", 0);
+            limit = intParam(request.getParams(), "limit", Integer.MAX_VALUE);
+        } catch (NumberFormatException e) {
+            return new Response(
+                    HttpStatus.BAD_REQUEST,
+                    ContentType.JSON,
+                    "{ \"message\" : \"Invalid offset or limit\" }"
+            );
+        }
 
-        try (unitOfWork) {
-            // get user data
-            String requestingUser = new SessionController().getUserByToken(request);
-            ArrayList<User> users = ((ArrayList<User>) new UserRepository(unitOfWork).getUserByName(requestingUser));
-            if (users.isEmpty()) {
+        try {
+            Principal principal = new SessionController().authenticate(request);
+            if (principal == null) {
                 return new Response(
                         HttpStatus.FORBIDDEN,
                         ContentType.JSON,
                         "{ \"message\" : \"Token Not Accepted\" }"
                 );
             }
-            User user = users.get(0);
-
-            // get scoreboard
-            ArrayList<Stats> scoreboard = ((ArrayList<Stats>) new UserRepository(unitOfWork).getOrderedStats());
 
-            unitOfWork.commitTransaction();
+            List<Stats> scoreboard = Leaderboard.INSTANCE.page(offset, limit);
+            if (scoreboard == null) {
+                List<Stats> allStats = loadLeaderboard();
+                scoreboard = allStats.subList(Math.min(offset, allStats.size()), (int) Math.min((long) offset + limit, allStats.size()));
+            }
 
-            ObjectMapper objectMapper = new ObjectMapper();
-            String sbJson = objectMapper.writeValueAsString(scoreboard);
+            String sbJson = this.getObjectMapper().writeValueAsString(scoreboard);
+            // the scoreboard only changes after battles, its compressed form is reused until then
             return new Response(
                     HttpStatus.OK,
                     ContentType.JSON,
                     sbJson
+            ).cacheCompressed();
+
+        } catch (Exception e) {
+            e.printStackTrace();
+
+            return new Response(
+                    HttpStatus.INTERNAL_SERVER_ERROR,
+                    ContentType.JSON,
+                    "{ \"message\" : \"Internal Server Error\" }"
+            );
+        }
+    }
+
+    /**
+     * Method to get the position of a user on the scoreboard
+     *
+     * @param request the users request
+     * @param username the user to look up
+     * @return the response containing the rank and the stats of the user
+     */
+    public Response getRank(Request request, String username) {
+        try {
+            Principal principal = new SessionController().authenticate(request);
+            if (principal == null) {
+                return new Response(
+                        HttpStatus.FORBIDDEN,
+                        ContentType.JSON,
+                        "{ \"message\" : \"Token Not Accepted\" }"
+                );
+            }
+
+            Stats stats = Leaderboard.INSTANCE.get(username);
+            int rank = Leaderboard.INSTANCE.rankOf(username);
+            // a miss is only an unknown user if the leaderboard was not dropped in the meantime
+            if (rank == 0 && !Leaderboard.INSTANCE.isLoaded()) {
+                List<Stats> allStats = loadLeaderboard();
+                stats = null;
+                for (int i = 0; i < allStats.size() && stats == null; i++) {
+                    if (allStats.get(i).getUsername().equals(username)) {
+                        stats = allStats.get(i);
+                        rank = i + 1;
+                    }
+                }
+            }
+
+            if (rank == 0) {
+                return new Response(
+                        HttpStatus.NOT_FOUND,
+                        ContentType.JSON,
+                        "{ \"message\" : \"User not found\" }"
+                );
+            }
+
+            ObjectNode rankJson = this.getObjectMapper().valueToTree(stats);
+            rankJson.put("rank", rank);
+            return new Response(
+                    HttpStatus.OK,
+                    ContentType.JSON,
+                    this.getObjectMapper().writeValueAsString(rankJson)
             );
 
         } catch (Exception e) {
             e.printStackTrace();
 
-            unitOfWork.rollbackTransaction();
             return new Response(
                     HttpStatus.INTERNAL_SERVER_ERROR,
                     ContentType.JSON,
@@ -65,4 +136,54 @@ public class ScoreboardController extends Controller {
             );
         }
     }
+
+    /**
+     * Selects the stats of all users and loads them into the {@link Leaderboard}
+     *
+     * @return the stats ordered by ELO
+     */
+    private List<Stats> loadLeaderboard() throws Exception {
+        UnitOfWork unitOfWork = new UnitOfWork();
+
+        try (unitOfWork) {
+            // changes committed from here on are seen by the query or make the load fail
+            long generation = Leaderboard.INSTANCE.getGeneration();
+            ArrayList<Stats> scoreboard = ((ArrayList<Stats>) new UserRepository(unitOfWork).getOrderedStats());
+
+            unitOfWork.commitTransaction();
+
+            // a failed load only means the next request tries again
+            Leaderboard.INSTANCE.load(scoreboard, generation);
+            return scoreboard;
+
+        } catch (Exception e) {
+            unitOfWork.rollbackTransaction();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads an int from the query params
+     *
+     * @param params the query params, may be null
+     * @param name the name of the param
+     * @param defaultValue returned if the param is missing
+     * @return the value
+     * @throws NumberFormatException if the value is not a non-negative int
+     */
+    private static int intParam(String params, String name, int defaultValue) {
+        if (params == null) {
+            return defaultValue;
+        }
+        for (String param : params.split("&")) {
+            if (param.startsWith(name + "=")) {
+                int value = Integer.parseInt(param.substring(name.length() + 1));
+                if (value < 0) {
+                    throw new NumberFormatException("Negative " + name);
+                }
+                return value;
+            }
+        }
+        return defaultValue;
+    }
 }
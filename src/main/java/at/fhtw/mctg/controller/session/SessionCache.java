@@ -0,0 +1,105 @@
+package at.fhtw.mctg.controller.session;
+
+import at.fhtw.mctg.model.Principal;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded cache from token to the {@link Principal} it was authenticated as.
+ * <p>
+ * A hit saves the user lookup every authenticated request starts with. Entries expire after a fixed time,
+ * the least recently used entry is evicted when the cache is full, and all entries of a user are removed
+ * when the user changes the profile.
+ */
+public class SessionCache {
+
+    /**
+     * The cache shared by all controllers
+     */
+    public static final SessionCache INSTANCE = new SessionCache(
+            Integer.getInteger("mctg.session.cacheSize", 10000),
+            Long.getLong("mctg.session.cacheTtlMillis", 300000L),
+            System::currentTimeMillis
+    );
+
+    private record Entry(Principal principal, long expiresAt) {
+    }
+
+    private final long ttlMillis;
+    private final LongSupplier clock;
+
+    // least recently used first, guarded by itself
+    private final Map<String, Entry> entries;
+
+    /**
+     * @param capacity  maximum number of cached tokens
+     * @param ttlMillis how long an entry is used after it was added
+     * @param clock     the current time in milliseconds
+     */
+    SessionCache(int capacity, long ttlMillis, LongSupplier clock) {
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * @param token the token
+     * @return the principal, null if the token is not cached or the entry has expired
+     */
+    public Principal get(String token) {
+        synchronized (this.entries) {
+            Entry entry = this.entries.get(token);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expiresAt() - this.clock.getAsLong() <= 0) {
+                this.entries.remove(token);
+                return null;
+            }
+            return entry.principal();
+        }
+    }
+
+    /**
+     * @param token     the token
+     * @param principal the user the token was authenticated as
+     */
+    public void put(String token, Principal principal) {
+        synchronized (this.entries) {
+            this.entries.put(token, new Entry(principal, this.clock.getAsLong() + this.ttlMillis));
+        }
+    }
+
+    /**
+     * Removes every token of a user
+     *
+     * @param username the user
+     */
+    public void invalidateUser(String username) {
+        synchronized (this.entries) {
+            Iterator<Entry> iterator = this.entries.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().principal().getUsername().equals(username)) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of cached tokens, including expired ones not removed yet
+     */
+    public int size() {
+        synchronized (this.entries) {
+            return this.entries.size();
+        }
+    }
+}
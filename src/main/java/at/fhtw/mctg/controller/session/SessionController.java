@@ -8,23 +8,38 @@ import at.fhtw.mctg.controller.Controller;
 import at.fhtw.mctg.dal.Repository.SessionRepository;
 import at.fhtw.mctg.dal.Repository.UserRepository;
 import at.fhtw.mctg.dal.UnitOfWork;
+import at.fhtw.mctg.model.Principal;
+import at.fhtw.mctg.model.Role;
 import at.fhtw.mctg.model.Session;
 import at.fhtw.mctg.model.Token;
 import at.fhtw.mctg.model.User;
+import at.fhtw.mctg.threads.PasswordHashExecutor;
 import at.fhtw.mctg.utils.JWTGenerator;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
-import static at.fhtw.mctg.utils.PasswordHash.verifyPassword;
 
 /**
  * App controller for Session Routes
  */
 public class SessionController extends Controller {
 
+    /**
+     * Issue and accept signed JWTs instead of the "{username}-mtcgToken" tokens of the specification,
+     * enabled with -Dmctg.auth.jwt=true
+     */
+    private static final boolean JWT_ENABLED = Boolean.getBoolean("mctg.auth.jwt");
+
+    /**
+     * Days a JWT is valid, the same as the expiry of its row in the token table
+     */
+    private static final long TOKEN_VALID_DAYS = 30;
+
     /**
      * Method to get username by token
      * Adjusted by lektors specification
@@ -33,23 +48,114 @@ public class SessionController extends Controller {
      * @return the username
      */
     public String getUserByToken(Request request) {
-        if (request.getHeaderMap().getHeader("Authorization") == null) {
+        String token = getToken(request);
+        if (token == null) {
             return null;
         }
 
-        String token = request.getHeaderMap().getHeader("Authorization").split(" ")[1];
-
-        // TODO: change after submission to use jwt token
-        if (1 == 1) {
+        if (!JWT_ENABLED) {
             String[] parts = token.split("-");
             return parts[0];
         }
 
-        if (JWTGenerator.validateJWT(token)) {
-            System.out.println(JWTGenerator.decodePayload(token).split(":")[1].split(",")[0]);
-            return JWTGenerator.decodePayload(token).split(":")[1].split(",")[0];
+        Principal principal = verifyJWT(token);
+        return principal != null ? principal.getUsername() : null;
+    }
+
+    /**
+     * Reads the user from a signed token, without touching the database
+     *
+     * @param token the token
+     * @return the user, null if the token is invalid, expired or lacks a claim
+     */
+    private static Principal verifyJWT(String token) {
+        Map<String, Object> claims = JWTGenerator.verify(token);
+        if (claims == null
+                || !(claims.get("uid") instanceof Long userId)
+                || !(claims.get("sub") instanceof String username)
+                || !(claims.get("role") instanceof String role)) {
+            return null;
+        }
+        try {
+            return new Principal(Math.toIntExact(userId), username, Role.valueOf(role));
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Method to get the user a request was made by
+     * The user is looked up with the given unit of work only if the token is not in the {@link SessionCache}
+     *
+     * @param request request containing auth cookie
+     * @param unitOfWork the unit of work of the request
+     * @return the user, null if there is no token or the user does not exist
+     */
+    public Principal authenticate(Request request, UnitOfWork unitOfWork) {
+        String token = getToken(request);
+        if (token == null) {
+            return null;
+        }
+        if (JWT_ENABLED) {
+            return verifyJWT(token);
+        }
+
+        Principal principal = SessionCache.INSTANCE.get(token);
+        if (principal != null) {
+            return principal;
+        }
+
+        String username = getUserByToken(request);
+        if (username == null) {
+            return null;
+        }
+        ArrayList<User> users = (ArrayList<User>) new UserRepository(unitOfWork).getUserByName(username);
+        if (users.isEmpty()) {
+            return null;
+        }
+
+        principal = Principal.of(users.get(0));
+        SessionCache.INSTANCE.put(token, principal);
+        return principal;
+    }
+
+    /**
+     * Method to get the user a request was made by, for requests that do not use the database otherwise
+     *
+     * @param request request containing auth cookie
+     * @return the user, null if there is no token or the user does not exist
+     * @throws Exception if the user could not be looked up
+     */
+    public Principal authenticate(Request request) throws Exception {
+        String token = getToken(request);
+        if (JWT_ENABLED && token != null) {
+            return verifyJWT(token);
+        }
+        Principal principal = token != null ? SessionCache.INSTANCE.get(token) : null;
+        if (principal != null || token == null) {
+            return principal;
+        }
+
+        UnitOfWork unitOfWork = new UnitOfWork();
+        try (unitOfWork) {
+            principal = authenticate(request, unitOfWork);
+
+            unitOfWork.commitTransaction();
+            return principal;
         }
-        return null;
+    }
+
+    /**
+     * @param request the users request
+     * @return the token from the Authorization header, null if there is none
+     */
+    private static String getToken(Request request) {
+        String authorization = request.getHeaderMap().getHeader("Authorization");
+        if (authorization == null) {
+            return null;
+        }
+        int space = authorization.indexOf(' ');
+        return space >= 0 ? authorization.substring(space + 1).trim() : null;
     }
 
     /**
@@ -60,39 +166,55 @@ public class SessionController extends Controller {
      * @return the response containing the tokens
      */
     public Response createSession(Request request) {
-        UnitOfWork unitOfWork = new UnitOfWork();
-
-        try (unitOfWork) {
+        User user;
+        try {
             Session input = this.getObjectMapper().readValue(request.getBody(), Session.class);
 
             // get user info
-            ArrayList<User> dbUsers = (ArrayList<User>) new UserRepository(unitOfWork).getUserByName(input.getUsername());
-            if (dbUsers.isEmpty()) {
+            user = getUser(input.getUsername());
+            if (user == null) {
                 return new Response(
                         HttpStatus.UNAUTHORIZED,
                         ContentType.JSON,
                         "{ \"message\" : \"User not found\" }"
                 );
             }
-            User user = dbUsers.get(0);
 
-            if (!verifyPassword(input.getPassword(), user.getPassword())) {
+            // checked without holding a connection, because the hashing may have to wait
+            if (!PasswordHashExecutor.INSTANCE.verify(input.getPassword(), user.getPassword())) {
                 return new Response(
                         HttpStatus.UNAUTHORIZED,
                         ContentType.JSON,
                         "{ \"message\" : \"Password doesn't match\" }"
                 );
             }
+        } catch (RejectedExecutionException e) {
+            return new Response(
+                    HttpStatus.SERVICE_UNAVAILABLE,
+                    ContentType.JSON,
+                    "{ \"message\" : \"Too many logins at the moment, try again later\" }"
+            );
+        } catch (Exception e) {
+            e.printStackTrace();
 
-            // TODO: Remove after intermediate submission
-            if (1 == 1) { // trick java compiler that code after this is not unreachable
-                return new Response(
-                        HttpStatus.OK,
-                        ContentType.JSON,
-                        user.getUsername() + "-mtcgToken"
-                );
-            }
+            return new Response(
+                    HttpStatus.INTERNAL_SERVER_ERROR,
+                    ContentType.JSON,
+                    "{ \"message\" : \"Internal Server Error\" }"
+            );
+        }
 
+        if (!JWT_ENABLED) {
+            return new Response(
+                    HttpStatus.OK,
+                    ContentType.JSON,
+                    user.getUsername() + "-mtcgToken"
+            );
+        }
+
+        UnitOfWork unitOfWork = new UnitOfWork();
+
+        try (unitOfWork) {
             // Check if there is a non expired token
             Collection<Token> tokens = new SessionRepository(unitOfWork).getTokenByUsername(user.getUsername());
 
@@ -116,9 +238,9 @@ public class SessionController extends Controller {
 
             // No token yet or expired
             // Create token
-            String header = "{\"alg\":\"HS256\",\"typ\":\"JWT\"}";
-            String payload = "{\"user\":" + user.getUsername() + ",\"role\":" + user.getUserId() + "}";
-            String jwtToken = JWTGenerator.createJWT(header, payload);
+            Principal principal = Principal.of(user);
+            long expiresAt = System.currentTimeMillis() / 1000 + TOKEN_VALID_DAYS * 24 * 60 * 60;
+            String jwtToken = JWTGenerator.createToken(principal.getUserId(), principal.getUsername(), principal.getRole().name(), expiresAt);
 
             // save token to db
             new SessionRepository(unitOfWork).createToken(user.getUserId(), jwtToken);
@@ -149,4 +271,21 @@ public class SessionController extends Controller {
         }
     }
 
+    /**
+     * @param username the username
+     * @return the user, null if there is none
+     */
+    private static User getUser(String username) throws Exception {
+        UnitOfWork unitOfWork = new UnitOfWork();
+
+        try (unitOfWork) {
+            ArrayList<User> dbUsers = (ArrayList<User>) new UserRepository(unitOfWork).getUserByName(username);
+
+            unitOfWork.commitTransaction();
+            return dbUsers.isEmpty() ? null : dbUsers.get(0);
+        } catch (Exception e) {
+            unitOfWork.rollbackTransaction();
+            throw e;
+        }
+    }
 }
@@ -8,11 +8,10 @@ import at.fhtw.mctg.controller.Controller;
 import at.fhtw.mctg.controller.session.SessionController;
 import at.fhtw.mctg.dal.Repository.UserRepository;
 import at.fhtw.mctg.dal.UnitOfWork;
+import at.fhtw.mctg.model.Principal;
 import at.fhtw.mctg.model.Stats;
-import at.fhtw.mctg.model.User;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
-import java.util.ArrayList;
 
 /**
  * App controller for Stat Routes
@@ -29,21 +28,18 @@ public class StatController extends Controller {
         UnitOfWork unitOfWork = new UnitOfWork();
 
         try (unitOfWork) {
-            String requestingUser = new SessionController().getUserByToken(request);
-
             // get user
-            ArrayList<User> users = ((ArrayList<User>) new UserRepository(unitOfWork).getUserByName(requestingUser));
-            if (users.isEmpty()) {
+            Principal principal = new SessionController().authenticate(request, unitOfWork);
+            if (principal == null) {
                 return new Response(
                         HttpStatus.FORBIDDEN,
                         ContentType.JSON,
                         "{ \"message\" : \"Token Not Accepted\" }"
                 );
             }
-            User user = users.get(0);
 
             // get stats
-            Stats stats = new UserRepository(unitOfWork).getUserStatsByName(requestingUser);
+            Stats stats = new UserRepository(unitOfWork).getUserStatsByName(principal.getUsername());
 
             unitOfWork.commitTransaction();
 
@@ -8,7 +8,6 @@ import at.fhtw.mctg.controller.Controller;
 import at.fhtw.mctg.controller.session.SessionController;
 import at.fhtw.mctg.dal.Repository.CardRepository;
 import at.fhtw.mctg.dal.Repository.TradeRepository;
-import at.fhtw.mctg.dal.Repository.UserRepository;
 import at.fhtw.mctg.dal.UnitOfWork;
 import at.fhtw.mctg.model.*;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -31,18 +30,15 @@ public class TradeController extends Controller {
         UnitOfWork unitOfWork = new UnitOfWork();
 
         try (unitOfWork) {
-            String requestingUser = new SessionController().getUserByToken(request);
-
             // get the user
-            ArrayList<User> users = ((ArrayList<User>) new UserRepository(unitOfWork).getUserByName(requestingUser));
-            if (users.isEmpty()) {
+            Principal principal = new SessionController().authenticate(request, unitOfWork);
+            if (principal == null) {
                 return new Response(
                         HttpStatus.FORBIDDEN,
                         ContentType.JSON,
                         "{ \"message\" : \"Token Not Accepted\" }"
                 );
             }
-            User user = users.get(0);
 
             // get open trades
             ArrayList<Trade> trades = (ArrayList<Trade>) new TradeRepository(unitOfWork).getPendingTrades();
@@ -91,18 +87,15 @@ public class TradeController extends Controller {
 
         UnitOfWork unitOfWork = new UnitOfWork();
         try (unitOfWork) {
-            String requestingUser = new SessionController().getUserByToken(request);
-
             // Get user
-            ArrayList<User> users = ((ArrayList<User>) new UserRepository(unitOfWork).getUserByName(requestingUser));
-            if (users.isEmpty()) {
+            Principal principal = new SessionController().authenticate(request, unitOfWork);
+            if (principal == null) {
                 return new Response(
                         HttpStatus.FORBIDDEN,
                         ContentType.JSON,
                         "{ \"message\" : \"Token Not Accepted\" }"
                 );
             }
-            User user = users.get(0);
 
             // get trade info as object
             Trade reqTrade = this.getObjectMapper().readValue(request.getBody(), Trade.class);
@@ -119,7 +112,7 @@ public class TradeController extends Controller {
 
             // Check if user is owner
             Card card = tradeCards.get(0);
-            if (card.getUserId() != user.getUserId()) {
+            if (card.getUserId() != principal.getUserId()) {
                 return new Response(
                         HttpStatus.FORBIDDEN,
                         ContentType.JSON,
@@ -156,7 +149,7 @@ public class TradeController extends Controller {
 
             // Create trade
             reqTrade.setStatus(TradeStatus.PENDING);
-            reqTrade.setInitiatorId(user.getUserId());
+            reqTrade.setInitiatorId(principal.getUserId());
             Trade trade = new TradeRepository(unitOfWork).createTrade(reqTrade);
 
             unitOfWork.commitTransaction();
@@ -193,18 +186,15 @@ public class TradeController extends Controller {
         UnitOfWork unitOfWork = new UnitOfWork();
 
         try (unitOfWork) {
-            String requestingUser = new SessionController().getUserByToken(request);
-
             // get the user
-            ArrayList<User> users = ((ArrayList<User>) new UserRepository(unitOfWork).getUserByName(requestingUser));
-            if (users.isEmpty()) {
+            Principal principal = new SessionController().authenticate(request, unitOfWork);
+            if (principal == null) {
                 return new Response(
                         HttpStatus.FORBIDDEN,
                         ContentType.JSON,
                         "{ \"message\" : \"Token Not Accepted\" }"
                 );
             }
-            User user = users.get(0);
 
             // get the trade by id
             ArrayList<Trade> trades = (ArrayList<Trade>) new TradeRepository(unitOfWork).getTradeById(tradeId);
@@ -222,7 +212,7 @@ public class TradeController extends Controller {
             Trade trade = trades.get(0);
 
             // check if is own trade
-            if (trade.getInitiatorId() != user.getUserId()) {
+            if (trade.getInitiatorId() != principal.getUserId()) {
                 return new Response(
                         HttpStatus.FORBIDDEN,
                         ContentType.JSON,
@@ -270,18 +260,15 @@ public class TradeController extends Controller {
         UnitOfWork unitOfWork = new UnitOfWork();
 
         try (unitOfWork) {
-            String requestingUser = new SessionController().getUserByToken(request);
-
             // get user
-            ArrayList<User> users = ((ArrayList<User>) new UserRepository(unitOfWork).getUserByName(requestingUser));
-            if (users.isEmpty()) {
+            Principal principal = new SessionController().authenticate(request, unitOfWork);
+            if (principal == null) {
                 return new Response(
                         HttpStatus.FORBIDDEN,
                         ContentType.JSON,
                         "{ \"message\" : \"Token Not Accepted\" }"
                 );
             }
-            User user = users.get(0);
 
             // Check if card exists
             ArrayList<Card> cardList = (ArrayList<Card>) new CardRepository(unitOfWork).getCardById(request.getBody());
@@ -322,7 +309,7 @@ public class TradeController extends Controller {
             }
 
             // Cannot deal with oneself
-            if (trade.getInitiatorId() == user.getUserId()) {
+            if (trade.getInitiatorId() == principal.getUserId()) {
                 return new Response(
                         HttpStatus.NOT_FOUND,
                         ContentType.JSON,
@@ -331,7 +318,7 @@ public class TradeController extends Controller {
             }
 
             // Check if user is owner of card
-            if (card.getUserId() != user.getUserId()) {
+            if (card.getUserId() != principal.getUserId()) {
                 return new Response(
                         HttpStatus.FORBIDDEN,
                         ContentType.JSON,
@@ -368,7 +355,7 @@ public class TradeController extends Controller {
 
             // Create trade
             trade.setStatus(TradeStatus.ACCEPTED);
-            trade.setPartnerId(user.getUserId());
+            trade.setPartnerId(principal.getUserId());
             trade.setReceiverCardId(card.getCardId());
             trade.setTimeCompleted(new Timestamp(System.currentTimeMillis()));
             new TradeRepository(unitOfWork).updateTrade(trade);
@@ -6,14 +6,9 @@ import at.fhtw.httpserver.server.Request;
 import at.fhtw.httpserver.server.Response;
 import at.fhtw.mctg.controller.Controller;
 import at.fhtw.mctg.controller.session.SessionController;
-import at.fhtw.mctg.dal.Repository.CardRepository;
 import at.fhtw.mctg.dal.Repository.PackageRepository;
-import at.fhtw.mctg.dal.Repository.UserRepository;
 import at.fhtw.mctg.dal.UnitOfWork;
-import at.fhtw.mctg.model.CardPack;
-import at.fhtw.mctg.model.User;
-
-import java.util.ArrayList;
+import at.fhtw.mctg.model.Principal;
 
 /**
  * App controller for Transaction Routes
@@ -30,23 +25,21 @@ public class TransactionController extends Controller {
         UnitOfWork unitOfWork = new UnitOfWork();
 
         try (unitOfWork) {
-            String requestingUser = new SessionController().getUserByToken(request);
-
             // get the user
-            ArrayList<User> users = ((ArrayList<User>) new UserRepository(unitOfWork).getUserByName(requestingUser));
-            if (users.isEmpty()) {
+            Principal principal = new SessionController().authenticate(request, unitOfWork);
+            if (principal == null) {
                 return new Response(
                         HttpStatus.FORBIDDEN,
                         ContentType.JSON,
                         "{ \"message\" : \"Token Not Accepted\" }"
                 );
             }
-            User user = users.get(0);
 
-            // get pack obj to acquire
-            CardPack pack = new PackageRepository(unitOfWork).getFreePack();
+            // pick the next pack, pay for it and take its cards in one statement
+            PackageRepository.Purchase purchase = new PackageRepository(unitOfWork).purchasePack(principal.getUserId());
 
-            if (pack == null) {
+            if (purchase == null) {
+                unitOfWork.rollbackTransaction();
                 return new Response(
                         HttpStatus.NOT_FOUND,
                         ContentType.JSON,
@@ -54,7 +47,8 @@ public class TransactionController extends Controller {
                 );
             }
 
-            if (user.getWallet() < pack.getPrice()) {
+            if (!purchase.paid()) {
+                unitOfWork.rollbackTransaction();
                 return new Response(
                         HttpStatus.FORBIDDEN,
                         ContentType.JSON,
@@ -62,9 +56,6 @@ public class TransactionController extends Controller {
                 );
             }
 
-            new CardRepository(unitOfWork).acquireMultipleCards(pack.getPackageId(), user.getUserId());
-            new UserRepository(unitOfWork).updateWalletByName(requestingUser, -1 * pack.getPrice());
-
             unitOfWork.commitTransaction();
 
             return new Response(
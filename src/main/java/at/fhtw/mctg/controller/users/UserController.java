@@ -4,21 +4,31 @@ import at.fhtw.httpserver.http.ContentType;
 import at.fhtw.httpserver.http.HttpStatus;
 import at.fhtw.httpserver.server.Request;
 import at.fhtw.httpserver.server.Response;
+import at.fhtw.mctg.battle.Leaderboard;
 import at.fhtw.mctg.controller.Controller;
+import at.fhtw.mctg.controller.session.SessionCache;
 import at.fhtw.mctg.controller.session.SessionController;
+import at.fhtw.mctg.dal.DataAccessException;
 import at.fhtw.mctg.dal.Repository.UserRepository;
 import at.fhtw.mctg.dal.UnitOfWork;
+import at.fhtw.mctg.model.Principal;
+import at.fhtw.mctg.model.Stats;
 import at.fhtw.mctg.model.User;
-import at.fhtw.mctg.utils.PasswordHash;
+import at.fhtw.mctg.threads.PasswordHashExecutor;
 
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * App controller for Transaction Routes
  */
 public class UserController extends Controller {
 
+    // SQLState of a unique constraint violation in PostgreSQL
+    private static final String UNIQUE_VIOLATION = "23505";
+
     /**
      * Method to create a user
      *
@@ -26,35 +36,79 @@ public class UserController extends Controller {
      * @return response with status message
      */
     public Response createUser(Request request) {
-        UnitOfWork unitOfWork = new UnitOfWork();
+        User requestedUser;
+        UnitOfWork checkUnitOfWork = new UnitOfWork();
 
-        try (unitOfWork) {
+        try (checkUnitOfWork) {
             // User info
-            User requestedUser = this.getObjectMapper().readValue(request.getBody(), User.class);
+            requestedUser = this.getObjectMapper().readValue(request.getBody(), User.class);
 
-            // check if user exists by username
-            if (!new UserRepository(unitOfWork).getUserByName(requestedUser.getUsername()).isEmpty()) {
-                return new Response(
-                        HttpStatus.CONFLICT,
-                        ContentType.JSON,
-                        "{ \"message\" : \"User exists already\" }"
-                );
+            // check if user exists by username, before spending time on the hash
+            if (!new UserRepository(checkUnitOfWork).getUserByName(requestedUser.getUsername()).isEmpty()) {
+                checkUnitOfWork.rollbackTransaction();
+                return userExists();
             }
 
-            // set encrypted password
-            requestedUser.setPassword(PasswordHash.generateHashedPassword(requestedUser.getPassword()));
+            checkUnitOfWork.commitTransaction();
+        } catch (Exception e) {
+            e.printStackTrace();
+
+            checkUnitOfWork.rollbackTransaction();
+            return new Response(
+                    HttpStatus.INTERNAL_SERVER_ERROR,
+                    ContentType.JSON,
+                    "{ \"message\" : \"Internal Server Error\" }"
+            );
+        }
+
+        try {
+            // set encrypted password, without holding a connection because the hashing may have to wait
+            requestedUser.setPassword(PasswordHashExecutor.INSTANCE.hash(requestedUser.getPassword()));
+        } catch (RejectedExecutionException e) {
+            return new Response(
+                    HttpStatus.SERVICE_UNAVAILABLE,
+                    ContentType.JSON,
+                    "{ \"message\" : \"Server is busy, try again later\" }"
+            );
+        } catch (Exception e) {
+            e.printStackTrace();
+
+            return new Response(
+                    HttpStatus.INTERNAL_SERVER_ERROR,
+                    ContentType.JSON,
+                    "{ \"message\" : \"Internal Server Error\" }"
+            );
+        }
+
+        UnitOfWork unitOfWork = new UnitOfWork();
 
-            // store user
+        try (unitOfWork) {
+            // store user, the unique username catches a registration of the same name in the meantime
             new UserRepository(unitOfWork).createUser(requestedUser);
+            Stats stats = new UserRepository(unitOfWork).getUserStatsByName(requestedUser.getUsername());
 
             unitOfWork.commitTransaction();
 
+            Leaderboard.INSTANCE.update(stats);
+
             return new Response(
                     HttpStatus.CREATED,
                     ContentType.JSON,
                     "{ \"message\" : \"User created successfully\" }"
             );
 
+        } catch (DataAccessException e) {
+            unitOfWork.rollbackTransaction();
+            if (e.getCause() instanceof SQLException sqlException && UNIQUE_VIOLATION.equals(sqlException.getSQLState())) {
+                return userExists();
+            }
+
+            e.printStackTrace();
+            return new Response(
+                    HttpStatus.INTERNAL_SERVER_ERROR,
+                    ContentType.JSON,
+                    "{ \"message\" : \"Internal Server Error\" }"
+            );
         } catch (Exception e) {
             e.printStackTrace();
 
@@ -67,6 +121,14 @@ public class UserController extends Controller {
         }
     }
 
+    private static Response userExists() {
+        return new Response(
+                HttpStatus.CONFLICT,
+                ContentType.JSON,
+                "{ \"message\" : \"User exists already\" }"
+        );
+    }
+
     /**
      * Method to get user by username
      *
@@ -81,9 +143,8 @@ public class UserController extends Controller {
         try (unitOfWork) {
 
             // get requesting user data
-            String requestingUser = new SessionController().getUserByToken(request);
-            ArrayList<User> tokenUsers = ((ArrayList<User>) new UserRepository(unitOfWork).getUserByName(requestingUser));
-            if (tokenUsers.isEmpty()) {
+            Principal principal = new SessionController().authenticate(request, unitOfWork);
+            if (principal == null) {
                 return new Response(
                         HttpStatus.FORBIDDEN,
                         ContentType.JSON,
@@ -91,31 +152,27 @@ public class UserController extends Controller {
                 );
             }
 
-            // get requested user
-            Collection<User> dbUsers = new UserRepository(unitOfWork).getUserByName(requestingUser);
-            if (dbUsers.isEmpty()) {
-                unitOfWork.rollbackTransaction();
+            // only allow to get own user
+            if (!principal.getUsername().equals(username)) {
                 return new Response(
-                        HttpStatus.NOT_FOUND,
+                        HttpStatus.FORBIDDEN,
                         ContentType.JSON,
-                        "{ \"message\" : \"User not found\" }"
+                        "{ \"message\" : \"Cannot get other user\" }"
                 );
             }
 
-            User user = ((ArrayList<User>) dbUsers).get(0);
-
-            // only allow to get own user
-            if (!user.getUsername().equals(username)) {
+            // get requested user
+            Collection<User> dbUsers = new UserRepository(unitOfWork).getUserByName(username);
+            if (dbUsers.isEmpty()) {
+                unitOfWork.rollbackTransaction();
                 return new Response(
-                        HttpStatus.FORBIDDEN,
+                        HttpStatus.NOT_FOUND,
                         ContentType.JSON,
-                        "{ \"message\" : \"Cannot get other user\" }"
+                        "{ \"message\" : \"User not found\" }"
                 );
             }
 
-            User reqUser = ((ArrayList<User>) new UserRepository(unitOfWork).getUserByName(username)).get(0);
-
-            String UserDataJSON = this.getObjectMapper().writeValueAsString(reqUser);
+            String UserDataJSON = this.getObjectMapper().writeValueAsString(((ArrayList<User>) dbUsers).get(0));
             unitOfWork.commitTransaction();
 
             return new Response(
@@ -144,14 +201,13 @@ public class UserController extends Controller {
      */
     public Response updateUserByName(Request request) {
         String username = request.getPathParts().get(1);
+        User extractedUser;
+        String hashedPassword = null;
 
-        UnitOfWork unitOfWork = new UnitOfWork();
-
-        try (unitOfWork) {
-            // get token user data
-            String requestingUser = new SessionController().getUserByToken(request);
-            ArrayList<User> tokenUsers = ((ArrayList<User>) new UserRepository(unitOfWork).getUserByName(requestingUser));
-            if (tokenUsers.isEmpty()) {
+        try {
+            // get token user data, a cached token needs no connection
+            Principal principal = new SessionController().authenticate(request);
+            if (principal == null) {
                 return new Response(
                         HttpStatus.FORBIDDEN,
                         ContentType.JSON,
@@ -159,48 +215,78 @@ public class UserController extends Controller {
                 );
             }
 
-            // get user
-            Collection<User> dbUsers = new UserRepository(unitOfWork).getUserByName(requestingUser);
-            if (dbUsers.isEmpty()) {
-                unitOfWork.rollbackTransaction();
+            // only allow own user
+            if (!principal.getUsername().equals(username)) {
                 return new Response(
-                        HttpStatus.NOT_FOUND,
+                        HttpStatus.FORBIDDEN,
                         ContentType.JSON,
-                        "{ \"message\" : \"User not found\" }"
+                        "{ \"message\" : \"Cannot update other user\" }"
                 );
             }
 
-            User user = ((ArrayList<User>) dbUsers).get(0);
+            extractedUser = this.getObjectMapper().readValue(request.getBody(), User.class);
 
-            // only allow own user
-            if (!user.getUsername().equals(username)) {
+            // hash the new password without holding a connection because the hashing may have to wait
+            if (extractedUser.getPassword() != null) {
+                hashedPassword = PasswordHashExecutor.INSTANCE.hash(extractedUser.getPassword());
+            }
+        } catch (RejectedExecutionException e) {
+            return new Response(
+                    HttpStatus.SERVICE_UNAVAILABLE,
+                    ContentType.JSON,
+                    "{ \"message\" : \"Server is busy, try again later\" }"
+            );
+        } catch (Exception e) {
+            e.printStackTrace();
+
+            return new Response(
+                    HttpStatus.INTERNAL_SERVER_ERROR,
+                    ContentType.JSON,
+                    "{ \"message\" : \"Internal Server Error\" }"
+            );
+        }
+
+        UnitOfWork unitOfWork = new UnitOfWork();
+
+        try (unitOfWork) {
+            // get user
+            Collection<User> dbUsers = new UserRepository(unitOfWork).getUserByName(username);
+            if (dbUsers.isEmpty()) {
+                unitOfWork.rollbackTransaction();
                 return new Response(
-                        HttpStatus.FORBIDDEN,
+                        HttpStatus.NOT_FOUND,
                         ContentType.JSON,
-                        "{ \"message\" : \"Cannot update other user\" }"
+                        "{ \"message\" : \"User not found\" }"
                 );
             }
 
-            User extractedUser = this.getObjectMapper().readValue(request.getBody(), User.class);
+            User user = ((ArrayList<User>) dbUsers).get(0);
 
             // update values possible for bio, name, image, password
             if (extractedUser.getBio() != null) {
                 user.setBio(extractedUser.getBio());
             }
+            boolean renamed = extractedUser.getName() != null && !extractedUser.getName().equals(user.getName());
             if (extractedUser.getName() != null) {
                 user.setName(extractedUser.getName());
             }
             if (extractedUser.getImage() != null) {
                 user.setImage(extractedUser.getImage());
             }
-            if (extractedUser.getPassword() != null) {
-                user.setPassword(PasswordHash.generateHashedPassword(extractedUser.getPassword()));
+            if (hashedPassword != null) {
+                user.setPassword(hashedPassword);
             }
 
             new UserRepository(unitOfWork).updateUserByName(username, user);
 
             unitOfWork.commitTransaction();
 
+            // the scoreboard shows the name
+            if (renamed) {
+                Leaderboard.INSTANCE.invalidate();
+            }
+            SessionCache.INSTANCE.invalidateUser(username);
+
             return new Response(
                     HttpStatus.OK,
                     ContentType.JSON,
@@ -0,0 +1,345 @@
+package at.fhtw.mctg.dal;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded pool of JDBC connections.
+ * <p>
+ * At most {@code maxSize} connections are handed out at the same time. Callers that
+ * cannot get a connection within the acquire timeout receive a {@link DataAccessException}.
+ * Idle connections are validated before they are handed out again and are closed by a
+ * background evictor once they have been idle for longer than the idle timeout;
+ * the evictor starts with the first borrow.
+ */
+public class ConnectionPool {
+
+    /**
+     * Opens new physical connections for the pool.
+     */
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    /**
+     * An idle connection together with the time it was returned to the pool.
+     */
+    private static final class IdleConnection {
+        private final Connection connection;
+        private final long returnedAt;
+
+        private IdleConnection(Connection connection, long returnedAt) {
+            this.connection = connection;
+            this.returnedAt = returnedAt;
+        }
+
+        private Connection connection() {
+            return this.connection;
+        }
+
+        private long returnedAt() {
+            return this.returnedAt;
+        }
+    }
+
+    private final ConnectionFactory connectionFactory;
+    private final int maxSize;
+    private final long acquireTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final long validationIntervalMillis;
+    private final int validationTimeoutSeconds;
+
+    /**
+     * Idle connections, most recently returned first so warm connections are reused.
+     */
+    private final Deque<IdleConnection> idleConnections = new ArrayDeque<>();
+
+    /**
+     * One permit per connection that may be borrowed.
+     */
+    private final Semaphore permits;
+
+    /**
+     * The connections currently handed out, guarded by itself.
+     * A permit is only given back for a connection removed from here,
+     * so releasing twice or releasing a foreign connection cannot raise the limit.
+     */
+    private final Set<Connection> lentConnections = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    private final ScheduledExecutorService evictor;
+    private final AtomicBoolean evictorStarted = new AtomicBoolean();
+
+    private volatile boolean closed = false;
+
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong destroyedCount = new AtomicLong();
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong validationFailureCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+
+    /**
+     * Creates a new pool.
+     *
+     * @param connectionFactory        factory for new physical connections
+     * @param maxSize                  maximum number of connections handed out at the same time
+     * @param acquireTimeoutMillis     how long {@link #borrow()} waits for a free connection
+     * @param idleTimeoutMillis        idle connections older than this are closed by the evictor
+     * @param validationIntervalMillis connections returned within this interval are not validated again on borrow
+     * @param validationTimeoutSeconds timeout passed to {@link Connection#isValid(int)}
+     */
+    public ConnectionPool(ConnectionFactory connectionFactory, int maxSize, long acquireTimeoutMillis,
+                          long idleTimeoutMillis, long validationIntervalMillis, int validationTimeoutSeconds) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Pool size must be at least 1");
+        }
+
+        this.connectionFactory = connectionFactory;
+        this.maxSize = maxSize;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.validationIntervalMillis = validationIntervalMillis;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private void startEvictor() {
+        if (this.evictorStarted.compareAndSet(false, true)) {
+            long evictionInterval = Math.max(1000L, this.idleTimeoutMillis / 2);
+            this.evictor.scheduleWithFixedDelay(this::evictIdleConnections, evictionInterval, evictionInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Borrows a connection from the pool, opening a new one if no idle connection is available.
+     *
+     * @return a connection that has to be given back with {@link #release(Connection)}
+     * @throws DataAccessException if the pool is closed, the acquire timeout expires
+     *                             or a new connection could not be established
+     */
+    public Connection borrow() {
+        if (this.closed) {
+            throw new DataAccessException("Connection pool is closed");
+        }
+        startEvictor();
+
+        long start = System.nanoTime();
+        try {
+            if (!this.permits.tryAcquire(this.acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                this.timeoutCount.incrementAndGet();
+                throw new DataAccessException("Timed out after " + this.acquireTimeoutMillis + "ms waiting for a database connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessException("Interrupted while waiting for a database connection", e);
+        }
+        this.totalWaitNanos.addAndGet(System.nanoTime() - start);
+
+        try {
+            IdleConnection idle;
+            while ((idle = pollIdle()) != null) {
+                if (isUsable(idle)) {
+                    this.borrowCount.incrementAndGet();
+                    return lend(idle.connection());
+                }
+                this.validationFailureCount.incrementAndGet();
+                destroy(idle.connection());
+            }
+
+            Connection connection = this.connectionFactory.create();
+            this.createdCount.incrementAndGet();
+            this.borrowCount.incrementAndGet();
+            return lend(connection);
+        } catch (SQLException e) {
+            this.permits.release();
+            throw new DataAccessException("Database connection could not be established", e);
+        } catch (RuntimeException e) {
+            this.permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Gives a borrowed connection back to the pool.
+     * Uncommitted work is rolled back, just like closing a physical connection would.
+     * Broken connections are closed instead of being reused.
+     * A connection that is not currently borrowed from this pool is ignored.
+     *
+     * @param connection the connection obtained by {@link #borrow()}
+     */
+    public void release(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        synchronized (this.lentConnections) {
+            if (!this.lentConnections.remove(connection)) {
+                return;
+            }
+        }
+
+        try {
+            if (this.closed || connection.isClosed()) {
+                destroy(connection);
+                return;
+            }
+
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            connection.clearWarnings();
+
+            synchronized (this.idleConnections) {
+                this.idleConnections.addFirst(new IdleConnection(connection, System.currentTimeMillis()));
+            }
+        } catch (SQLException e) {
+            destroy(connection);
+        } finally {
+            this.permits.release();
+        }
+    }
+
+    /**
+     * Closes all idle connections and stops the evictor.
+     * Connections that are still borrowed are closed when they are released.
+     */
+    public void close() {
+        this.closed = true;
+        this.evictor.shutdownNow();
+
+        IdleConnection idle;
+        while ((idle = pollIdle()) != null) {
+            destroy(idle.connection());
+        }
+    }
+
+    /**
+     * Closes idle connections that have not been used for longer than the idle timeout.
+     */
+    void evictIdleConnections() {
+        long threshold = System.currentTimeMillis() - this.idleTimeoutMillis;
+
+        synchronized (this.idleConnections) {
+            Iterator<IdleConnection> iterator = this.idleConnections.descendingIterator();
+            while (iterator.hasNext()) {
+                IdleConnection idle = iterator.next();
+                if (idle.returnedAt() > threshold) {
+                    // everything after this one was returned more recently
+                    break;
+                }
+                iterator.remove();
+                destroy(idle.connection());
+            }
+        }
+    }
+
+    private Connection lend(Connection connection) {
+        synchronized (this.lentConnections) {
+            this.lentConnections.add(connection);
+        }
+        return connection;
+    }
+
+    private IdleConnection pollIdle() {
+        synchronized (this.idleConnections) {
+            return this.idleConnections.pollFirst();
+        }
+    }
+
+    private boolean isUsable(IdleConnection idle) {
+        try {
+            if (System.currentTimeMillis() - idle.returnedAt() < this.validationIntervalMillis) {
+                return !idle.connection().isClosed();
+            }
+            return idle.connection().isValid(this.validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void destroy(Connection connection) {
+        this.destroyedCount.incrementAndGet();
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            // connection is discarded anyway
+        }
+    }
+
+    public int getMaxSize() {
+        return this.maxSize;
+    }
+
+    public int getActiveCount() {
+        return this.maxSize - this.permits.availablePermits();
+    }
+
+    public int getIdleCount() {
+        synchronized (this.idleConnections) {
+            return this.idleConnections.size();
+        }
+    }
+
+    public int getWaitingCount() {
+        return this.permits.getQueueLength();
+    }
+
+    public long getCreatedCount() {
+        return this.createdCount.get();
+    }
+
+    public long getDestroyedCount() {
+        return this.destroyedCount.get();
+    }
+
+    public long getBorrowCount() {
+        return this.borrowCount.get();
+    }
+
+    public long getTimeoutCount() {
+        return this.timeoutCount.get();
+    }
+
+    public long getValidationFailureCount() {
+        return this.validationFailureCount.get();
+    }
+
+    public long getTotalWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(this.totalWaitNanos.get());
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionPool{" +
+                "maxSize=" + maxSize +
+                ", active=" + getActiveCount() +
+                ", idle=" + getIdleCount() +
+                ", waiting=" + getWaitingCount() +
+                ", created=" + getCreatedCount() +
+                ", destroyed=" + getDestroyedCount() +
+                ", borrowed=" + getBorrowCount() +
+                ", timeouts=" + getTimeoutCount() +
+                ", validationFailures=" + getValidationFailureCount() +
+                ", totalWaitMillis=" + getTotalWaitMillis() +
+                '}';
+    }
+}
@@ -2,20 +2,44 @@ package at.fhtw.mctg.dal;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
-import java.sql.SQLException;
 
 public enum DatabaseManager {
     INSTANCE;
 
-    public Connection getConnection()
-    {
-        try {
-            return DriverManager.getConnection(
+    private final ConnectionPool connectionPool = new ConnectionPool(
+            () -> DriverManager.getConnection(
                     "jdbc:postgresql://localhost:5432/mctgdb?currentSchema=mctg",
                     "mctguser",
-                    "mctgpw");
-        } catch (SQLException e) {
-            throw new DataAccessException("Database connection could not be established", e);
-        }
+                    "mctgpw"),
+            Integer.getInteger("mctg.db.pool.size", 10),
+            Long.getLong("mctg.db.pool.acquireTimeoutMillis", 5000L),
+            Long.getLong("mctg.db.pool.idleTimeoutMillis", 600000L),
+            500L,
+            2
+    );
+
+    /**
+     * Borrows a connection from the pool
+     *
+     * @return a connection which has to be given back with {@link #releaseConnection(Connection)}
+     */
+    public Connection getConnection()
+    {
+        return this.connectionPool.borrow();
+    }
+
+    /**
+     * Gives a connection back to the pool
+     *
+     * @param connection the connection obtained by {@link #getConnection()}
+     */
+    public void releaseConnection(Connection connection)
+    {
+        this.connectionPool.release(connection);
+    }
+
+    public ConnectionPool getConnectionPool()
+    {
+        return this.connectionPool;
     }
 }
@@ -10,6 +10,7 @@ import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.function.Consumer;
 
 /**
  * Repository for handling `Battle` data operations in the application.
@@ -17,6 +18,8 @@ import java.util.Collection;
  * in the database.
  */
 public class BattleRepository {
+    private static final int LOG_FETCH_SIZE = 100;
+
     private final UnitOfWork unitOfWork;
 
     /**
@@ -31,51 +34,6 @@ public class BattleRepository {
     }
 
 
-    /**
-     * Retrieves a collection of pending battles from the database.
-     * Pending battles are those where one user has joined and the status remains unassigned.
-     *
-     * This method queries the database using a SQL statement to select battles with a null status
-     * and exactly one user associated with them. It creates a list of `Battle` objects based on the
-     * query result and returns it.
-     *
-     * @return a collection of `Battle` objects representing pending battles. If no battles are found,
-     * an empty collection is returned.
-     * @throws DataAccessException if a database error occurs during query execution.
-     */
-    public Collection<Battle> getPendingBattles() {
-        try (PreparedStatement preparedStatement = this.unitOfWork.prepareStatement(
-                """
-                            SELECT b.*
-                                 FROM "battle" b
-                                 JOIN "user_battle" ub ON b.pk_battle_id = ub.fk_pk_battle_id
-                                 WHERE ub.status IS NULL
-                                 GROUP BY b.pk_battle_id, b.time_start, b.time_end, b.rounds_nr, b.fk_pk_battlelog_id
-                                 HAVING COUNT(ub.fk_pk_user_id) = 1;
-                        """)) {
-
-            ResultSet resultSet = preparedStatement.executeQuery();
-
-            Collection<Battle> battleRows = new ArrayList<>();
-
-            while (resultSet.next()) {
-                Battle battle = new Battle(
-                        resultSet.getInt(1), //ID
-                        resultSet.getTimestamp(2), // Start Time
-                        resultSet.getTimestamp(3), // End Time
-                        resultSet.getInt(4), //Round Nr
-                        resultSet.getInt(5) //Battle Log id
-                );
-
-                battleRows.add(battle);
-            }
-
-            return battleRows;
-        } catch (SQLException e) {
-            throw new DataAccessException("Select not successful", e);
-        }
-    }
-
     /**
      * Creates a new battle in the database for a given user.
      * This method initializes a battle by adding entries to the battlelog, battle,
@@ -251,70 +209,119 @@ public class BattleRepository {
     }
 
     /**
-     * Adds a log entry to the battle log associated with a specific battle ID.
-     * This method retrieves the battle log ID for the given battle ID, determines the next row
-     * number in the battle log, and inserts the provided log line into the database.
+     * Retrieves the ID of the battle log belonging to a battle.
      *
-     * @param battleId the unique identifier of the battle for which the log entry is to be added
-     * @param line the log entry text to be added to the battle log
-     * @throws DataAccessException if an error occurs during the database operation,
-     *         such as unable to find the battle log or insert the log entry
+     * @param battleId the unique identifier of the battle
+     * @return the battle log ID
+     * @throws DataAccessException if the battle does not exist or the query fails
      */
-    public void addLogLine(int battleId, String line) {
-        try {
-            // Step 1: Find the associated battlelog ID
-            int battlelogId;
-            try (PreparedStatement findBattlelogStmt = this.unitOfWork.prepareStatement(
-                    """
-                            SELECT fk_pk_battlelog_id 
-                            FROM "battle" 
-                            WHERE pk_battle_id = ?
-                            """
-            )) {
-                findBattlelogStmt.setInt(1, battleId);
-                ResultSet resultSet = findBattlelogStmt.executeQuery();
-                if (resultSet.next()) {
-                    battlelogId = resultSet.getInt("fk_pk_battlelog_id");
-                } else {
-                    throw new DataAccessException("BattleLog not found for battleId: " + battleId);
-                }
-
+    public int getBattleLogId(int battleId) {
+        try (PreparedStatement findBattlelogStmt = this.unitOfWork.prepareStatement(
+                """
+                        SELECT fk_pk_battlelog_id 
+                        FROM "battle" 
+                        WHERE pk_battle_id = ?
+                        """
+        )) {
+            findBattlelogStmt.setInt(1, battleId);
+            ResultSet resultSet = findBattlelogStmt.executeQuery();
+            if (resultSet.next()) {
+                return resultSet.getInt("fk_pk_battlelog_id");
             }
+            throw new DataAccessException("BattleLog not found for battleId: " + battleId);
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to find battle log for battleId: " + battleId, e);
+        }
+    }
 
-            // Step 2: Determine the next available row number
-            int nextRowNr;
-            try (PreparedStatement findNextRowStmt = this.unitOfWork.prepareStatement(
-                    """
-                            SELECT COALESCE(MAX(row_nr), 0) + 1 AS next_row_nr 
-                            FROM "battlelog" 
-                            WHERE pk_battlelog_id = ?
-                            """
-            )) {
-                findNextRowStmt.setInt(1, battlelogId);
-                ResultSet resultSet = findNextRowStmt.executeQuery();
-                if (resultSet.next()) {
-                    nextRowNr = resultSet.getInt("next_row_nr");
-                } else {
-                    throw new DataAccessException("Failed to determine the next row number for battlelogId: " + battlelogId);
-                }
+    /**
+     * Stores the replay of a finished battle.
+     *
+     * @param battleId the unique identifier of the battle
+     * @param replay   the replay, see {@link at.fhtw.mctg.battle.BattleReplay}
+     * @throws DataAccessException if the battle does not exist or the update fails
+     */
+    public void setBattleReplay(int battleId, byte[] replay) {
+        try (PreparedStatement preparedStatement = this.unitOfWork.prepareStatement(
+                """
+                        UPDATE "battle" 
+                        SET replay = ? 
+                        WHERE pk_battle_id = ?
+                        """
+        )) {
+            preparedStatement.setBytes(1, replay);
+            preparedStatement.setInt(2, battleId);
 
+            if (preparedStatement.executeUpdate() == 0) {
+                throw new DataAccessException("Battle not found for battleId: " + battleId);
             }
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to store replay for battleId: " + battleId, e);
+        }
+    }
 
-            // Step 3: Insert the new log entry
-            try (PreparedStatement insertLogStmt = this.unitOfWork.prepareStatement(
-                    """
-                            INSERT INTO "battlelog" (pk_battlelog_id, row_nr, log_text) 
-                            VALUES (?, ?, ?)
-                            """
-            )) {
-                insertLogStmt.setInt(1, battlelogId);
-                insertLogStmt.setInt(2, nextRowNr);
-                insertLogStmt.setString(3, line);
-                insertLogStmt.execute();
+    /**
+     * Retrieves the replay of a battle.
+     *
+     * @param battleId the unique identifier of the battle
+     * @return the replay, null if the battle has none (yet)
+     * @throws DataAccessException if the query fails
+     */
+    public byte[] getBattleReplay(int battleId) {
+        try (PreparedStatement preparedStatement = this.unitOfWork.prepareStatement(
+                """
+                        SELECT replay 
+                        FROM "battle" 
+                        WHERE pk_battle_id = ?
+                        """
+        )) {
+            preparedStatement.setInt(1, battleId);
+
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                return resultSet.next() ? resultSet.getBytes("replay") : null;
             }
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to read replay for battleId: " + battleId, e);
+        }
+    }
 
+    /**
+     * Streams the log of a battle row by row through a server-side cursor,
+     * so only {@link #LOG_FETCH_SIZE} rows are held in memory at a time.
+     * Needs an open transaction, which a {@link UnitOfWork} always has.
+     *
+     * @param battleId the unique identifier of the battle
+     * @param consumer receives the rows in order
+     * @return the row number of the last row read, 0 if there was none
+     * @throws DataAccessException if the query fails
+     */
+    public int streamBattleLog(int battleId, Consumer<BattleLog> consumer) {
+        try (PreparedStatement streamLogStmt = this.unitOfWork.prepareStatement(
+                """
+                        SELECT bl.pk_battlelog_id, bl.row_nr, bl.log_text 
+                        FROM "battle" b 
+                        JOIN "battlelog" bl ON bl.pk_battlelog_id = b.fk_pk_battlelog_id 
+                        WHERE b.pk_battle_id = ? 
+                        ORDER BY bl.row_nr
+                        """
+        )) {
+            streamLogStmt.setFetchSize(LOG_FETCH_SIZE);
+            streamLogStmt.setInt(1, battleId);
+
+            int lastRowNr = 0;
+            try (ResultSet resultSet = streamLogStmt.executeQuery()) {
+                while (resultSet.next()) {
+                    lastRowNr = resultSet.getInt("row_nr");
+                    consumer.accept(new BattleLog(
+                            resultSet.getInt("pk_battlelog_id"),
+                            lastRowNr,
+                            resultSet.getString("log_text")
+                    ));
+                }
+            }
+            return lastRowNr;
         } catch (SQLException e) {
-            throw new DataAccessException("Failed to add battle log entry for battleId: " + battleId, e);
+            throw new DataAccessException("Failed to read battle log for battleId: " + battleId, e);
         }
     }
 
@@ -328,8 +335,6 @@ public class BattleRepository {
      */
     public void joinBattle(int battleId, String requestingUser) {
         try {
-            //addLogLine(battleId, requestingUser + " joined the battle");
-
             // Insert into user_battle table
             PreparedStatement userBattleStmt = this.unitOfWork.prepareStatement(
                     """
@@ -350,19 +355,30 @@ public class BattleRepository {
     /**
      * Finalizes a user's participation in a battle by updating the status in the database.
      * This method updates the status of an entry in the "user_battle" table corresponding to
-     * a specific battle and user.
+     * a specific battle and user, and counts the result in the user's win, loss or tie counter
+     * in the same statement. A battle is finalized only once per user: an entry that has a status already
+     * is not updated again, so the counters are not incremented twice.
      *
      * @param battleId the unique identifier of the battle to be finalized for the user
      * @param userId the unique identifier of the user whose participation is being finalized
      * @param status the final status of the user in the battle, represented as a {@code BattleStatus} enumeration
-     * @throws DataAccessException if the database operation fails or no entry is found for the given battleId and userId
+     * @throws DataAccessException if the database operation fails or no unfinalized entry is found for the given battleId and userId
      */
     public void finalizeUserBattle(int battleId, int userId, BattleStatus status) {
         try (PreparedStatement preparedStatement = this.unitOfWork.prepareStatement(
                 """
-                UPDATE "user_battle"
-                SET status = ?::battlestatus
-                WHERE fk_pk_battle_id = ? AND fk_pk_user_id = ?
+                WITH finalized AS (
+                    UPDATE "user_battle"
+                    SET status = ?::battlestatus
+                    WHERE fk_pk_battle_id = ? AND fk_pk_user_id = ? AND status IS NULL
+                    RETURNING fk_pk_user_id, status
+                )
+                UPDATE "user" u
+                SET wins = u.wins + CASE WHEN f.status = 'WIN' THEN 1 ELSE 0 END,
+                    losses = u.losses + CASE WHEN f.status = 'LOSS' THEN 1 ELSE 0 END,
+                    ties = u.ties + CASE WHEN f.status = 'TIE' THEN 1 ELSE 0 END
+                FROM finalized f
+                WHERE u.pk_user_id = f.fk_pk_user_id
                 """
         )) {
             // Set the new status
@@ -373,7 +389,7 @@ public class BattleRepository {
             // Execute the update
             int rowsUpdated = preparedStatement.executeUpdate();
             if (rowsUpdated == 0) {
-                throw new DataAccessException("No user_battle entry found for battleId: " + battleId + " and userId: " + userId);
+                throw new DataAccessException("No unfinalized user_battle entry found for battleId: " + battleId + " and userId: " + userId);
             }
         } catch (SQLException e) {
             throw new DataAccessException("Transaction failed", e);
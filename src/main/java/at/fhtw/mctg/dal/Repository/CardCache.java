@@ -0,0 +1,199 @@
+package at.fhtw.mctg.dal.Repository;
+
+import at.fhtw.mctg.dal.UnitOfWork;
+import at.fhtw.mctg.model.Card;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache of the card collection of each user, the active deck is read from the same entry.
+ * <p>
+ * The cache holds at most a fixed number of cards ({@code mctg.cards.cacheMaxCards}, default 100000),
+ * the least recently used users are evicted first. Cards are copied on the way in and out,
+ * so callers may change what they get.
+ * <p>
+ * The repositories announce every write to a user's cards with {@link #beginWrite} and end it with
+ * {@link #endWrite} once the transaction is over. While a write is open the user is not cached, and a load
+ * that started before a write began or ended is not stored, so the cache never holds uncommitted or outdated cards.
+ */
+public class CardCache {
+
+    /**
+     * The cache used by the repositories
+     */
+    public static final CardCache INSTANCE = new CardCache(Integer.getInteger("mctg.cards.cacheMaxCards", 100000));
+
+    private final int maxCards;
+
+    // guarded by this
+    private final Map<Integer, Card[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Integer, Integer> openWrites = new HashMap<>();
+    private long generation = 0;
+    private int cachedCards = 0;
+
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    /**
+     * @param maxCards maximum number of cached cards, every user counts at least as one
+     */
+    CardCache(int maxCards) {
+        this.maxCards = maxCards;
+    }
+
+    /**
+     * @param userId the user
+     * @return a copy of the users cards, null if they are not cached
+     */
+    public synchronized List<Card> get(int userId) {
+        Card[] cards = this.entries.get(userId);
+        if (cards == null) {
+            this.misses++;
+            return null;
+        }
+        this.hits++;
+        List<Card> copy = new ArrayList<>(cards.length);
+        for (Card card : cards) {
+            copy.add(copy(card));
+        }
+        return copy;
+    }
+
+    /**
+     * @return the value to pass to {@link #put} for cards loaded from now on
+     */
+    public synchronized long generation() {
+        return this.generation;
+    }
+
+    /**
+     * Stores the cards of a user, unless a write to cards began or ended since they were loaded
+     *
+     * @param userId     the user
+     * @param cards      all cards of the user
+     * @param generation the value of {@link #generation()} before the cards were loaded
+     */
+    public synchronized void put(int userId, Collection<Card> cards, long generation) {
+        if (generation != this.generation || this.openWrites.containsKey(userId) || cards.size() + 1 > this.maxCards) {
+            return;
+        }
+
+        Card[] copy = new Card[cards.size()];
+        int i = 0;
+        for (Card card : cards) {
+            copy[i++] = copy(card);
+        }
+
+        remove(userId);
+        this.entries.put(userId, copy);
+        this.cachedCards += weight(copy);
+
+        Iterator<Card[]> eldest = this.entries.values().iterator();
+        while (this.cachedCards > this.maxCards) {
+            this.cachedCards -= weight(eldest.next());
+            eldest.remove();
+            this.evictions++;
+        }
+    }
+
+    /**
+     * A transaction is about to change the cards of a user
+     *
+     * @param userId the user
+     */
+    public synchronized void beginWrite(int userId) {
+        this.openWrites.merge(userId, 1, Integer::sum);
+        remove(userId);
+        this.generation++;
+    }
+
+    /**
+     * The transaction that changed the cards of a user has ended
+     *
+     * @param userId the user
+     */
+    public synchronized void endWrite(int userId) {
+        this.openWrites.computeIfPresent(userId, (id, count) -> count > 1 ? count - 1 : null);
+        remove(userId);
+        this.generation++;
+    }
+
+    /**
+     * Keeps the cards of a user out of the cache until the transaction of the unit of work has ended,
+     * call it for every user whose cards a statement changes
+     *
+     * @param unitOfWork the unit of work running the statement
+     * @param userId     the user
+     */
+    void changesCardsOf(UnitOfWork unitOfWork, int userId) {
+        if (unitOfWork.afterCompletion("cards:" + userId, () -> endWrite(userId))) {
+            beginWrite(userId);
+        }
+    }
+
+    private void remove(int userId) {
+        Card[] removed = this.entries.remove(userId);
+        if (removed != null) {
+            this.cachedCards -= weight(removed);
+        }
+    }
+
+    private static int weight(Card[] cards) {
+        return cards.length + 1;
+    }
+
+    private static Card copy(Card card) {
+        return new Card(card.getCardId(), card.getName(), card.getDamage(), card.getType(), card.getElement(),
+                card.isActive(), card.getUserId(), card.getPackageId());
+    }
+
+    /**
+     * @return the number of lookups answered from the cache
+     */
+    public synchronized long getHits() {
+        return this.hits;
+    }
+
+    /**
+     * @return the number of lookups that had to go to the database
+     */
+    public synchronized long getMisses() {
+        return this.misses;
+    }
+
+    /**
+     * @return the number of users evicted to stay within the size limit
+     */
+    public synchronized long getEvictions() {
+        return this.evictions;
+    }
+
+    /**
+     * @return hits divided by all lookups, 0 before the first lookup
+     */
+    public synchronized double getHitRate() {
+        long lookups = this.hits + this.misses;
+        return lookups == 0 ? 0 : (double) this.hits / lookups;
+    }
+
+    /**
+     * @return the number of cached users
+     */
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * @return the number of cached cards
+     */
+    public synchronized int cardCount() {
+        return this.cachedCards - this.entries.size();
+    }
+}
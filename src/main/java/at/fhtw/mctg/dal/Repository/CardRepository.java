@@ -6,11 +6,15 @@ import at.fhtw.mctg.model.Card;
 import at.fhtw.mctg.model.CardType;
 import at.fhtw.mctg.model.Elements;
 
+import java.io.StringReader;
+import java.sql.Array;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 /**
  * The CardRepository class provides methods for CRUD operations on Card objects
@@ -19,6 +23,9 @@ import java.util.Collection;
  * <p>
  * This repository utilizes a UnitOfWork instance to manage database transactions
  * and prepared statements for secure and efficient database operations.
+ * <p>
+ * The cards of a user are kept in the {@link CardCache}; every method that changes
+ * the owner or the active state of cards registers the users affected with it.
  */
 public class CardRepository {
     private final UnitOfWork unitOfWork;
@@ -59,6 +66,110 @@ public class CardRepository {
         }
     }
 
+    /**
+     * Creates several cards with a single statement. Cards whose ID already exists,
+     * in the database or earlier in the same call, are skipped.
+     *
+     * @param cards the cards to be persisted, including their package ID
+     * @return the number of cards inserted; less than the number of cards given if there were conflicts
+     * @throws DataAccessException if a database access error occurs or the insert fails
+     */
+    public int createCards(Collection<Card> cards) {
+        String[] ids = new String[cards.size()];
+        String[] names = new String[cards.size()];
+        Integer[] damages = new Integer[cards.size()];
+        String[] types = new String[cards.size()];
+        String[] elements = new String[cards.size()];
+        Integer[] packageIds = new Integer[cards.size()];
+
+        int i = 0;
+        for (Card card : cards) {
+            ids[i] = card.getCardId();
+            names[i] = card.getName();
+            damages[i] = card.getDamage();
+            types[i] = card.getType().name();
+            elements[i] = card.getElement().name();
+            packageIds[i] = card.getPackageId();
+            i++;
+        }
+
+        try (PreparedStatement preparedStatement = this.unitOfWork.prepareStatement(
+                """
+                        INSERT INTO "card" (pk_card_id, name, damage, card_type, element_type, fk_pk_package_id)
+                        SELECT * FROM unnest(?::text[], ?::text[], ?::smallint[], ?::cardTypes[], ?::elementTypes[], ?::integer[])
+                        ON CONFLICT (pk_card_id) DO NOTHING;
+                        """)) {
+            Connection connection = preparedStatement.getConnection();
+            preparedStatement.setArray(1, connection.createArrayOf("text", ids));
+            preparedStatement.setArray(2, connection.createArrayOf("text", names));
+            preparedStatement.setArray(3, connection.createArrayOf("int4", damages));
+            preparedStatement.setArray(4, connection.createArrayOf("text", types));
+            preparedStatement.setArray(5, connection.createArrayOf("text", elements));
+            preparedStatement.setArray(6, connection.createArrayOf("int4", packageIds));
+
+            return preparedStatement.executeUpdate();
+
+        } catch (SQLException e) {
+            throw new DataAccessException("Insert not successful", e);
+        }
+    }
+
+    /**
+     * Bulk import of cards: the cards are streamed into a temporary table with {@code COPY}
+     * and moved into the card table with one insert. Cards whose ID already exists,
+     * in the database or earlier in the import, are skipped.
+     *
+     * @param cards the cards to be persisted, including their package ID
+     * @return the number of cards inserted; less than the number of cards given if there were conflicts
+     * @throws DataAccessException if a database access error occurs or the import fails
+     */
+    public int importCards(Collection<Card> cards) {
+        try (PreparedStatement preparedStatement = this.unitOfWork.prepareStatement(
+                """
+                        CREATE TEMPORARY TABLE card_import (
+                            pk_card_id       TEXT,
+                            name             TEXT,
+                            damage           SMALLINT,
+                            card_type        cardTypes,
+                            element_type     elementTypes,
+                            fk_pk_package_id INTEGER
+                        ) ON COMMIT DROP;
+                        """)) {
+            preparedStatement.execute();
+        } catch (SQLException e) {
+            throw new DataAccessException("Create not successful", e);
+        }
+
+        StringBuilder csv = new StringBuilder(cards.size() * 64);
+        for (Card card : cards) {
+            csv.append(csvValue(card.getCardId())).append(',')
+                    .append(csvValue(card.getName())).append(',')
+                    .append(card.getDamage()).append(',')
+                    .append(card.getType().name()).append(',')
+                    .append(card.getElement().name()).append(',')
+                    .append(card.getPackageId()).append('\n');
+        }
+        this.unitOfWork.copyIn(
+                "COPY card_import (pk_card_id, name, damage, card_type, element_type, fk_pk_package_id) FROM STDIN (FORMAT csv)",
+                new StringReader(csv.toString())
+        );
+
+        try (PreparedStatement preparedStatement = this.unitOfWork.prepareStatement(
+                """
+                        INSERT INTO "card" (pk_card_id, name, damage, card_type, element_type, fk_pk_package_id)
+                        SELECT pk_card_id, name, damage, card_type, element_type, fk_pk_package_id FROM card_import
+                        ON CONFLICT (pk_card_id) DO NOTHING;
+                        """)) {
+            return preparedStatement.executeUpdate();
+        } catch (SQLException e) {
+            throw new DataAccessException("Insert not successful", e);
+        }
+    }
+
+    private static String csvValue(String value) {
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
     /**
      * Retrieves a collection of cards from the database that match the specified card ID.
      *
@@ -101,30 +212,8 @@ public class CardRepository {
     }
 
     /**
-     * Updates the ownership of all cards within a specific package,
-     * assigning them to a given user.
-     *
-     * @param packageId the unique identifier for the card package whose cards are to be acquired.
-     * @param userId    the unique identifier of the user to whom the cards will be assigned.
-     * @throws DataAccessException if a database access error occurs during the update operation.
-     */
-    public void acquireMultipleCards(int packageId, int userId) {
-        try (PreparedStatement preparedStatement = this.unitOfWork.prepareStatement(
-                """
-                        UPDATE "card" SET fk_pk_user_id = ? WHERE fk_pk_package_id = ?;
-                        """)) {
-            preparedStatement.setInt(1, userId);
-            preparedStatement.setInt(2, packageId);
-
-            preparedStatement.execute();
-
-        } catch (SQLException e) {
-            throw new DataAccessException("Update not successful", e);
-        }
-    }
-
-    /**
-     * Retrieves a collection of cards associated with a specific user ID from the database.
+     * Retrieves a collection of cards associated with a specific user ID,
+     * from the {@link CardCache} if possible.
      *
      * @param userId the unique identifier of the user whose cards are to be retrieved
      * @return a collection of {@code Card} objects associated with the specified user ID.
@@ -132,42 +221,20 @@ public class CardRepository {
      * @throws DataAccessException if a database access error occurs or the query execution fails
      */
     public Collection<Card> getCardsByUserId(int userId) {
-        try (PreparedStatement preparedStatement = this.unitOfWork.prepareStatement(
-                """
-                            SELECT pk_card_id, "name", damage, card_type, element_type, is_active, fk_pk_user_id, fk_pk_package_id
-                                                             FROM card
-                                                             WHERE fk_pk_user_id = ?;
-                        """)) {
-
-            preparedStatement.setInt(1, userId);
-
-            ResultSet resultSet = preparedStatement.executeQuery();
-
-            Collection<Card> cardRows = new ArrayList<>();
-
-            while (resultSet.next()) {
-                Card card = new Card(
-                        resultSet.getString(1), // ID
-                        resultSet.getString(2), // NAME
-                        resultSet.getInt(3),    // DAMAGE
-                        CardType.valueOf(resultSet.getString(4)), // TYPE
-                        Elements.valueOf(resultSet.getString(5)), // ELEMENT
-                        resultSet.getBoolean(6),// ACTIVE
-                        resultSet.getInt(7),    // UID
-                        resultSet.getInt(8)     // PACKID
-                );
-
-                cardRows.add(card);
-            }
-
-            return cardRows;
-        } catch (SQLException e) {
-            throw new DataAccessException("Select not successful", e);
+        List<Card> cached = CardCache.INSTANCE.get(userId);
+        if (cached != null) {
+            return new ArrayList<>(cached);
         }
+
+        long generation = CardCache.INSTANCE.generation();
+        Collection<Card> cardRows = loadCardsByUserId(userId);
+        CardCache.INSTANCE.put(userId, cardRows, generation);
+        return cardRows;
     }
 
     /**
      * Retrieves a collection of active cards associated with a specific user ID.
+     * The active cards are taken from the users collection, see {@link #getCardsByUserId(int)}.
      *
      * @param userId the unique identifier of the user whose active cards are to be retrieved
      * @return a collection of {@code Card} objects that are active and associated with the specified user ID.
@@ -175,14 +242,34 @@ public class CardRepository {
      * @throws DataAccessException if a database access error occurs or the query execution fails
      */
     public Collection<Card> getActiveCardsByUserId(int userId) {
+        Collection<Card> cardRows = new ArrayList<>();
+        for (Card card : getCardsByUserId(userId)) {
+            if (card.isActive()) {
+                cardRows.add(card);
+            }
+        }
+        return cardRows;
+    }
+
+    /**
+     * Locks the requested cards owned by the user together with the users active cards,
+     * so the deck cannot change until the transaction ends.
+     *
+     * @param userId  the unique identifier of the user configuring the deck
+     * @param cardIds the unique identifiers of the requested cards
+     * @return the requested cards that belong to the user and the cards that are active right now
+     * @throws DataAccessException if a database access error occurs or the query execution fails
+     */
+    public Collection<Card> lockDeckCards(int userId, String[] cardIds) {
         try (PreparedStatement preparedStatement = this.unitOfWork.prepareStatement(
                 """
-                            SELECT pk_card_id, "name", damage, card_type, element_type, is_active, fk_pk_user_id, fk_pk_package_id
-                                                             FROM card
-                                                             WHERE is_active = TRUE AND fk_pk_user_id = ?;
+                        SELECT pk_card_id, "name", damage, card_type, element_type, is_active, fk_pk_user_id, fk_pk_package_id
+                        FROM card
+                        WHERE fk_pk_user_id = ? AND (pk_card_id = ANY(?) OR is_active)
+                        FOR UPDATE;
                         """)) {
-
             preparedStatement.setInt(1, userId);
+            preparedStatement.setArray(2, preparedStatement.getConnection().createArrayOf("text", cardIds));
 
             ResultSet resultSet = preparedStatement.executeQuery();
 
@@ -210,19 +297,29 @@ public class CardRepository {
     }
 
     /**
-     * Marks a card as active in the database by updating its "is_active" status to TRUE.
+     * Makes the given cards the active deck of a user in one statement:
+     * the requested cards are activated and every other active card of the user is deactivated.
+     * Only cards owned by the user are touched.
      *
-     * @param cardId the unique identifier of the card to be set as active
+     * @param userId  the unique identifier of the user
+     * @param cardIds the unique identifiers of the cards of the new deck
+     * @return the number of cards whose row was updated
      * @throws DataAccessException if a database access error occurs or the update operation fails
      */
-    public void setCardAsActive(String cardId) {
+    public int replaceDeck(int userId, String[] cardIds) {
+        CardCache.INSTANCE.changesCardsOf(this.unitOfWork, userId);
+
         try (PreparedStatement preparedStatement = this.unitOfWork.prepareStatement(
                 """
-                        UPDATE "card" SET is_active = TRUE WHERE pk_card_id = ?;
+                        UPDATE "card" SET is_active = (pk_card_id = ANY(?))
+                        WHERE fk_pk_user_id = ? AND (is_active OR pk_card_id = ANY(?));
                         """)) {
-            preparedStatement.setString(1, cardId);
+            Array ids = preparedStatement.getConnection().createArrayOf("text", cardIds);
+            preparedStatement.setArray(1, ids);
+            preparedStatement.setInt(2, userId);
+            preparedStatement.setArray(3, ids);
 
-            preparedStatement.execute();
+            return preparedStatement.executeUpdate();
 
         } catch (SQLException e) {
             throw new DataAccessException("Update not successful", e);
@@ -239,15 +336,61 @@ public class CardRepository {
     public void updateOwner(String cardId, int uid) {
         try (PreparedStatement preparedStatement = this.unitOfWork.prepareStatement(
                 """
-                        UPDATE "card" SET fk_pk_user_id = ? WHERE pk_card_id = ?;
+                        UPDATE "card" c SET fk_pk_user_id = ?
+                        FROM "card" previous
+                        WHERE c.pk_card_id = ? AND previous.pk_card_id = c.pk_card_id
+                        RETURNING previous.fk_pk_user_id;
                         """)) {
             preparedStatement.setInt(1, uid);
             preparedStatement.setString(2, cardId);
 
-            preparedStatement.execute();
+            ResultSet resultSet = preparedStatement.executeQuery();
+
+            CardCache.INSTANCE.changesCardsOf(this.unitOfWork, uid);
+            if (resultSet.next()) {
+                int previousOwner = resultSet.getInt(1);
+                if (!resultSet.wasNull()) {
+                    CardCache.INSTANCE.changesCardsOf(this.unitOfWork, previousOwner);
+                }
+            }
 
         } catch (SQLException e) {
             throw new DataAccessException("Update not successful", e);
         }
     }
+
+    private Collection<Card> loadCardsByUserId(int userId) {
+        try (PreparedStatement preparedStatement = this.unitOfWork.prepareStatement(
+                """
+                            SELECT pk_card_id, "name", damage, card_type, element_type, is_active, fk_pk_user_id, fk_pk_package_id
+                                                             FROM card
+                                                             WHERE fk_pk_user_id = ?;
+                        """)) {
+
+            preparedStatement.setInt(1, userId);
+
+            ResultSet resultSet = preparedStatement.executeQuery();
+
+            Collection<Card> cardRows = new ArrayList<>();
+
+            while (resultSet.next()) {
+                Card card = new Card(
+                        resultSet.getString(1), // ID
+                        resultSet.getString(2), // NAME
+                        resultSet.getInt(3),    // DAMAGE
+                        CardType.valueOf(resultSet.getString(4)), // TYPE
+                        Elements.valueOf(resultSet.getString(5)), // ELEMENT
+                        resultSet.getBoolean(6),// ACTIVE
+                        resultSet.getInt(7),    // UID
+                        resultSet.getInt(8)     // PACKID
+                );
+
+                cardRows.add(card);
+            }
+
+            return cardRows;
+        } catch (SQLException e) {
+            throw new DataAccessException("Select not successful", e);
+        }
+    }
 }
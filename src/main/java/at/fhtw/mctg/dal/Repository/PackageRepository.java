@@ -7,11 +7,14 @@ import at.fhtw.mctg.model.CardPack;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * The PackageRepository class is responsible for managing database interactions
- * related to packages in the system. It allows creating new packages and fetching
- * available free packages.
+ * related to packages in the system. It allows creating new packages and handing out
+ * the packages still for sale to buyers.
  */
 public class PackageRepository {
     private final UnitOfWork unitOfWork;
@@ -49,37 +52,118 @@ public class PackageRepository {
     }
 
     /**
-     * Fetches a free card package from the database. A free package is identified as
-     * one where all its associated cards have not been assigned to any user. The method
-     * executes a SQL query to locate such a package and retrieves its details.
+     * Creates several package records with one statement.
      *
-     * @return a CardPack object representing the free card package, or null if no such package is available
+     * @param count the number of packages to create
+     * @return the primary keys (IDs) of the new packages in ascending order
+     * @throws DataAccessException if the SQL execution fails or any database interaction error occurs
+     */
+    public List<Integer> createPackages(int count) {
+        try (PreparedStatement preparedStatement = this.unitOfWork.prepareStatement(
+                """
+                        INSERT INTO package (pk_package_id)
+                        SELECT nextval(pg_get_serial_sequence('package', 'pk_package_id')) FROM generate_series(1, ?)
+                        RETURNING pk_package_id
+                        """)) {
+            preparedStatement.setInt(1, count);
+
+            ResultSet resultSet = preparedStatement.executeQuery();
+
+            List<Integer> ids = new ArrayList<>(count);
+            while (resultSet.next()) {
+                ids.add(resultSet.getInt(1));
+            }
+            Collections.sort(ids);
+            return ids;
+        } catch (SQLException e) {
+            throw new DataAccessException("Insert not successful", e);
+        }
+    }
+
+    /**
+     * Deletes a package, e.g. when its cards could not be created.
+     *
+     * @param packageId the unique identifier of the package
+     * @throws DataAccessException if a database error occurs during the delete
+     */
+    public void deletePackage(int packageId) {
+        try (PreparedStatement preparedStatement = this.unitOfWork.prepareStatement(
+                """
+                        DELETE FROM package WHERE pk_package_id = ?
+                        """)) {
+            preparedStatement.setInt(1, packageId);
+
+            preparedStatement.execute();
+        } catch (SQLException e) {
+            throw new DataAccessException("Delete not successful", e);
+        }
+    }
+
+    /**
+     * Buys the oldest package still for sale for a user in a single statement: the package is picked,
+     * the price is debited from the wallet if it is large enough, and the package and its cards are given
+     * to the user. A package is for sale while it has no buyer and contains cards. The free packages are found
+     * through a partial index, and packages locked by concurrent purchases are skipped, so two buyers never get
+     * the same package and the cost does not grow with the number of packages sold.
+     *
+     * @param userId the unique identifier of the buyer
+     * @return the outcome, null if no package is for sale
      * @throws DataAccessException if a database error occurs during query execution
      */
-    public CardPack getFreePack() {
+    public Purchase purchasePack(int userId) {
+        CardCache.INSTANCE.changesCardsOf(this.unitOfWork, userId);
+
         try (PreparedStatement preparedStatement = this.unitOfWork.prepareStatement(
                 """
-                          SELECT p.pk_package_id, p.name, p.price ,COUNT(c.pk_card_id)
-                          FROM "package" p
-                          JOIN "card" c ON p.pk_package_id = c.fk_pk_package_id
-                          GROUP BY p.pk_package_id
-                          HAVING COUNT(c.pk_card_id) = SUM(CASE WHEN c.fk_pk_user_id IS NULL THEN 1 ELSE 0 END)
-                          order by p.pk_package_id;
+                        WITH pack AS (
+                            SELECT p.pk_package_id, p.price
+                            FROM "package" p
+                            WHERE p.fk_pk_user_id IS NULL
+                              AND EXISTS (SELECT 1 FROM "card" c WHERE c.fk_pk_package_id = p.pk_package_id)
+                            ORDER BY p.pk_package_id
+                            LIMIT 1
+                            FOR UPDATE SKIP LOCKED
+                        ), buyer AS (
+                            UPDATE "user" u SET wallet = u.wallet - pack.price
+                            FROM pack
+                            WHERE u.pk_user_id = ? AND u.wallet >= pack.price
+                            RETURNING u.pk_user_id, u.wallet
+                        ), sold AS (
+                            UPDATE "package" p SET fk_pk_user_id = buyer.pk_user_id
+                            FROM pack, buyer
+                            WHERE p.pk_package_id = pack.pk_package_id
+                        ), cards AS (
+                            UPDATE "card" c SET fk_pk_user_id = buyer.pk_user_id
+                            FROM pack, buyer
+                            WHERE c.fk_pk_package_id = pack.pk_package_id
+                        )
+                        SELECT pack.pk_package_id, pack.price, buyer.wallet
+                        FROM pack LEFT JOIN buyer ON TRUE;
                         """)) {
+            preparedStatement.setInt(1, userId);
 
             ResultSet resultSet = preparedStatement.executeQuery();
 
             if (resultSet.next()) {
-                return new CardPack(
-                        resultSet.getInt(1),
-                        resultSet.getString(2),
-                        resultSet.getInt(3)
-                );
+                int wallet = resultSet.getInt(3);
+                boolean paid = !resultSet.wasNull();
+                return new Purchase(resultSet.getInt(1), resultSet.getInt(2), paid, wallet);
             }
 
             return null;
         } catch (SQLException e) {
-            throw new DataAccessException("Select not successful", e);
+            throw new DataAccessException("Purchase not successful", e);
         }
     }
+
+    /**
+     * Outcome of {@link #purchasePack(int)}
+     *
+     * @param packageId the package that was for sale
+     * @param price     its price
+     * @param paid      false if the wallet was too small; nothing was changed then
+     * @param wallet    the wallet after paying
+     */
+    public record Purchase(int packageId, int price, boolean paid, int wallet) {
+    }
 }
@@ -150,33 +150,9 @@ public class UserRepository {
         }
     }
 
-    /**
-     * Updates the wallet balance of a user based on the username and the specified change.
-     * This method retrieves the current wallet balance of the user,
-     * adjusts it by the specified change amount, and updates it in the database.
-     *
-     * @param username the username of the user whose wallet will be updated
-     * @param change   the amount by which the user's wallet balance will be adjusted; can be positive or negative
-     * @throws DataAccessException if a database access error occurs or the update operation fails
-     */
-    public void updateWalletByName(String username, int change) {
-        int current = ((ArrayList<User>) getUserByName(username)).get(0).getWallet();
-        try (PreparedStatement preparedStatement = this.unitOfWork.prepareStatement(
-                """
-                        UPDATE "user" SET wallet = ? WHERE username = ?
-                        """)) {
-            preparedStatement.setInt(1, (current + change));
-            preparedStatement.setString(2, username);
-
-            preparedStatement.execute();
-
-        } catch (SQLException e) {
-            throw new DataAccessException("Update not successful", e);
-        }
-    }
-
     /**
      * Retrieves the statistics for a user identified by their username.
+     * The counters are kept on the user row, so this is a single row read.
      *
      * @param username the username of the user whose stats are to be retrieved
      * @return a {@code Stats} object containing the user's statistics, including username, name, elo, wins, losses, and ties
@@ -185,18 +161,9 @@ public class UserRepository {
     public Stats getUserStatsByName(String username) {
         try (PreparedStatement preparedStatement = this.unitOfWork.prepareStatement(
                 """
-                            SELECT
-                                u.pk_user_id,
-                                u.username,
-                                u.name,
-                                u.elo,
-                                SUM(CASE WHEN ub.status = 'WIN' THEN 1 ELSE 0 END) AS total_wins,
-                                SUM(CASE WHEN ub.status = 'LOSS' THEN 1 ELSE 0 END) AS total_losses,
-                                SUM(CASE WHEN ub.status = 'TIE' THEN 1 ELSE 0 END) AS total_ties
-                            FROM "user" u
-                            LEFT JOIN "user_battle" ub ON u.pk_user_id = ub.fk_pk_user_id
-                            WHERE u.username = ?
-                            GROUP BY u.pk_user_id, u.username, u.elo;
+                            SELECT pk_user_id, username, name, elo, wins, losses, ties
+                            FROM "user"
+                            WHERE username = ?;
                         """)) {
 
             preparedStatement.setString(1, username);
@@ -206,6 +173,7 @@ public class UserRepository {
             resultSet.next();
 
             return new Stats(
+                    resultSet.getInt(1), // user id
                     resultSet.getString(2), // username
                     resultSet.getString(3), // name
                     resultSet.getInt(4), // elo
@@ -229,18 +197,9 @@ public class UserRepository {
     public Collection<Stats> getOrderedStats() {
         try (PreparedStatement preparedStatement = this.unitOfWork.prepareStatement(
                 """
-                            SELECT
-                                u.username,
-                                u.name,
-                                u.pk_user_id,
-                                u.elo,
-                                SUM(CASE WHEN ub.status = 'WIN' THEN 1 ELSE 0 END) AS total_wins,
-                                SUM(CASE WHEN ub.status = 'LOSS' THEN 1 ELSE 0 END) AS total_losses,
-                                SUM(CASE WHEN ub.status = 'TIE' THEN 1 ELSE 0 END) AS total_ties
-                            FROM "user" u
-                            LEFT JOIN "user_battle" ub ON u.pk_user_id = ub.fk_pk_user_id
-                            GROUP BY u.pk_user_id, u.username, u.elo
-                            ORDER BY elo desc;
+                            SELECT username, name, pk_user_id, elo, wins, losses, ties
+                            FROM "user"
+                            ORDER BY elo desc, pk_user_id;
                         """)) {
 
             ResultSet resultSet = preparedStatement.executeQuery();
@@ -249,6 +208,7 @@ public class UserRepository {
 
             while (resultSet.next()) {
                 Stats stats = new Stats(
+                        resultSet.getInt(3), // user id
                         resultSet.getString(1), // username
                         resultSet.getString(2), // name
                         resultSet.getInt(4), // elo
@@ -265,4 +225,37 @@ public class UserRepository {
             throw new DataAccessException("Select not successful", e);
         }
     }
+
+    /**
+     * Recomputes the win, loss and tie counters of every user from the finalized battles in "user_battle".
+     * The counters are normally kept up to date by {@link BattleRepository#finalizeUserBattle};
+     * this repairs them, for example after battles were deleted or imported.
+     *
+     * @return the number of users whose counters were changed
+     * @throws DataAccessException if a database access error occurs or the update fails
+     */
+    public int rebuildStatCounters() {
+        try (PreparedStatement preparedStatement = this.unitOfWork.prepareStatement(
+                """
+                        UPDATE "user" u
+                        SET wins = s.wins, losses = s.losses, ties = s.ties
+                        FROM (
+                            SELECT
+                                u2.pk_user_id,
+                                COUNT(*) FILTER (WHERE ub.status = 'WIN') AS wins,
+                                COUNT(*) FILTER (WHERE ub.status = 'LOSS') AS losses,
+                                COUNT(*) FILTER (WHERE ub.status = 'TIE') AS ties
+                            FROM "user" u2
+                            LEFT JOIN "user_battle" ub ON u2.pk_user_id = ub.fk_pk_user_id
+                            GROUP BY u2.pk_user_id
+                        ) s
+                        WHERE u.pk_user_id = s.pk_user_id
+                          AND (u.wins, u.losses, u.ties) IS DISTINCT FROM (s.wins, s.losses, s.ties)
+                        """)) {
+
+            return preparedStatement.executeUpdate();
+        } catch (SQLException e) {
+            throw new DataAccessException("Update not successful", e);
+        }
+    }
 }
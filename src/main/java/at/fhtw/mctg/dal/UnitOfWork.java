@@ -1,17 +1,34 @@
 package at.fhtw.mctg.dal;
 
+import org.postgresql.PGConnection;
+
+import java.io.IOException;
+import java.io.Reader;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 public class UnitOfWork implements AutoCloseable{
 
     private Connection connection;
+
+    // Statements are closed before the connection goes back to the pool
+    private final List<PreparedStatement> statements = new ArrayList<>();
+
+    // Run once the transaction has been committed or rolled back, see afterCompletion
+    private final Map<String, Runnable> completionActions = new LinkedHashMap<>();
+
     public UnitOfWork() {
         this.connection = DatabaseManager.INSTANCE.getConnection();
         try {
             this.connection.setAutoCommit(false);
         } catch (SQLException e) {
+            DatabaseManager.INSTANCE.releaseConnection(this.connection);
+            this.connection = null;
             throw new DataAccessException("Autocommit nicht deaktivierbar", e);
         }
     }
@@ -23,6 +40,8 @@ public class UnitOfWork implements AutoCloseable{
                 this.connection.commit();
             } catch (SQLException e) {
                 throw new DataAccessException("Commit der Transaktion nicht erfolgreich", e);
+            } finally {
+                this.runCompletionActions();
             }
         }
     }
@@ -33,6 +52,8 @@ public class UnitOfWork implements AutoCloseable{
                 this.connection.rollback();
             } catch (SQLException e) {
                 throw new DataAccessException("Rollback der Transaktion nicht erfolgreich", e);
+            } finally {
+                this.runCompletionActions();
             }
         }
     }
@@ -40,12 +61,41 @@ public class UnitOfWork implements AutoCloseable{
     public void finishWork()
     {
         if (this.connection != null) {
-            try {
-                this.connection.close();
-                this.connection = null;
-            } catch (SQLException e) {
-                throw new DataAccessException("Schließen der Connection nicht erfolgreich", e);
+            for (PreparedStatement statement : this.statements) {
+                try {
+                    statement.close();
+                } catch (SQLException e) {
+                    // the connection is handed back anyway
+                }
             }
+            this.statements.clear();
+
+            DatabaseManager.INSTANCE.releaseConnection(this.connection);
+            this.connection = null;
+            this.runCompletionActions();
+        }
+    }
+
+    /**
+     * Registers an action to run once the current transaction ends, whether it is committed,
+     * rolled back or the connection is handed back without either.
+     *
+     * @param key    an action is registered only once per key until it has run
+     * @param action the action
+     * @return true if the action was registered, false if one with the same key is pending already
+     */
+    public boolean afterCompletion(String key, Runnable action) {
+        return this.completionActions.putIfAbsent(key, action) == null;
+    }
+
+    private void runCompletionActions() {
+        if (this.completionActions.isEmpty()) {
+            return;
+        }
+        List<Runnable> actions = new ArrayList<>(this.completionActions.values());
+        this.completionActions.clear();
+        for (Runnable action : actions) {
+            action.run();
         }
     }
 
@@ -53,7 +103,9 @@ public class UnitOfWork implements AutoCloseable{
     {
         if (this.connection != null) {
             try {
-                return this.connection.prepareStatement(sql);
+                PreparedStatement statement = this.connection.prepareStatement(sql);
+                this.statements.add(statement);
+                return statement;
             } catch (SQLException e) {
                 throw new DataAccessException("Erstellen eines PreparedStatements nicht erfolgreich", e);
             }
@@ -61,6 +113,25 @@ public class UnitOfWork implements AutoCloseable{
         throw new DataAccessException("UnitOfWork hat keine aktive Connection zur Verfügung");
     }
 
+    /**
+     * Streams rows into a table with PostgreSQL {@code COPY ... FROM STDIN}, as part of the current transaction
+     *
+     * @param sql  the COPY statement
+     * @param data the rows in the format named by the statement
+     * @return the number of rows copied
+     */
+    public long copyIn(String sql, Reader data)
+    {
+        if (this.connection != null) {
+            try {
+                return this.connection.unwrap(PGConnection.class).getCopyAPI().copyIn(sql, data);
+            } catch (SQLException | IOException e) {
+                throw new DataAccessException("COPY nicht erfolgreich", e);
+            }
+        }
+        throw new DataAccessException("UnitOfWork hat keine aktive Connection zur Verfügung");
+    }
+
     @Override
     public void close() throws Exception {
         this.finishWork();
@@ -11,6 +11,7 @@ import lombok.Getter;
  */
 public class BattleLog {
     @JsonAlias({"Id"})
+    @Getter
     private int battleId;
 
     @JsonAlias({"RowNr"})
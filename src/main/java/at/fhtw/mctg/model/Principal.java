@@ -0,0 +1,43 @@
+package at.fhtw.mctg.model;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Represents the user a request was authenticated as.
+ *
+ * Only holds what never changes for a user (id, username and role), so it can be cached
+ * per token; values like the wallet or the ELO have to be read from the database.
+ */
+@Getter
+@ToString
+public class Principal {
+    private final int userId;
+
+    private final String username;
+
+    private final Role role;
+
+    /**
+     * Constructor to set all attributes
+     *
+     * @param userId the users id
+     * @param username the username
+     * @param role the role of the user
+     */
+    public Principal(int userId, String username, Role role) {
+        this.userId = userId;
+        this.username = username;
+        this.role = role;
+    }
+
+    /**
+     * Creates the principal of a user loaded from the database
+     *
+     * @param user the user
+     * @return the principal
+     */
+    public static Principal of(User user) {
+        return new Principal(user.getUserId(), user.getUsername(), "admin".equals(user.getUsername()) ? Role.ADMIN : Role.USER);
+    }
+}
@@ -0,0 +1,12 @@
+package at.fhtw.mctg.model;
+
+/**
+ * Represents what an authenticated user is allowed to do.
+ *
+ * - USER: a regular player.
+ * - ADMIN: the admin user, who may additionally create packages.
+ */
+public enum Role {
+    USER,
+    ADMIN
+}
@@ -1,6 +1,7 @@
 package at.fhtw.mctg.model;
 
 import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Getter;
 
 /**
@@ -12,6 +13,9 @@ import lombok.Getter;
  */
 @Getter
 public class Stats {
+    @JsonIgnore
+    private int userId;
+
     @JsonAlias({"Username"})
     private String username;
 
@@ -54,4 +58,20 @@ public class Stats {
         this.losses = losses;
         this.ties = ties;
     }
+
+    /**
+     * Constructor to set all args including the user id
+     *
+     * @param userId the users id
+     * @param username username
+     * @param name user set name
+     * @param elo elo int
+     * @param wins wins int
+     * @param losses loss int
+     * @param ties ties int
+     */
+    public Stats(int userId, String username, String name, int elo, int wins, int losses, int ties) {
+        this(username, name, elo, wins, losses, ties);
+        this.userId = userId;
+    }
 }
@@ -20,14 +20,18 @@ import at.fhtw.mctg.model.Battle;
  *
  * Request processing includes:
  * - Verifying the presence of an Authorization header.
- * - Initializing or joining a battle with the help of BattleController.
- * - Waiting for the battle to complete in a blocking manner.
+ * - Queueing for an opponent and starting the battle with the help of BattleController.
+ * - Leaving the queue again on DELETE.
+ * - Waiting for the battle to complete, up to a timeout.
+ * - Returning the result of a battle by id on GET /battles/{id}.
+ * - Streaming the log of a finished battle on GET /battles/{id}/log, ACCEPTED while it is still running.
  * - Returning the battle logs on successful completion.
  *
  * Responses:
  * - Returns UNAUTHORIZED if the Authorization header is missing or invalid.
  * - Returns BAD_REQUEST for invalid requests or issues during battle initialization.
  * - Returns the battle logs if the battle completes successfully.
+ * - Returns ACCEPTED with the battle id if the battle is still running after the timeout.
  * - Returns an empty response with BAD_REQUEST for unsupported methods.
  */
 public class BattleService implements Service {
@@ -90,11 +94,44 @@ public class BattleService implements Service {
                 );
             }
 
-            battleController.waitForBattle(battle); // blocking!
+            // blocks until the battle is over or the wait times out
+            if (!battleController.waitForBattle(battle)) {
+                return battleController.battlePending(battle);
+            }
 
             return battleController.getLog(battle);
         }
 
+        // GET with Argument: result of a battle that was still running
+        if (request.getMethod() == Method.GET && request.getPathParts() != null && request.getPathParts().size() > 1) {
+            if (request.getHeaderMap().getHeader("Authorization") == null) {
+                return new Response(
+                        HttpStatus.UNAUTHORIZED,
+                        ContentType.JSON,
+                        "{ \"message\" : \"Access token is missing or invalid\" }"
+                );
+            }
+
+            if (request.getPathParts().size() > 2 && "log".equals(request.getPathParts().get(2))) {
+                return battleController.streamLog(request);
+            }
+
+            return battleController.getBattleResult(request);
+        }
+
+        // DELETE: stop waiting for an opponent
+        if (request.getMethod() == Method.DELETE) {
+            if (request.getHeaderMap().getHeader("Authorization") == null) {
+                return new Response(
+                        HttpStatus.UNAUTHORIZED,
+                        ContentType.JSON,
+                        "{ \"message\" : \"Access token is missing or invalid\" }"
+                );
+            }
+
+            return battleController.leaveQueue(request);
+        }
+
         return new Response(
                 HttpStatus.BAD_REQUEST,
                 ContentType.JSON,
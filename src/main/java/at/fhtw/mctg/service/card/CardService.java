@@ -44,6 +44,7 @@ public class CardService implements Service {
      *         - Returns a 401 UNAUTHORIZED response if the "Authorization"
      *           header is missing or invalid
      *         - Returns a 200 OK response with card data if processing is successful
+     *         - GET /cards/cache returns the card cache metrics to the admin
      *         - Returns a 400 BAD_REQUEST response for unsupported HTTP methods
      */
     @Override
@@ -58,6 +59,9 @@ public class CardService implements Service {
                         "{ \"message\" : \"Access token is missing or invalid\" }"
                 );
             }
+            if (request.getPathParts().size() > 1 && request.getPathParts().get(1).equals("cache")) {
+                return this.cardController.getCacheMetrics(request);
+            }
             return this.cardController.getCardsByUid(request);
         }
 
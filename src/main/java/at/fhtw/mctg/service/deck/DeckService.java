@@ -35,6 +35,7 @@ public class DeckService implements Service {
      * @return a Response object representing the outcome of the request. Possible responses include:
      *         - Unauthorized (401): if the "Authorization" header is missing or invalid.
      *         - Bad Request (400): for unsupported methods or malformed requests.
+     *         - PUT /deck?replace=true swaps an already chosen deck for the new one.
      *         - Delegates to DeckController for GET and PUT operations with specific responses based on business logic.
      */
     @Override
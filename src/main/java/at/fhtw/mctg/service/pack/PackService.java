@@ -53,6 +53,7 @@ public class PackService implements Service {
      * header and verifies that the user associated with the token is an admin. Upon
      * successful validation, it delegates the task of creating a pack to the pack controller
      * and adds multiple cards to the created pack using the card controller.
+     * POST /packages/bulk imports many packages at once through the pack controller.
      *
      * If the request does not meet the necessary conditions or uses an unsupported method,
      * it returns the respective error response.
@@ -84,6 +85,11 @@ public class PackService implements Service {
                 );
             }
 
+            // POST /packages/bulk
+            if (request.getPathParts() != null && request.getPathParts().size() > 1 && request.getPathParts().get(1).equals("bulk")) {
+                return this.packController.importPackages(request);
+            }
+
             int id =  this.packController.createPack(request);
             if (id < 0) {
                 return new Response(
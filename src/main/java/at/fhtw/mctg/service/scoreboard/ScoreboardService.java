@@ -34,7 +34,8 @@ public class ScoreboardService implements Service {
      * @param request the HTTP request containing method, headers, and other details
      * @return the HTTP response based on the request method and headers; returns an
      *         UNAUTHORIZED response if the Authorization header is missing, a BAD_REQUEST response
-     *         for unsupported methods, or the result of the scoreboardController for valid GET requests
+     *         for unsupported methods, or the result of the scoreboardController for valid GET requests;
+     *         GET /scoreboard/{username} returns the rank of that user
      */
     @Override
     public Response handleRequest(Request request) {
@@ -48,6 +49,9 @@ public class ScoreboardService implements Service {
                         "{ \"message\" : \"Access token is missing or invalid\" }"
                 );
             }
+            if (request.getPathParts().size() > 1) {
+                return scoreboardController.getRank(request, request.getPathParts().get(1));
+            }
             return scoreboardController.getScoreboard(request);
         }
 
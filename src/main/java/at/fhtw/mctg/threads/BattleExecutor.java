@@ -0,0 +1,73 @@
+package at.fhtw.mctg.threads;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs the battle threads.
+ * <p>
+ * By default every battle gets a platform thread (reused when a previous battle has finished).
+ * With virtual threads enabled every battle runs on its own virtual thread, which costs
+ * next to nothing while the battle waits for the database.
+ */
+public enum BattleExecutor {
+    INSTANCE;
+
+    // battles that have been submitted and not finished yet
+    private final Map<Integer, CompletableFuture<Void>> runningBattles = new ConcurrentHashMap<>();
+
+    private volatile ExecutorService executorService = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "battle");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Switches to one virtual thread per battle.
+     * Should be called at startup, before the first battle is submitted.
+     */
+    public void useVirtualThreads() {
+        ExecutorService previous = this.executorService;
+        this.executorService = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("battle-", 0).factory());
+        previous.shutdown();
+    }
+
+    /**
+     * Starts a battle
+     *
+     * @param battleRunner the battle to run
+     */
+    public void submit(BattleRunner battleRunner) {
+        int battleId = battleRunner.battle.getBattleId();
+        CompletableFuture<Void> finished = new CompletableFuture<>();
+        this.runningBattles.put(battleId, finished);
+
+        try {
+            this.executorService.execute(() -> {
+                try {
+                    battleRunner.run();
+                } finally {
+                    this.runningBattles.remove(battleId);
+                    finished.complete(null);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            this.runningBattles.remove(battleId);
+            finished.complete(null);
+            throw e;
+        }
+    }
+
+    /**
+     * @param battleId the battle
+     * @return a future completed once the battle has finished and its result is stored,
+     * null if the battle is not running (anymore) in this process
+     */
+    public CompletableFuture<Void> getCompletion(int battleId) {
+        return this.runningBattles.get(battleId);
+    }
+}
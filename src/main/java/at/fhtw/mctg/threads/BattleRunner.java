@@ -1,5 +1,9 @@
 package at.fhtw.mctg.threads;
 
+import at.fhtw.mctg.battle.BattleEngine;
+import at.fhtw.mctg.battle.BattleReplay;
+import at.fhtw.mctg.battle.BattleResult;
+import at.fhtw.mctg.battle.Leaderboard;
 import at.fhtw.mctg.controller.battle.BattleController;
 import at.fhtw.mctg.dal.Repository.BattleRepository;
 import at.fhtw.mctg.dal.Repository.CardRepository;
@@ -16,13 +20,10 @@ import java.util.Random;
  * in a card game. It implements the Runnable interface to allow battles to be processed
  * in a separate thread.
  * <p>
- * The `BattleRunner` handles the complete battle logic, including:
- * - Initializing the battle state and variables.
- * - Logging battle-related events and rounds.
- * - Executing battle rounds, where user cards are selected and combat is determined.
- * - Applying game-specific rules and mechanics for card interactions.
- * - Determining the winner of each round.
- * - Ensuring the battle runs for a maximum number of defined rounds or until one user's deck is empty.
+ * The `BattleRunner` handles everything around the battle rules, including:
+ * - Loading the users and their decks.
+ * - Running the battle with the {@link BattleEngine}.
+ * - Writing the replay and the result, including the new ELO values.
  */
 public class BattleRunner implements Runnable {
 
@@ -57,14 +58,9 @@ public class BattleRunner implements Runnable {
     private ArrayList<Card> deckUserB;
 
     /**
-     * Defines the maximum number of battle rounds allowed in a game.
+     * Seed for drawing the cards, so a battle can be replayed.
      */
-    final int MAX_ROUNDS = 100;
-
-    /**
-     * An instance of the Random class used for generating random values during the execution of the BattleRunner class.
-     */
-    private final Random random;
+    private final long seed;
 
     /**
      * Constructs a new BattleRunner instance to manage and run a battle.
@@ -75,201 +71,63 @@ public class BattleRunner implements Runnable {
     public BattleRunner(Battle battle) {
         this.battle = battle;
         this.battleController = new BattleController();
-        this.random = new Random();
+        this.seed = new Random().nextLong();
 
         initVars();
     }
 
     /**
-     * Executes the battle logic for a defined number of rounds or until one player's deck is empty.
-     * The method handles the initialization, execution of battle rounds, applying custom rules,
-     * specifying battle mechanics, and determining the winner based on card damages.
+     * Runs the battle and stores its outcome.
      * <p>
      * Key actions performed by this method:
-     * - Logs the starting details of the battle, including usernames of participants.
-     * - Sets the battle start time and ensures proper transactional handling.
-     * - Executes individual rounds with rules determining interactions between cards (e.g., special abilities and elemental type advantages).
-     * - Applies predefined custom rules based on specific conditions within the game.
-     * - Logs detailed battle progress, including card selections, applied rules, and round outcomes.
-     * - Processes card exchanges between players' decks based on win/loss outcomes of rounds.
-     * - Handles the termination of the battle either by reaching the maximum number of rounds or by deck depletion.
-     * - Records comprehensive logs of every significant battle event and commits changes within transactions.
-     * <p>
-     * Throws runtime exceptions for any issues during the transaction close process.
+     * - Sets the battle start time.
+     * - Lets the {@link BattleEngine} play the rounds; no database access happens while it runs.
+     * - Encodes the battle as a {@link BattleReplay}; the text log is only rendered when it is requested.
+     * - Stores the result of both users, the number of rounds, the new ELO values and the replay
+     *   in one transaction.
+     * - Applies the new stats of both users to the {@link Leaderboard}.
      */
     @Override
     public void run() {
         UnitOfWork unitOfWork = new UnitOfWork();
-        new BattleRepository(unitOfWork).addLogLine(this.battle.getBattleId(), "User A is : " + userA.getUsername());
-        new BattleRepository(unitOfWork).addLogLine(this.battle.getBattleId(), "User B is : " + userA.getUsername());
-
-        // Set the start time for the battle
-        new BattleRepository(unitOfWork).setBattleStart(battle.getBattleId(), new Timestamp(System.currentTimeMillis()));
-
-        unitOfWork.commitTransaction();
-        // Battle logic
-        int round = 0;
-
-        while (round < MAX_ROUNDS && !this.deckUserA.isEmpty() && !this.deckUserB.isEmpty()) {
-            // System.out.println("round = " + round);
-            // System.out.println("this.deckUserA.size() = " + this.deckUserA.size());
-            // System.out.prin tln("this.deckUserB.size() = " + this.deckUserB.size());
-            round++;
-
-            unitOfWork = new UnitOfWork();
-
-            new BattleRepository(unitOfWork).addLogLine(this.battle.getBattleId(), "Starting round " + round);
-
-            // Select random card
-            Card userA_card = this.deckUserA.get(this.random.nextInt(deckUserA.size()));
-            Card userB_card = this.deckUserB.get(this.random.nextInt(deckUserB.size()));
-
-            // get damage values to edit
-            int damageA = userA_card.getDamage();
-            int damageB = userB_card.getDamage();
-
-            // Log cards
-            new BattleRepository(unitOfWork).addLogLine(this.battle.getBattleId(), "Card of User A: " + userA_card.getName() + " with damage " + userA_card.getDamage());
-            new BattleRepository(unitOfWork).addLogLine(this.battle.getBattleId(), "Card of User B: " + userB_card.getName() + " with damage " + userB_card.getDamage());
-
-            // Custom Rule!
-            if ((deckUserA.size() == 1 || deckUserB.size() == 1) && (round % 2 == 0)) {
-                new BattleRepository(unitOfWork).addLogLine(this.battle.getBattleId(), "Custom Rule active!");
-                if (userA.getElo() > userB.getElo()) {
-                    userB_card.setDamage(userB_card.getDamage() * 2);
-                } else if (userA.getElo() < userB.getElo()) {
-                    userA_card.setDamage(userA_card.getDamage() * 2);
-                }
-            }
-
-            // Special rules
-            if (("Goblin".equals(userA_card.getName()) && "Dragon".equals(userB_card.getName()))) {
-                new BattleRepository(unitOfWork).addLogLine(this.battle.getBattleId(), "-> Goblin is too afraid to attack!");
-                damageA = 0;
-            } else if (("Goblin".equals(userB_card.getName()) && "Dragon".equals(userA_card.getName()))) {
-                new BattleRepository(unitOfWork).addLogLine(this.battle.getBattleId(), "-> Goblin is too afraid to attack!");
-                damageB = 0;
-            }
-
-            if (("Wizard".equals(userA_card.getName()) && "Ork".equals(userB_card.getName()))) {
-                new BattleRepository(unitOfWork).addLogLine(this.battle.getBattleId(), "-> Wizard controls Ork. No damage!");
-                damageB = 0;
-            } else if (("Ork".equals(userB_card.getName()) && "Wizard".equals(userA_card.getName()))) {
-                new BattleRepository(unitOfWork).addLogLine(this.battle.getBattleId(), "-> Wizard controls Ork. No damage!");
-                damageA = 0;
-            }
-
-            if (("Knight".equals(userA_card.getName()) && (userB_card.getType() == CardType.SPELL && userB_card.getElement() == Elements.WATER))) {
-                new BattleRepository(unitOfWork).addLogLine(this.battle.getBattleId(), "-> Knight drowns due to WaterSpell!");
-                damageA = 0;
-            } else if (("Knight".equals(userB_card.getName()) && (userA_card.getType() == CardType.SPELL && userA_card.getElement() == Elements.WATER))) {
-                new BattleRepository(unitOfWork).addLogLine(this.battle.getBattleId(), "-> Knight drowns due to WaterSpell!");
-                damageB = 0;
-            }
-
-            if (("Kraken".equals(userA_card.getName()) && userB_card.getType() == CardType.SPELL)) {
-                new BattleRepository(unitOfWork).addLogLine(this.battle.getBattleId(), "-> Kraken is immune to spells!");
-                damageB = 0;
-            } else if (("Kraken".equals(userB_card.getName()) && userA_card.getType() == CardType.SPELL)) {
-                new BattleRepository(unitOfWork).addLogLine(this.battle.getBattleId(), "-> Kraken is immune to spells!");
-                damageA = 0;
-            }
-
-            if (("FireElf".equals(userA_card.getName()) && "Dragon".equals(userB_card.getName()))) {
-                new BattleRepository(unitOfWork).addLogLine(this.battle.getBattleId(), "-> FireElf evades Dragon's attack!");
-                damageB = 0;
-            } else if (("FireElf".equals(userB_card.getName()) && "Dragon".equals(userA_card.getName()))) {
-                new BattleRepository(unitOfWork).addLogLine(this.battle.getBattleId(), "-> FireElf evades Dragon's attack!");
-                damageA = 0;
-            }
-
-            // Spell affects damage
-            if (userA_card.getType() == CardType.SPELL || userB_card.getType() == CardType.SPELL) {
-                new BattleRepository(unitOfWork).addLogLine(this.battle.getBattleId(), "Spell affects the damage calculation!");
-
-                // water -> fire
-                if (userA_card.getElement() == Elements.WATER && userB_card.getElement() == Elements.FIRE) {
-                    new BattleRepository(unitOfWork).addLogLine(this.battle.getBattleId(), "-> Fire > Water");
-                    damageA = 2 * damageA;
-                } else if (userB_card.getElement() == Elements.WATER && userA_card.getElement() == Elements.FIRE) {
-                    new BattleRepository(unitOfWork).addLogLine(this.battle.getBattleId(), "-> Fire > Water");
-                    damageB = 2 * damageB;
-                }
-
-                // fire -> normal
-                if (userA_card.getElement() == Elements.FIRE && userB_card.getElement() == Elements.NORMAL) {
-                    new BattleRepository(unitOfWork).addLogLine(this.battle.getBattleId(), "-> Fire > Normal");
-                    damageA = 2 * damageA;
-                } else if (userB_card.getElement() == Elements.FIRE && userA_card.getElement() == Elements.NORMAL) {
-                    new BattleRepository(unitOfWork).addLogLine(this.battle.getBattleId(), "-> Fire > Normal");
-                    damageB = 2 * damageB;
-                }
-
-                // normal -> water
-                if (userA_card.getElement() == Elements.NORMAL && userB_card.getElement() == Elements.WATER) {
-                    new BattleRepository(unitOfWork).addLogLine(this.battle.getBattleId(), "->  Normal > Water");
-                    damageA = 2 * damageA;
-                } else if (userB_card.getElement() == Elements.NORMAL && userA_card.getElement() == Elements.WATER) {
-                    new BattleRepository(unitOfWork).addLogLine(this.battle.getBattleId(), "-> Normal > Water");
-                    damageB = 2 * damageB;
-                }
-            }
-
-            // determine winner based on damage
-            new BattleRepository(unitOfWork).addLogLine(this.battle.getBattleId(), "Damage is " + damageA + " (A) vs " + damageB + "(B)");
-            if (damageA > damageB) {
-                // user A wins
-                new BattleRepository(unitOfWork).addLogLine(this.battle.getBattleId(), "User A wins round " + round);
-                deckUserA.add(userB_card);
-                deckUserB.remove(userB_card);
-            } else if (damageA < damageB) {
-                // user B wins
-                new BattleRepository(unitOfWork).addLogLine(this.battle.getBattleId(), "User B wins round " + round);
-                deckUserB.add(userA_card);
-                deckUserA.remove(userA_card);
-            } else {
-                // tie
-                new BattleRepository(unitOfWork).addLogLine(this.battle.getBattleId(), "Round " + round + " is a tie");
-            }
-
+        try (unitOfWork) {
+            // Set the start time for the battle
+            new BattleRepository(unitOfWork).setBattleStart(battle.getBattleId(), new Timestamp(System.currentTimeMillis()));
 
             unitOfWork.commitTransaction();
-            unitOfWork.finishWork();
-            try {
-                unitOfWork.close();
-            } catch (Exception e) {
-                throw new RuntimeException(e);
-            }
+        } catch (Exception e) {
+            e.printStackTrace();
+
+            unitOfWork.rollbackTransaction();
+            return;
         }
 
+        // Battle logic
+        BattleResult result = new BattleEngine().fight(this.deckUserA, this.deckUserB, userA.getElo(), userB.getElo(), this.seed);
+        byte[] replay = BattleReplay.encode(userA.getUsername(), userB.getUsername(), userA.getElo(), userB.getElo(), this.seed, result);
+
         // Overall winner
         UnitOfWork unitOfWorkOverall = new UnitOfWork();
         try (unitOfWorkOverall) {
 
-            new BattleRepository(unitOfWorkOverall).addLogLine(this.battle.getBattleId(), "### Rounds complete ###");
-            if (deckUserA.isEmpty()) {
-                new BattleRepository(unitOfWorkOverall).addLogLine(this.battle.getBattleId(), "User B (" + (userB.getUsername()) + ") wins!");
-
-                userA.setElo(userA.getElo() - 5);
-                userB.setElo(userB.getElo() + 3);
-                new BattleRepository(unitOfWorkOverall).finalizeUserBattle(battle.getBattleId(), userA.getUserId(), BattleStatus.LOSS);
-                new BattleRepository(unitOfWorkOverall).finalizeUserBattle(battle.getBattleId(), userB.getUserId(), BattleStatus.WIN);
-            } else if (deckUserB.isEmpty()) {
-                new BattleRepository(unitOfWorkOverall).addLogLine(this.battle.getBattleId(), "User A (" + (userA.getUsername()) + ") wins!");
-
-                userA.setElo(userA.getElo() + 3);
-                userB.setElo(userB.getElo() - 5);
-                new BattleRepository(unitOfWorkOverall).finalizeUserBattle(battle.getBattleId(), userA.getUserId(), BattleStatus.LOSS);
-                new BattleRepository(unitOfWorkOverall).finalizeUserBattle(battle.getBattleId(), userB.getUserId(), BattleStatus.WIN);
-            } else {
-                new BattleRepository(unitOfWorkOverall).addLogLine(this.battle.getBattleId(), "Battle is a draw!");
-
-                new BattleRepository(unitOfWorkOverall).finalizeUserBattle(battle.getBattleId(), userA.getUserId(), BattleStatus.TIE);
-                new BattleRepository(unitOfWorkOverall).finalizeUserBattle(battle.getBattleId(), userB.getUserId(), BattleStatus.TIE);
+            switch (result.getStatusA()) {
+                case WIN -> {
+                    userA.setElo(userA.getElo() + 3);
+                    userB.setElo(userB.getElo() - 5);
+                }
+                case LOSS -> {
+                    userA.setElo(userA.getElo() - 5);
+                    userB.setElo(userB.getElo() + 3);
+                }
+                case TIE -> {
+                    // a draw leaves the ELO unchanged
+                }
             }
+            new BattleRepository(unitOfWorkOverall).finalizeUserBattle(battle.getBattleId(), userA.getUserId(), result.getStatusA());
+            new BattleRepository(unitOfWorkOverall).finalizeUserBattle(battle.getBattleId(), userB.getUserId(), result.getStatusB());
 
             // set battle infos
-            new BattleRepository(unitOfWorkOverall).finalizeBattle(battle.getBattleId(), new Timestamp(System.currentTimeMillis()), round);
+            new BattleRepository(unitOfWorkOverall).finalizeBattle(battle.getBattleId(), new Timestamp(System.currentTimeMillis()), result.getRounds());
 
             // set user stats
             // ELO
@@ -278,8 +136,18 @@ public class BattleRunner implements Runnable {
             new UserRepository(unitOfWorkOverall).updateUserByName(userA.getUsername(), userA);
             new UserRepository(unitOfWorkOverall).updateUserByName(userB.getUsername(), userB);
 
+            // the log is rendered from the replay when it is requested
+            new BattleRepository(unitOfWorkOverall).setBattleReplay(battle.getBattleId(), replay);
+
+            // read while the rows are locked, so the leaderboard gets the stats as committed
+            Stats statsA = new UserRepository(unitOfWorkOverall).getUserStatsByName(userA.getUsername());
+            Stats statsB = new UserRepository(unitOfWorkOverall).getUserStatsByName(userB.getUsername());
+
             unitOfWorkOverall.commitTransaction();
 
+            Leaderboard.INSTANCE.update(statsA);
+            Leaderboard.INSTANCE.update(statsB);
+
         } catch (Exception e) {
             e.printStackTrace();
 
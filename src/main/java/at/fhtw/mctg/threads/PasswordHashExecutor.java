@@ -0,0 +1,128 @@
+package at.fhtw.mctg.threads;
+
+import at.fhtw.mctg.utils.PasswordHash;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the password hashing of registrations and logins.
+ * <p>
+ * Hashing is deliberately slow, so it gets a few threads of its own and a short queue.
+ * The calling request thread blocks until its hash is done, so the number of callers is limited as well:
+ * it stays below the number of HTTP workers ({@code mctg.http.workers}), and a caller that finds no free slot
+ * is rejected right away. A burst of logins therefore cannot park every worker and block the other endpoints.
+ * <p>
+ * Threads and queue size are set with {@code mctg.password.threads} (default: half the processors)
+ * and {@code mctg.password.queueSize} (default: twice the threads). The number of callers waiting for a hash
+ * is at most threads + queue size and at most {@code mctg.password.maxCallers} (default: half the HTTP workers).
+ */
+public class PasswordHashExecutor {
+
+    private static final int THREADS = Integer.getInteger("mctg.password.threads", Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+
+    /**
+     * The executor used by the controllers
+     */
+    public static final PasswordHashExecutor INSTANCE = new PasswordHashExecutor(
+            THREADS,
+            Integer.getInteger("mctg.password.queueSize", THREADS * 2),
+            Integer.getInteger("mctg.password.maxCallers", Math.max(1, Integer.getInteger("mctg.http.workers", 32) / 2))
+    );
+
+    private final ThreadPoolExecutor executor;
+
+    // one permit per request thread waiting for a hash
+    private final Semaphore callers;
+
+    /**
+     * @param threads   number of hashing threads
+     * @param queueSize number of hashes that may wait for a thread
+     */
+    PasswordHashExecutor(int threads, int queueSize) {
+        this(threads, queueSize, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param threads    number of hashing threads
+     * @param queueSize  number of hashes that may wait for a thread
+     * @param maxCallers number of request threads that may wait for a hash, keep it below the HTTP workers
+     */
+    PasswordHashExecutor(int threads, int queueSize, int maxCallers) {
+        this.callers = new Semaphore((int) Math.max(1, Math.min((long) threads + Math.max(1, queueSize), maxCallers)));
+        this.executor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueSize)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+    }
+
+    /**
+     * Hashes a new password
+     *
+     * @param password the password
+     * @return the value to store, see {@link PasswordHash#generateHashedPassword}
+     * @throws RejectedExecutionException if too many passwords are being hashed already
+     */
+    public String hash(String password) throws Exception {
+        return run(() -> PasswordHash.generateHashedPassword(password));
+    }
+
+    /**
+     * Checks a password
+     *
+     * @param password       the password entered
+     * @param storedPassword the stored value
+     * @return true if they match
+     * @throws RejectedExecutionException if too many passwords are being hashed already
+     */
+    public boolean verify(String password, String storedPassword) throws Exception {
+        return run(() -> PasswordHash.verifyPassword(password, storedPassword));
+    }
+
+    /**
+     * Runs a task and waits for its result, the calling thread blocks meanwhile
+     *
+     * @throws RejectedExecutionException if the maximum number of callers is waiting already
+     */
+    <T> T run(Callable<T> task) throws Exception {
+        if (!this.callers.tryAcquire()) {
+            throw new RejectedExecutionException("Too many callers waiting for a password hash");
+        }
+        try {
+            Future<T> result = this.executor.submit(task);
+            try {
+                return result.get();
+            } catch (InterruptedException e) {
+                result.cancel(true);
+                Thread.currentThread().interrupt();
+                throw e;
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception cause ? cause : e;
+            }
+        } finally {
+            this.callers.release();
+        }
+    }
+
+    /**
+     * @return the number of tasks waiting for a thread
+     */
+    int queued() {
+        return this.executor.getQueue().size();
+    }
+}
@@ -1,71 +1,131 @@
 package at.fhtw.mctg.utils;
 
 import java.nio.charset.StandardCharsets;
-import java.security.InvalidKeyException;
-import java.security.NoSuchAlgorithmException;
+import java.security.GeneralSecurityException;
 import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
 
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 
 /**
- * Basic implementation for JWT Tokens
+ * Basic implementation for JWT Tokens, signed with HS256
+ * <p>
+ * Every thread keeps an initialized {@link Mac}, so signing and verifying only hash the token.
+ * Signatures are compared in constant time. The claims are read with a small parser for flat JSON objects.
  */
 public class JWTGenerator {
 
-    private static final String SECRET_KEY = "s3cretpassword";
+    private static final String SECRET_KEY = System.getProperty("mctg.auth.jwtSecret", "s3cretpassword");
+
+    private static final String HEADER = "{\"alg\":\"HS256\",\"typ\":\"JWT\"}";
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private static final ThreadLocal<Mac> HMAC = ThreadLocal.withInitial(() -> {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(SECRET_KEY.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not initialize Sha256 hmac algo", e);
+        }
+    });
 
     public static String createJWT(String header, String payload) {
         // Base64 Encode Header and Payload
-        String encodedHeader = Base64.getUrlEncoder().withoutPadding().encodeToString(header.getBytes(StandardCharsets.UTF_8));
-        String encodedPayload = Base64.getUrlEncoder().withoutPadding().encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+        String encodedHeader = ENCODER.encodeToString(header.getBytes(StandardCharsets.UTF_8));
+        String encodedPayload = ENCODER.encodeToString(payload.getBytes(StandardCharsets.UTF_8));
 
         // Cat header and payload
         String unsignedToken = encodedHeader + "." + encodedPayload;
 
         // create and add signature
-        String signature = createHMACSHA256Signature(unsignedToken);
-        return unsignedToken + "." + signature;
+        byte[] data = unsignedToken.getBytes(StandardCharsets.US_ASCII);
+        return unsignedToken + "." + new String(sign(data, data.length), StandardCharsets.US_ASCII);
     }
 
-    private static String createHMACSHA256Signature(String data) {
-        // Access Sha256 hmac algo
-        Mac sha256HMAC = null;
-        try {
-            sha256HMAC = Mac.getInstance("HmacSHA256");
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("Could not access Sha256 hash algo", e);
-        }
-
-        //Initialize hmac algo with secret key
-        SecretKeySpec secretKeySpec = new SecretKeySpec(JWTGenerator.SECRET_KEY.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
-        try {
-            sha256HMAC.init(secretKeySpec);
-        } catch (InvalidKeyException e) {
-            throw new RuntimeException("Could not initialize Sha256 hash algo", e);
-        }
+    /**
+     * Creates a signed token for a user
+     *
+     * @param userId    the users id
+     * @param username  the username
+     * @param role      the role of the user
+     * @param expiresAt expiry in seconds since the epoch
+     * @return the token
+     */
+    public static String createToken(int userId, String username, String role, long expiresAt) {
+        String payload = "{\"sub\":" + quote(username)
+                + ",\"uid\":" + userId
+                + ",\"role\":" + quote(role)
+                + ",\"iat\":" + System.currentTimeMillis() / 1000
+                + ",\"exp\":" + expiresAt + "}";
+        return createJWT(HEADER, payload);
+    }
 
-        // Sign data with hash algo
-        byte[] signedBytes = sha256HMAC.doFinal(data.getBytes(StandardCharsets.UTF_8));
-        return Base64.getUrlEncoder().withoutPadding().encodeToString(signedBytes);
+    /**
+     * @return the base64url encoded HMAC of the first {@code length} bytes
+     */
+    private static byte[] sign(byte[] data, int length) {
+        Mac mac = HMAC.get();
+        mac.update(data, 0, length);
+        return ENCODER.encode(mac.doFinal());
     }
 
+    /**
+     * Checks the signature; the header and payload are not decoded
+     *
+     * @param token the token
+     * @return true if the token was signed with our key
+     */
     public static boolean validateJWT(String token) {
-        String[] parts = token.split("\\.");
-        if (parts.length != 3) return false;
+        int payloadStart = token.indexOf('.') + 1;
+        int signatureStart = payloadStart > 0 ? token.indexOf('.', payloadStart) + 1 : 0;
+        if (signatureStart == 0 || token.indexOf('.', signatureStart) >= 0) {
+            return false;
+        }
+
+        byte[] data = token.getBytes(StandardCharsets.US_ASCII);
+        byte[] expected = sign(data, signatureStart - 1);
+        if (expected.length != data.length - signatureStart) {
+            return false;
+        }
 
-        String header = new String(Base64.getUrlDecoder().decode(parts[0]), StandardCharsets.UTF_8);
-        String payload = new String(Base64.getUrlDecoder().decode(parts[1]), StandardCharsets.UTF_8);
-        String signature = parts[2];
+        // constant time, so the time taken does not tell how much of a forged signature is right
+        int difference = 0;
+        for (int i = 0; i < expected.length; i++) {
+            difference |= expected[i] ^ data[signatureStart + i];
+        }
+        return difference == 0;
+    }
 
-        // Token ohne Signatur
-        String unsignedToken = parts[0] + "." + parts[1];
+    /**
+     * Validates a token and reads its claims
+     *
+     * @param token the token
+     * @return the claims, strings and numbers (as {@code Long}) by name;
+     *         null if the signature is wrong, the payload is not a JSON object or the token has expired
+     */
+    public static Map<String, Object> verify(String token) {
+        if (!validateJWT(token)) {
+            return null;
+        }
 
-        // Erzeuge eine neue Signatur
-        String expectedSignature = createHMACSHA256Signature(unsignedToken);
+        int payloadStart = token.indexOf('.') + 1;
+        Map<String, Object> claims;
+        try {
+            byte[] payload = Base64.getUrlDecoder().decode(token.substring(payloadStart, token.indexOf('.', payloadStart)));
+            claims = new ClaimsParser(new String(payload, StandardCharsets.UTF_8)).parse();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
 
-        // Überprüfe die Signatur
-        return expectedSignature.equals(signature);
+        Object expiresAt = claims.get("exp");
+        if (expiresAt != null && (!(expiresAt instanceof Long) || (Long) expiresAt <= System.currentTimeMillis() / 1000)) {
+            return null;
+        }
+        return claims;
     }
 
     public static String decodePayload(String token) {
@@ -80,4 +140,132 @@ public class JWTGenerator {
             return null;
         }
     }
-}
\ No newline at end of file
+
+    private static String quote(String value) {
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    /**
+     * Reads a flat JSON object whose values are strings, integers, booleans or null; nested values are rejected
+     */
+    private static final class ClaimsParser {
+        private final String json;
+        private int position = 0;
+
+        ClaimsParser(String json) {
+            this.json = json;
+        }
+
+        Map<String, Object> parse() {
+            Map<String, Object> claims = new HashMap<>();
+            expect('{');
+            if (peek() != '}') {
+                do {
+                    String name = readString();
+                    expect(':');
+                    claims.put(name, readValue());
+                } while (accept(','));
+            }
+            expect('}');
+            if (peek() != 0) {
+                throw new IllegalArgumentException("Trailing data in claims");
+            }
+            return claims;
+        }
+
+        private Object readValue() {
+            char c = peek();
+            if (c == '"') {
+                return readString();
+            }
+            if (c == '-' || c >= '0' && c <= '9') {
+                int start = this.position;
+                this.position++;
+                while (this.position < this.json.length() && Character.isDigit(this.json.charAt(this.position))) {
+                    this.position++;
+                }
+                return Long.parseLong(this.json, start, this.position, 10);
+            }
+            for (String literal : new String[]{"true", "false", "null"}) {
+                if (this.json.startsWith(literal, this.position)) {
+                    this.position += literal.length();
+                    return literal.equals("null") ? null : Boolean.valueOf(literal);
+                }
+            }
+            throw new IllegalArgumentException("Unsupported claim value");
+        }
+
+        private String readString() {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (true) {
+                if (this.position >= this.json.length()) {
+                    throw new IllegalArgumentException("Unterminated string in claims");
+                }
+                char c = this.json.charAt(this.position++);
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                if (this.position >= this.json.length()) {
+                    throw new IllegalArgumentException("Unterminated string in claims");
+                }
+                char escaped = this.json.charAt(this.position++);
+                switch (escaped) {
+                    case '"', '\\', '/' -> value.append(escaped);
+                    case 'b' -> value.append('\b');
+                    case 'f' -> value.append('\f');
+                    case 'n' -> value.append('\n');
+                    case 'r' -> value.append('\r');
+                    case 't' -> value.append('\t');
+                    case 'u' -> {
+                        if (this.position + 4 > this.json.length()) {
+                            throw new IllegalArgumentException("Invalid escape in claims");
+                        }
+                        value.append((char) Integer.parseInt(this.json, this.position, this.position + 4, 16));
+                        this.position += 4;
+                    }
+                    default -> throw new IllegalArgumentException("Invalid escape in claims");
+                }
+            }
+        }
+
+        /**
+         * @return the next character after whitespace, 0 at the end
+         */
+        private char peek() {
+            while (this.position < this.json.length() && Character.isWhitespace(this.json.charAt(this.position))) {
+                this.position++;
+            }
+            return this.position < this.json.length() ? this.json.charAt(this.position) : 0;
+        }
+
+        private boolean accept(char c) {
+            if (peek() == c) {
+                this.position++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(char c) {
+            if (!accept(c)) {
+                throw new IllegalArgumentException("Expected '" + c + "' in claims");
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package at.fhtw.mctg.utils;
+
+import at.fhtw.mctg.model.Card;
+import at.fhtw.mctg.model.CardType;
+import at.fhtw.mctg.model.Elements;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads card packages for the bulk import and derives the type and element of a card from its name.
+ * <p>
+ * JSON files hold an array of packages, each an array of cards as posted to {@code /packages}.
+ * CSV files hold one card per line as {@code package,Id,Name,Damage}; lines with the same package key
+ * form one package, in the order the keys first appear. A first line starting with {@code package} is a header.
+ */
+public class PackageParser {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * @param json an array of packages
+     * @return the packages with type and element set
+     * @throws IllegalArgumentException if the content is not valid
+     */
+    public static List<List<Card>> parseJson(String json) {
+        Card[][] packages;
+        try {
+            packages = MAPPER.readValue(json, Card[][].class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid package file: " + e.getOriginalMessage(), e);
+        }
+        if (packages == null) {
+            throw new IllegalArgumentException("Invalid package file: no packages");
+        }
+
+        List<List<Card>> result = new ArrayList<>(packages.length);
+        for (Card[] cards : packages) {
+            result.add(validate(cards == null ? List.of() : Arrays.asList(cards)));
+        }
+        return result;
+    }
+
+    /**
+     * @param csv lines of {@code package,Id,Name,Damage}
+     * @return the packages with type and element set
+     * @throws IllegalArgumentException if the content is not valid
+     */
+    public static List<List<Card>> parseCsv(String csv) {
+        Map<String, List<Card>> packages = new LinkedHashMap<>();
+        String[] lines = csv.split("\r?\n");
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i].trim();
+            if (line.isEmpty() || i == 0 && line.toLowerCase().startsWith("package")) {
+                continue;
+            }
+
+            String[] columns = line.split(",", -1);
+            if (columns.length != 4) {
+                throw new IllegalArgumentException("Invalid package file: line " + (i + 1) + " does not have 4 columns");
+            }
+            Card card = new Card();
+            card.setCardId(columns[1].trim());
+            card.setName(columns[2].trim());
+            try {
+                card.setDamage((int) Double.parseDouble(columns[3].trim()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid package file: line " + (i + 1) + " has an invalid damage", e);
+            }
+            packages.computeIfAbsent(columns[0].trim(), key -> new ArrayList<>()).add(card);
+        }
+
+        List<List<Card>> result = new ArrayList<>(packages.size());
+        for (List<Card> cards : packages.values()) {
+            result.add(validate(cards));
+        }
+        return result;
+    }
+
+    /**
+     * Sets type and element of a card from its name, e.g. "WaterSpell" is a water spell
+     *
+     * @param card the card
+     */
+    public static void classify(Card card) {
+        // check if card is spell or monster
+        if (card.getName().contains("Spell")) {
+            card.setType(CardType.SPELL);
+        } else {
+            card.setType(CardType.MONSTER);
+        }
+
+        // check element of card
+        if (card.getName().contains("Water")) {
+            card.setElement(Elements.WATER);
+        } else if (card.getName().contains("Fire")) {
+            card.setElement(Elements.FIRE);
+        } else {
+            card.setElement(Elements.NORMAL);
+        }
+    }
+
+    private static List<Card> validate(List<Card> cards) {
+        if (cards.isEmpty()) {
+            throw new IllegalArgumentException("Invalid package file: empty package");
+        }
+        for (Card card : cards) {
+            if (card == null || card.getCardId() == null || card.getCardId().isEmpty() || card.getName() == null || card.getName().isEmpty()) {
+                throw new IllegalArgumentException("Invalid package file: card without id or name");
+            }
+            classify(card);
+        }
+        return cards;
+    }
+}
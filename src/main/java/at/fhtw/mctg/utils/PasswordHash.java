@@ -2,27 +2,39 @@ package at.fhtw.mctg.utils;
 
 import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.security.spec.InvalidKeySpecException;
 import java.util.Base64;
 
+/**
+ * Password hashing with PBKDF2
+ * <p>
+ * The number of iterations for new hashes is set with {@code mctg.password.iterations}.
+ * A hash made with a different number than the original 10000 stores it as a third part ("salt:hash:iterations"),
+ * so existing hashes stay valid when the cost is changed.
+ * Run the hashing through {@link at.fhtw.mctg.threads.PasswordHashExecutor} on request threads.
+ */
 public class PasswordHash {
     // Using PBKDF2
 
-    private static final int ITERATIONS = 10000;
+    private static final int DEFAULT_ITERATIONS = 10000;
+    private static final int ITERATIONS = Integer.getInteger("mctg.password.iterations", DEFAULT_ITERATIONS);
     private static final int KEY_LENGTH = 256; // 256-bit hash
     private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
 
+    private static final SecureRandom RANDOM = new SecureRandom();
+
     private static String getSalt() {
-        SecureRandom random = new SecureRandom();
         byte[] salt = new byte[16]; // 128-bit salt
-        random.nextBytes(salt);
+        RANDOM.nextBytes(salt);
         return Base64.getEncoder().encodeToString(salt);
     }
 
-    private static String hashPassword(String password, String salt) throws NoSuchAlgorithmException, InvalidKeySpecException {
-        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt.getBytes(), ITERATIONS, KEY_LENGTH);
+    private static String hashPassword(String password, String salt, int iterations) throws NoSuchAlgorithmException, InvalidKeySpecException {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt.getBytes(), iterations, KEY_LENGTH);
         SecretKeyFactory factory = SecretKeyFactory.getInstance(ALGORITHM);
         byte[] hash = factory.generateSecret(spec).getEncoded();
         return Base64.getEncoder().encodeToString(hash);
@@ -30,15 +42,19 @@ public class PasswordHash {
 
     public static String generateHashedPassword(String password) throws NoSuchAlgorithmException, InvalidKeySpecException {
         String salt = getSalt();
-        String hashedPassword = hashPassword(password, salt);
-        return salt + ":" + hashedPassword; // Store salt with the hashed password
+        String hashedPassword = hashPassword(password, salt, ITERATIONS);
+        // Store salt with the hashed password
+        return ITERATIONS == DEFAULT_ITERATIONS
+                ? salt + ":" + hashedPassword
+                : salt + ":" + hashedPassword + ":" + ITERATIONS;
     }
 
     public static boolean verifyPassword(String password, String storedPassword) throws NoSuchAlgorithmException, InvalidKeySpecException {
         String[] parts = storedPassword.split(":");
         String salt = parts[0];
         String hash = parts[1];
-        String newHash = hashPassword(password, salt);
-        return newHash.equals(hash);
+        int iterations = parts.length > 2 ? Integer.parseInt(parts[2]) : DEFAULT_ITERATIONS;
+        String newHash = hashPassword(password, salt, iterations);
+        return MessageDigest.isEqual(newHash.getBytes(StandardCharsets.US_ASCII), hash.getBytes(StandardCharsets.US_ASCII));
     }
 }
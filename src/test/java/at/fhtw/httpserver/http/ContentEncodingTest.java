@@ -0,0 +1,67 @@
+package at.fhtw.httpserver.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContentEncodingTest {
+
+    private static final byte[] BODY = "[{\"username\":\"kienboec\",\"elo\":100}]".repeat(50).getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void testNegotiate() {
+        assertNull(ContentEncoding.negotiate(null));
+        assertNull(ContentEncoding.negotiate("br, identity"));
+        assertEquals(ContentEncoding.GZIP, ContentEncoding.negotiate("gzip, deflate, br"));
+        assertEquals(ContentEncoding.DEFLATE, ContentEncoding.negotiate("deflate"));
+        assertEquals(ContentEncoding.DEFLATE, ContentEncoding.negotiate("gzip;q=0.5, DEFLATE"));
+        assertEquals(ContentEncoding.GZIP, ContentEncoding.negotiate("*"));
+        assertEquals(ContentEncoding.DEFLATE, ContentEncoding.negotiate("gzip;q=0, *"));
+        assertNull(ContentEncoding.negotiate("gzip;q=0, deflate;q=0"));
+    }
+
+    @Test
+    void testCompress_gzipRoundTrip() throws IOException {
+        // Act
+        byte[] compressed = ContentEncoding.GZIP.compress(BODY);
+
+        // Assert
+        assertTrue(compressed.length < BODY.length / 10);
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            assertArrayEquals(BODY, in.readAllBytes());
+        }
+    }
+
+    @Test
+    void testCompress_deflateRoundTrip() throws IOException {
+        // Act
+        byte[] compressed = ContentEncoding.DEFLATE.compress(BODY);
+
+        // Assert
+        try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(compressed))) {
+            assertArrayEquals(BODY, in.readAllBytes());
+        }
+    }
+
+    @Test
+    void testCompressCached_reusesResultForSameContent() {
+        // Arrange
+        String content = new String(BODY, StandardCharsets.UTF_8);
+
+        // Act
+        byte[] first = ContentEncoding.GZIP.compressCached(content, BODY);
+        byte[] second = ContentEncoding.GZIP.compressCached(new String(BODY, StandardCharsets.UTF_8), BODY);
+        byte[] deflated = ContentEncoding.DEFLATE.compressCached(content, BODY);
+
+        // Assert
+        assertSame(first, second);
+        assertNotSame(first, deflated);
+    }
+}
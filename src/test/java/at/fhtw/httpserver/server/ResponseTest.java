@@ -0,0 +1,112 @@
+package at.fhtw.httpserver.server;
+
+import at.fhtw.httpserver.http.ContentType;
+import at.fhtw.httpserver.http.HttpStatus;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseTest {
+
+    private static String string(ByteBuffer buffer) {
+        return StandardCharsets.UTF_8.decode(buffer.duplicate()).toString();
+    }
+
+    @Test
+    void testEncode_contentLengthCountsBytes() {
+        // Arrange
+        Response response = new Response(HttpStatus.OK, ContentType.JSON, "{ \"Name\" : \"Drachenähnlicher 火\" }");
+
+        // Act
+        ByteBuffer[] encoded = response.encode(true);
+
+        // Assert
+        int bodyLength = response.getContent().getBytes(StandardCharsets.UTF_8).length;
+        assertEquals(2, encoded.length);
+        assertTrue(string(encoded[0]).startsWith("HTTP/1.1 200 OK\r\n"));
+        assertTrue(string(encoded[0]).contains("Content-Length: " + bodyLength + "\r\n"));
+        assertTrue(string(encoded[0]).contains("Connection: keep-alive\r\n"));
+        assertTrue(string(encoded[0]).endsWith("\r\n\r\n"));
+        assertEquals(response.getContent(), string(encoded[1]));
+    }
+
+    @Test
+    void testEncode_matchesGet() {
+        // Arrange
+        Response response = new Response(HttpStatus.NOT_FOUND, ContentType.PLAIN_TEXT, "Not Found");
+
+        // Act
+        ByteBuffer[] encoded = response.encode(false);
+        String serialized = response.get(false);
+
+        // Assert
+        String dates = "(Date|Expires): [^\r]*\r\n";
+        assertEquals(serialized.replaceAll(dates, ""), (string(encoded[0]) + string(encoded[1])).replaceAll(dates, ""));
+    }
+
+    @Test
+    void testEncode_compressesLargeBodies() throws IOException {
+        // Arrange
+        String content = "{\"username\":\"kienboec\",\"elo\":100}".repeat(100);
+        Response response = new Response(HttpStatus.OK, ContentType.JSON, content);
+
+        // Act
+        ByteBuffer[] compressed = response.encode(true, "gzip, deflate");
+        ByteBuffer[] plain = response.encode(true, null);
+
+        // Assert
+        assertTrue(string(compressed[0]).contains("Content-Encoding: gzip\r\n"));
+        assertTrue(string(compressed[0]).contains("Content-Length: " + compressed[1].remaining() + "\r\n"));
+        byte[] body = new byte[compressed[1].remaining()];
+        compressed[1].duplicate().get(body);
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            assertEquals(content, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertFalse(string(plain[0]).contains("Content-Encoding"));
+        assertTrue(string(plain[0]).contains("Vary: Accept-Encoding\r\n"));
+        assertEquals(content, string(plain[1]));
+    }
+
+    @Test
+    void testEncode_keepsSmallBodiesUncompressed() {
+        // Arrange
+        Response response = new Response(HttpStatus.OK, ContentType.JSON, "{ \"message\" : \"Success\" }");
+
+        // Act
+        ByteBuffer[] encoded = response.encode(true, "gzip");
+
+        // Assert
+        assertFalse(string(encoded[0]).contains("Content-Encoding"));
+        assertEquals(response.getContent(), string(encoded[1]));
+    }
+
+    @Test
+    void testEncode_keepsTypesWithoutOptInUncompressed() {
+        // Arrange
+        String content = "<p>kienboec</p>".repeat(200);
+        Response response = new Response(HttpStatus.OK, ContentType.HTML, content);
+
+        // Act
+        ByteBuffer[] encoded = response.encode(true, "gzip");
+
+        // Assert
+        assertFalse(string(encoded[0]).contains("Content-Encoding"));
+        assertEquals(content, string(encoded[1]));
+    }
+
+    @Test
+    void testHttpDate_isRfc1123() {
+        // Act
+        String date = HttpDate.now();
+
+        // Assert
+        assertTrue(date.matches("[A-Z][a-z]{2}, \\d{1,2} [A-Z][a-z]{2} \\d{4} \\d{2}:\\d{2}:\\d{2} GMT"), date);
+    }
+}
@@ -82,4 +82,16 @@ class RequestBuilderTest {
         assertEquals("mehr", request.getPathParts().get(1));
         assertEquals(8, request.getHeaderMap().getContentLength());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testBuildRequestReadsHttpVersion() throws Exception {
+        BufferedReader reader = Mockito.mock(BufferedReader.class);
+        when(reader.readLine()).thenReturn("GET /cards HTTP/1.1",
+                "connection: close",
+                "");
+
+        Request request = new RequestBuilder().buildRequest(reader);
+        assertEquals("HTTP/1.1", request.getVersion());
+        assertEquals("close", request.getHeaderMap().getHeader("Connection"));
+    }
+}
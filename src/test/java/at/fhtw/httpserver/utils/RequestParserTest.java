@@ -0,0 +1,121 @@
+package at.fhtw.httpserver.utils;
+
+import at.fhtw.httpserver.http.Method;
+import at.fhtw.httpserver.server.Request;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestParserTest {
+
+    private final RequestParser parser = new RequestParser(1024);
+    private final ByteBuffer buffer = ByteBuffer.allocate(1024);
+
+    private void receive(String data) {
+        buffer.put(data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testParse_getWithParamsAndHeaders() {
+        // Arrange
+        receive("GET /echo/mehr?p=23 HTTP/1.1\r\n" +
+                "Host: localhost:10001\r\n" +
+                "authorization:  Bearer kienboec-mtcgToken \r\n" +
+                "X-Custom: Value\r\n" +
+                "\r\n");
+
+        // Act
+        Request request = parser.parse(buffer);
+
+        // Assert
+        assertNotNull(request);
+        assertEquals(Method.GET, request.getMethod());
+        assertEquals("HTTP/1.1", request.getVersion());
+        assertEquals("/echo/mehr", request.getPathname());
+        assertEquals("p=23", request.getParams());
+        assertEquals(List.of("echo", "mehr"), request.getPathParts());
+        assertEquals("/echo", request.getServiceRoute());
+        assertEquals("Bearer kienboec-mtcgToken", request.getHeaderMap().getHeader("Authorization"));
+        assertEquals("Value", request.getHeaderMap().getHeader("x-custom"));
+        assertNull(request.getBody());
+        assertEquals(0, buffer.position());
+    }
+
+    @Test
+    void testParse_partialReads() {
+        // Arrange
+        byte[] data = ("POST /users HTTP/1.1\r\n" +
+                "Content-Type: application/json\r\n" +
+                "Content-Length: 13\r\n" +
+                "\r\n" +
+                "{\"a\":\"b\",\"c\"}").getBytes(StandardCharsets.UTF_8);
+
+        // Act
+        Request request = null;
+        for (int i = 0; i < data.length; i++) {
+            assertNull(request, "complete after " + i + " bytes");
+            buffer.put(data[i]);
+            request = parser.parse(buffer);
+        }
+
+        // Assert
+        assertNotNull(request);
+        assertEquals(Method.POST, request.getMethod());
+        assertEquals("{\"a\":\"b\",\"c\"}", request.getBody());
+    }
+
+    @Test
+    void testParse_multibyteBodyIsReadByByteCount() {
+        // Arrange
+        String body = "{\"Name\":\"Drachenähnlicher 火\"}";
+        receive("PUT /users/kienboec HTTP/1.1\r\n" +
+                "Content-Length: " + body.getBytes(StandardCharsets.UTF_8).length + "\r\n" +
+                "\r\n" +
+                body);
+
+        // Act
+        Request request = parser.parse(buffer);
+
+        // Assert
+        assertEquals(body, request.getBody());
+        assertEquals(0, buffer.position());
+    }
+
+    @Test
+    void testParse_pipelinedRequests() {
+        // Arrange
+        receive("GET /cards HTTP/1.1\r\n\r\nDELETE /battles HTTP/1.1\nAuthorization: Bearer x\n\nGET /de");
+
+        // Act
+        Request first = parser.parse(buffer);
+        Request second = parser.parse(buffer);
+        Request third = parser.parse(buffer);
+
+        // Assert
+        assertEquals("/cards", first.getPathname());
+        assertEquals(Method.DELETE, second.getMethod());
+        assertEquals("Bearer x", second.getHeaderMap().getHeader("Authorization"));
+        assertNull(third);
+        assertEquals("GET /de".length(), buffer.position());
+    }
+
+    @Test
+    void testParse_invalidRequests() {
+        // Arrange
+        RequestParser unknownMethod = new RequestParser(1024);
+        RequestParser tooLarge = new RequestParser(1024);
+        RequestParser malformedHeader = new RequestParser(1024);
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> unknownMethod.parse(
+                ByteBuffer.allocate(64).put("INVALID /test HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.US_ASCII))));
+        assertThrows(IllegalArgumentException.class, () -> tooLarge.parse(
+                ByteBuffer.allocate(64).put("POST /test HTTP/1.1\r\nContent-Length: 5000\r\n\r\n".getBytes(StandardCharsets.US_ASCII))));
+        assertThrows(IllegalArgumentException.class, () -> malformedHeader.parse(
+                ByteBuffer.allocate(64).put("GET /test HTTP/1.1\r\nno colon\r\n\r\n".getBytes(StandardCharsets.US_ASCII))));
+    }
+}
@@ -0,0 +1,158 @@
+package at.fhtw.mctg.battle;
+
+import at.fhtw.mctg.model.BattleStatus;
+import at.fhtw.mctg.model.Card;
+import at.fhtw.mctg.model.CardType;
+import at.fhtw.mctg.model.Elements;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BattleEngineTest {
+
+    private final BattleEngine engine = new BattleEngine();
+
+    private static Card card(String name, int damage, CardType type, Elements element) {
+        return new Card(name + "-" + damage, name, damage, type, element, true, 0, 0);
+    }
+
+    private static List<Card> deck(Card... cards) {
+        return new ArrayList<>(List.of(cards));
+    }
+
+    @Test
+    void testFight_goblinIsAfraidOfDragon() {
+        // Arrange
+        List<Card> deckA = deck(card("Goblin", 100, CardType.MONSTER, Elements.NORMAL));
+        List<Card> deckB = deck(card("Dragon", 10, CardType.MONSTER, Elements.FIRE));
+
+        // Act
+        BattleResult result = engine.fight(deckA, deckB, 100, 100, 1);
+
+        // Assert
+        assertEquals(1, result.getRounds());
+        assertEquals(BattleStatus.LOSS, result.getStatusA());
+        assertEquals(BattleStatus.WIN, result.getStatusB());
+        assertTrue(BattleEvent.GOBLIN_AFRAID.isIn(result.getEvents(1)));
+        assertEquals(0, result.getDamageA(1));
+        assertEquals(10, result.getDamageB(1));
+    }
+
+    @Test
+    void testFight_wizardControlsOrkOnEitherSide() {
+        // Arrange
+        List<Card> deckA = deck(card("Ork", 100, CardType.MONSTER, Elements.NORMAL));
+        List<Card> deckB = deck(card("Wizard", 10, CardType.MONSTER, Elements.NORMAL));
+
+        // Act
+        BattleResult result = engine.fight(deckA, deckB, 100, 100, 1);
+
+        // Assert
+        assertTrue(BattleEvent.WIZARD_CONTROLS_ORK.isIn(result.getEvents(1)));
+        assertEquals(BattleStatus.LOSS, result.getStatusA());
+    }
+
+    @Test
+    void testFight_waterSpellDoublesAgainstFire() {
+        // Arrange
+        List<Card> deckA = deck(card("WaterSpell", 10, CardType.SPELL, Elements.WATER));
+        List<Card> deckB = deck(card("FireTroll", 15, CardType.MONSTER, Elements.FIRE));
+
+        // Act
+        BattleResult result = engine.fight(deckA, deckB, 100, 100, 1);
+
+        // Assert
+        int events = result.getEvents(1);
+        assertTrue(BattleEvent.SPELL.isIn(events));
+        assertTrue(BattleEvent.WATER_OVER_FIRE.isIn(events));
+        assertEquals(20, result.getDamageA(1));
+        assertEquals(BattleStatus.WIN, result.getStatusA());
+    }
+
+    @Test
+    void testFight_stopsAfterMaxRounds() {
+        // Arrange
+        List<Card> deckA = deck(card("Knight", 10, CardType.MONSTER, Elements.NORMAL));
+        List<Card> deckB = deck(card("Knight", 10, CardType.MONSTER, Elements.NORMAL));
+
+        // Act
+        BattleResult result = engine.fight(deckA, deckB, 100, 100, 1);
+
+        // Assert
+        assertEquals(BattleEngine.MAX_ROUNDS, result.getRounds());
+        assertEquals(BattleStatus.TIE, result.getStatusA());
+        assertEquals(BattleStatus.TIE, result.getStatusB());
+    }
+
+    @Test
+    void testFight_sameSeedSameBattle() {
+        // Arrange
+        List<Card> deckA = deck(
+                card("Goblin", 10, CardType.MONSTER, Elements.WATER),
+                card("Dragon", 50, CardType.MONSTER, Elements.FIRE),
+                card("WaterSpell", 20, CardType.SPELL, Elements.WATER),
+                card("Ork", 45, CardType.MONSTER, Elements.NORMAL));
+        List<Card> deckB = deck(
+                card("Knight", 25, CardType.MONSTER, Elements.NORMAL),
+                card("FireSpell", 30, CardType.SPELL, Elements.FIRE),
+                card("Kraken", 35, CardType.MONSTER, Elements.WATER),
+                card("Wizard", 40, CardType.MONSTER, Elements.NORMAL));
+
+        // Act
+        BattleResult first = engine.fight(deckA, deckB, 100, 90, 42);
+        BattleResult second = engine.fight(deckA, deckB, 100, 90, 42);
+
+        // Assert
+        assertEquals(first.getRounds(), second.getRounds());
+        assertEquals(first.getStatusA(), second.getStatusA());
+        for (int round = 1; round <= first.getRounds(); round++) {
+            assertSame(first.getCardA(round), second.getCardA(round));
+            assertSame(first.getCardB(round), second.getCardB(round));
+            assertEquals(first.getEvents(round), second.getEvents(round));
+        }
+    }
+
+    @Test
+    void testFight_doesNotModifyCards() {
+        // Arrange
+        Card weak = card("Knight", 5, CardType.MONSTER, Elements.NORMAL);
+        List<Card> deckA = deck(weak);
+        List<Card> deckB = deck(
+                card("Knight", 5, CardType.MONSTER, Elements.NORMAL),
+                card("Knight", 5, CardType.MONSTER, Elements.NORMAL));
+
+        // Act
+        // the custom rule doubles the damage of the weaker player's card every second round
+        engine.fight(deckA, deckB, 100, 200, 7);
+
+        // Assert
+        assertEquals(5, weak.getDamage());
+        assertEquals(2, deckB.size());
+    }
+
+    @Test
+    void testForEachLogLine_rendersRound() {
+        // Arrange
+        List<Card> deckA = deck(card("WaterSpell", 10, CardType.SPELL, Elements.WATER));
+        List<Card> deckB = deck(card("FireTroll", 15, CardType.MONSTER, Elements.FIRE));
+        BattleResult result = engine.fight(deckA, deckB, 100, 100, 1);
+        List<String> lines = new ArrayList<>();
+
+        // Act
+        result.forEachLogLine(1, lines::add);
+
+        // Assert
+        assertEquals(List.of(
+                "Starting round 1",
+                "Card of User A: WaterSpell with damage 10",
+                "Card of User B: FireTroll with damage 15",
+                "Spell affects the damage calculation!",
+                "-> Water > Fire",
+                "Damage is 20 (A) vs 15(B)",
+                "User A wins round 1"
+        ), lines);
+    }
+}
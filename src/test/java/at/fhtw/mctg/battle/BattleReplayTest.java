@@ -0,0 +1,135 @@
+package at.fhtw.mctg.battle;
+
+import at.fhtw.mctg.model.Card;
+import at.fhtw.mctg.model.CardType;
+import at.fhtw.mctg.model.Elements;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BattleReplayTest {
+
+    private static Card card(String name, int damage, CardType type, Elements element) {
+        return new Card(name + "-" + damage, name, damage, type, element, true, 0, 0);
+    }
+
+    private static List<Card> deckA() {
+        return new ArrayList<>(List.of(
+                card("WaterGoblin", 10, CardType.MONSTER, Elements.WATER),
+                card("FireSpell", 25, CardType.SPELL, Elements.FIRE),
+                card("Knight", 40, CardType.MONSTER, Elements.NORMAL),
+                card("Dragon", 50, CardType.MONSTER, Elements.FIRE)
+        ));
+    }
+
+    private static List<Card> deckB() {
+        return new ArrayList<>(List.of(
+                card("WaterSpell", 20, CardType.SPELL, Elements.WATER),
+                card("Ork", 45, CardType.MONSTER, Elements.NORMAL),
+                card("FireElf", 30, CardType.MONSTER, Elements.FIRE),
+                card("Kraken", 35, CardType.MONSTER, Elements.WATER)
+        ));
+    }
+
+    private static List<String> render(BattleResult result, String usernameA, String usernameB) {
+        List<String> lines = new ArrayList<>();
+        lines.add("User A is : " + usernameA);
+        lines.add("User B is : " + usernameB);
+        for (int round = 1; round <= result.getRounds(); round++) {
+            result.forEachLogLine(round, lines::add);
+        }
+        return lines;
+    }
+
+    @Test
+    void testDecode_rendersTheSameLogAsTheBattle() {
+        // Arrange
+        BattleResult result = new BattleEngine().fight(deckA(), deckB(), 100, 120, 42);
+        byte[] data = BattleReplay.encode("kienboec", "altenhof", 100, 120, 42, result);
+
+        // Act
+        BattleReplay replay = BattleReplay.decode(data);
+        List<String> lines = new ArrayList<>();
+        replay.forEachLogLine(lines::add);
+
+        // Assert
+        assertEquals("kienboec", replay.getUsernameA());
+        assertEquals("altenhof", replay.getUsernameB());
+        assertEquals(42, replay.getSeed());
+        assertEquals(result.getStatusA(), replay.getResult().getStatusA());
+        assertEquals(render(result, "kienboec", "altenhof"), lines.subList(0, lines.size() - 2));
+        assertEquals("### Rounds complete ###", lines.get(lines.size() - 2));
+    }
+
+    @Test
+    void testDecode_snapshotReplaysTheBattle() {
+        // Arrange
+        BattleResult result = new BattleEngine().fight(deckA(), deckB(), 100, 120, 7);
+        BattleReplay replay = BattleReplay.decode(BattleReplay.encode("kienboec", "altenhof", 100, 120, 7, result));
+        Card[] cards = replay.getResult().getCards();
+        int deckSizeA = replay.getResult().getDeckSizeA();
+
+        // Act
+        BattleResult again = new BattleEngine().fight(
+                Arrays.asList(cards).subList(0, deckSizeA),
+                Arrays.asList(cards).subList(deckSizeA, cards.length),
+                replay.getEloA(),
+                replay.getEloB(),
+                replay.getSeed()
+        );
+
+        // Assert
+        assertEquals(result.getRounds(), again.getRounds());
+        for (int round = 1; round <= result.getRounds(); round++) {
+            for (int field = 0; field < BattleResult.ROUND_STRIDE; field++) {
+                assertEquals(result.value(round, field), again.value(round, field));
+            }
+        }
+    }
+
+    @Test
+    void testEncode_isSmallerThanTheTextLog() {
+        // Arrange
+        BattleResult result = new BattleEngine().fight(deckA(), deckB(), 100, 100, 3);
+
+        // Act
+        byte[] data = BattleReplay.encode("kienboec", "altenhof", 100, 100, 3, result);
+        int textLength = render(result, "kienboec", "altenhof").stream().mapToInt(String::length).sum();
+
+        // Assert
+        assertTrue(data.length * 5 < textLength, data.length + " bytes vs " + textLength + " characters");
+    }
+
+    @Test
+    void testEncode_largeAndNegativeNumbers() {
+        // Arrange
+        List<Card> deckA = new ArrayList<>(List.of(card("Knight", Integer.MAX_VALUE, CardType.MONSTER, Elements.NORMAL)));
+        List<Card> deckB = new ArrayList<>(List.of(card("Goblin", -5, CardType.MONSTER, Elements.NORMAL)));
+        BattleResult result = new BattleEngine().fight(deckA, deckB, Integer.MIN_VALUE, 0, -1);
+
+        // Act
+        BattleReplay replay = BattleReplay.decode(BattleReplay.encode("a", "b", Integer.MIN_VALUE, 0, -1, result));
+
+        // Assert
+        assertEquals(Integer.MIN_VALUE, replay.getEloA());
+        assertEquals(-1, replay.getSeed());
+        assertEquals(Integer.MAX_VALUE, replay.getResult().getDamageA(1));
+        assertEquals(-5, replay.getResult().getDamageB(1));
+    }
+
+    @Test
+    void testDecode_damagedData() {
+        // Arrange
+        BattleResult result = new BattleEngine().fight(deckA(), deckB(), 100, 100, 3);
+        byte[] data = BattleReplay.encode("kienboec", "altenhof", 100, 100, 3, result);
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> BattleReplay.decode(Arrays.copyOf(data, data.length / 2)));
+        data[0] = 99;
+        assertThrows(IllegalArgumentException.class, () -> BattleReplay.decode(data));
+    }
+}
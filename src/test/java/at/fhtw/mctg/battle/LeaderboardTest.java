@@ -0,0 +1,134 @@
+package at.fhtw.mctg.battle;
+
+import at.fhtw.mctg.model.Stats;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LeaderboardTest {
+
+    private static Stats stats(int userId, int elo, int played) {
+        return new Stats(userId, "user" + userId, "Name " + userId, elo, played, 0, 0);
+    }
+
+    private static List<Integer> userIds(List<Stats> stats) {
+        return stats.stream().map(Stats::getUserId).toList();
+    }
+
+    @Test
+    void testQueries_notLoaded() {
+        // Arrange
+        Leaderboard leaderboard = new Leaderboard();
+
+        // Act
+        leaderboard.update(stats(1, 100, 0));
+
+        // Assert
+        assertFalse(leaderboard.isLoaded());
+        assertNull(leaderboard.top(10));
+        assertNull(leaderboard.get("user1"));
+        assertEquals(0, leaderboard.rankOf("user1"));
+    }
+
+    @Test
+    void testLoad_orderedByEloThenUserId() {
+        // Arrange
+        Leaderboard leaderboard = new Leaderboard();
+
+        // Act
+        boolean loaded = leaderboard.load(List.of(stats(3, 100, 0), stats(1, 120, 0), stats(2, 100, 0), stats(4, 90, 0)),
+                leaderboard.getGeneration());
+
+        // Assert
+        assertTrue(loaded);
+        assertEquals(List.of(1, 2, 3, 4), userIds(leaderboard.top(10)));
+        assertEquals(List.of(1, 2), userIds(leaderboard.top(2)));
+        assertEquals(List.of(3, 4), userIds(leaderboard.page(2, 5)));
+        assertEquals(List.of(), leaderboard.page(7, 5));
+        assertEquals(1, leaderboard.rankOf("user1"));
+        assertEquals(3, leaderboard.rankOf("user3"));
+        assertEquals(0, leaderboard.rankOf("nobody"));
+    }
+
+    @Test
+    void testLoad_rejectedAfterConcurrentChange() {
+        // Arrange
+        Leaderboard leaderboard = new Leaderboard();
+        long generation = leaderboard.getGeneration();
+
+        // Act
+        leaderboard.update(stats(1, 103, 1));
+        boolean loaded = leaderboard.load(List.of(stats(1, 100, 0)), generation);
+
+        // Assert
+        assertFalse(loaded);
+        assertFalse(leaderboard.isLoaded());
+    }
+
+    @Test
+    void testUpdate_movesUserAndIgnoresOutdatedStats() {
+        // Arrange
+        Leaderboard leaderboard = new Leaderboard();
+        leaderboard.load(List.of(stats(1, 100, 0), stats(2, 100, 0), stats(3, 100, 0)), leaderboard.getGeneration());
+
+        // Act
+        leaderboard.update(stats(3, 106, 2));
+        leaderboard.update(stats(3, 103, 1));
+        leaderboard.update(stats(1, 95, 1));
+        leaderboard.update(stats(5, 100, 0));
+
+        // Assert
+        assertEquals(List.of(3, 2, 5, 1), userIds(leaderboard.top(10)));
+        assertEquals(106, leaderboard.get("user3").getElo());
+        assertEquals(4, leaderboard.rankOf("user1"));
+        assertEquals(4, leaderboard.size());
+    }
+
+    @Test
+    void testInvalidate_dropsContent() {
+        // Arrange
+        Leaderboard leaderboard = new Leaderboard();
+        leaderboard.load(List.of(stats(1, 100, 0)), leaderboard.getGeneration());
+
+        // Act
+        leaderboard.invalidate();
+
+        // Assert
+        assertNull(leaderboard.page(0, 10));
+        assertTrue(leaderboard.load(List.of(stats(1, 100, 0)), leaderboard.getGeneration()));
+    }
+
+    @Test
+    void testQueries_matchSortedListAfterRandomUpdates() {
+        // Arrange
+        Random random = new Random(42);
+        Leaderboard leaderboard = new Leaderboard();
+        List<Stats> expected = new ArrayList<>();
+        for (int userId = 1; userId <= 500; userId++) {
+            expected.add(stats(userId, 80 + random.nextInt(40), 0));
+        }
+        leaderboard.load(expected, leaderboard.getGeneration());
+
+        // Act
+        for (int battle = 1; battle <= 2000; battle++) {
+            int index = random.nextInt(expected.size());
+            Stats current = expected.get(index);
+            Stats updated = stats(current.getUserId(), current.getElo() + (random.nextBoolean() ? 3 : -5), current.getWins() + 1);
+            expected.set(index, updated);
+            leaderboard.update(updated);
+        }
+        expected.sort(Comparator.comparingInt(Stats::getElo).reversed().thenComparingInt(Stats::getUserId));
+
+        // Assert
+        assertEquals(userIds(expected), userIds(leaderboard.top(expected.size())));
+        assertEquals(userIds(expected.subList(123, 173)), userIds(leaderboard.page(123, 50)));
+        for (int i = 0; i < expected.size(); i += 37) {
+            assertEquals(i + 1, leaderboard.rankOf(expected.get(i).getUsername()));
+        }
+    }
+}
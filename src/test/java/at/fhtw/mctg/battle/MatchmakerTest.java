@@ -0,0 +1,170 @@
+package at.fhtw.mctg.battle;
+
+import at.fhtw.mctg.model.Battle;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatchmakerTest {
+
+    private final AtomicInteger battleIds = new AtomicInteger();
+    private final List<String> pairs = new ArrayList<>();
+
+    private Battle createBattle(String usernameA, String usernameB) {
+        synchronized (pairs) {
+            pairs.add(usernameA + "-" + usernameB);
+        }
+        return new Battle(battleIds.incrementAndGet(), null, null, 0, 0);
+    }
+
+    @Test
+    void testEnqueue_pairsSecondPlayerWithFirst() throws Exception {
+        // Arrange
+        Matchmaker matchmaker = new Matchmaker(this::createBattle, 0);
+
+        // Act
+        Matchmaker.Ticket first = matchmaker.enqueue("kienboec", 100);
+        boolean firstPairedAlone = first.isDone();
+        Matchmaker.Ticket second = matchmaker.enqueue("altenhof", 100);
+
+        // Assert
+        assertFalse(firstPairedAlone);
+        assertSame(first.await(100), second.await(100));
+        assertEquals(List.of("kienboec-altenhof"), pairs);
+        assertEquals(0, matchmaker.getWaitingCount());
+    }
+
+    @Test
+    void testEnqueue_sameUserTwice() {
+        // Arrange
+        Matchmaker matchmaker = new Matchmaker(this::createBattle, 0);
+        matchmaker.enqueue("kienboec", 100);
+
+        // Act
+        Matchmaker.Ticket again = matchmaker.enqueue("kienboec", 100);
+
+        // Assert
+        assertNull(again);
+        assertEquals(1, matchmaker.getWaitingCount());
+        assertTrue(pairs.isEmpty());
+    }
+
+    @Test
+    void testEnqueue_eloRange() throws Exception {
+        // Arrange
+        Matchmaker matchmaker = new Matchmaker(this::createBattle, 20);
+        Matchmaker.Ticket strong = matchmaker.enqueue("kienboec", 200);
+
+        // Act
+        Matchmaker.Ticket weak = matchmaker.enqueue("altenhof", 100);
+        Matchmaker.Ticket close = matchmaker.enqueue("admin", 110);
+
+        // Assert
+        assertFalse(strong.isDone());
+        assertSame(weak.await(100), close.await(100));
+        assertEquals(List.of("altenhof-admin"), pairs);
+        assertEquals(1, matchmaker.getWaitingCount());
+    }
+
+    @Test
+    void testAwait_timeout() {
+        // Arrange
+        Matchmaker matchmaker = new Matchmaker(this::createBattle, 0);
+        Matchmaker.Ticket ticket = matchmaker.enqueue("kienboec", 100);
+
+        // Act & Assert
+        assertThrows(TimeoutException.class, () -> ticket.await(10));
+        assertTrue(matchmaker.cancel(ticket));
+        assertEquals(0, matchmaker.getWaitingCount());
+    }
+
+    @Test
+    void testCancel_byUsername() {
+        // Arrange
+        Matchmaker matchmaker = new Matchmaker(this::createBattle, 0);
+        Matchmaker.Ticket ticket = matchmaker.enqueue("kienboec", 100);
+
+        // Act
+        boolean cancelled = matchmaker.cancel("kienboec");
+        Matchmaker.Ticket next = matchmaker.enqueue("altenhof", 100);
+
+        // Assert
+        assertTrue(cancelled);
+        assertThrows(CancellationException.class, () -> ticket.await(10));
+        assertFalse(next.isDone());
+        assertFalse(matchmaker.cancel("kienboec"));
+    }
+
+    @Test
+    void testCancel_afterPairing() {
+        // Arrange
+        Matchmaker matchmaker = new Matchmaker(this::createBattle, 0);
+        Matchmaker.Ticket first = matchmaker.enqueue("kienboec", 100);
+        matchmaker.enqueue("altenhof", 100);
+
+        // Act & Assert
+        assertFalse(matchmaker.cancel(first));
+    }
+
+    @Test
+    void testEnqueue_factoryFailsBothTickets() {
+        // Arrange
+        Matchmaker matchmaker = new Matchmaker((a, b) -> {
+            throw new IllegalStateException("database down");
+        }, 0);
+        Matchmaker.Ticket first = matchmaker.enqueue("kienboec", 100);
+
+        // Act
+        Matchmaker.Ticket second = matchmaker.enqueue("altenhof", 100);
+
+        // Assert
+        assertThrows(ExecutionException.class, () -> first.await(10));
+        assertThrows(ExecutionException.class, () -> second.await(10));
+    }
+
+    @Test
+    void testEnqueue_concurrentPlayersArePairedOnce() throws Exception {
+        // Arrange
+        Matchmaker matchmaker = new Matchmaker(this::createBattle, 0);
+        int players = 200;
+        CountDownLatch start = new CountDownLatch(1);
+        Map<String, Battle> battles = new ConcurrentHashMap<>();
+        List<Thread> threads = new ArrayList<>();
+
+        for (int i = 0; i < players; i++) {
+            String username = "user" + i;
+            threads.add(Thread.ofVirtual().start(() -> {
+                try {
+                    start.await();
+                    battles.put(username, matchmaker.enqueue(username, 100).await(5000));
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }));
+        }
+
+        // Act
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Assert
+        assertEquals(players, battles.size());
+        assertEquals(players / 2, pairs.size());
+        Map<Integer, AtomicInteger> playersPerBattle = new ConcurrentHashMap<>();
+        battles.values().forEach(battle ->
+                playersPerBattle.computeIfAbsent(battle.getBattleId(), id -> new AtomicInteger()).incrementAndGet());
+        playersPerBattle.values().forEach(count -> assertEquals(2, count.get()));
+    }
+}
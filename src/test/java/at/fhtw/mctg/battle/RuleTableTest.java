@@ -0,0 +1,80 @@
+package at.fhtw.mctg.battle;
+
+import at.fhtw.mctg.model.Card;
+import at.fhtw.mctg.model.CardType;
+import at.fhtw.mctg.model.Elements;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RuleTableTest {
+
+    private static int rule(Species speciesA, Elements elementA, CardType typeA,
+                            Species speciesB, Elements elementB, CardType typeB) {
+        return RuleTable.lookup(
+                RuleTable.kind(speciesA, elementA, typeA),
+                RuleTable.kind(speciesB, elementB, typeB));
+    }
+
+    @Test
+    void testKind_resolvesSpeciesFromExactName() {
+        // Arrange
+        Card goblin = new Card("1", "Goblin", 10, CardType.MONSTER, Elements.NORMAL, true, 0, 0);
+        Card waterGoblin = new Card("2", "WaterGoblin", 10, CardType.MONSTER, Elements.NORMAL, true, 0, 0);
+
+        // Act & Assert
+        assertEquals(RuleTable.kind(Species.GOBLIN, Elements.NORMAL, CardType.MONSTER), RuleTable.kind(goblin));
+        assertEquals(RuleTable.kind(Species.OTHER, Elements.NORMAL, CardType.MONSTER), RuleTable.kind(waterGoblin));
+    }
+
+    @Test
+    void testLookup_monstersWithoutRules() {
+        // Act
+        int rule = rule(Species.OTHER, Elements.WATER, CardType.MONSTER, Species.OTHER, Elements.FIRE, CardType.MONSTER);
+
+        // Assert
+        assertEquals(0, RuleTable.events(rule));
+        assertEquals(1, RuleTable.factorA(rule));
+        assertEquals(1, RuleTable.factorB(rule));
+    }
+
+    @Test
+    void testLookup_krakenIsImmuneToSpellsOnEitherSide() {
+        // Act
+        int krakenA = rule(Species.KRAKEN, Elements.WATER, CardType.MONSTER, Species.OTHER, Elements.FIRE, CardType.SPELL);
+        int krakenB = rule(Species.OTHER, Elements.FIRE, CardType.SPELL, Species.KRAKEN, Elements.WATER, CardType.MONSTER);
+
+        // Assert
+        assertTrue(BattleEvent.KRAKEN_IMMUNE.isIn(RuleTable.events(krakenA)));
+        assertEquals(0, RuleTable.factorB(krakenA));
+        assertEquals(2, RuleTable.factorA(krakenA));
+        assertTrue(BattleEvent.KRAKEN_IMMUNE.isIn(RuleTable.events(krakenB)));
+        assertEquals(0, RuleTable.factorA(krakenB));
+    }
+
+    @Test
+    void testLookup_elementAdvantageOnlyWithSpells() {
+        // Act
+        int spell = rule(Species.OTHER, Elements.FIRE, CardType.SPELL, Species.OTHER, Elements.NORMAL, CardType.MONSTER);
+        int monsters = rule(Species.OTHER, Elements.FIRE, CardType.MONSTER, Species.OTHER, Elements.NORMAL, CardType.MONSTER);
+
+        // Assert
+        assertEquals(BattleEvent.SPELL.bit() | BattleEvent.FIRE_OVER_NORMAL.bit(), RuleTable.events(spell));
+        assertEquals(2, RuleTable.factorA(spell));
+        assertEquals(1, RuleTable.factorB(spell));
+        assertEquals(1, RuleTable.factorA(monsters));
+    }
+
+    @Test
+    void testLookup_knightDrownsInWaterSpell() {
+        // Act
+        int rule = rule(Species.OTHER, Elements.WATER, CardType.SPELL, Species.KNIGHT, Elements.NORMAL, CardType.MONSTER);
+
+        // Assert
+        int events = RuleTable.events(rule);
+        assertTrue(BattleEvent.KNIGHT_DROWNS.isIn(events));
+        assertTrue(BattleEvent.NORMAL_OVER_WATER.isIn(events));
+        assertEquals(1, RuleTable.factorA(rule));
+        assertEquals(0, RuleTable.factorB(rule));
+    }
+}
@@ -0,0 +1,71 @@
+package at.fhtw.mctg.controller.session;
+
+import at.fhtw.mctg.model.Principal;
+import at.fhtw.mctg.model.Role;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionCacheTest {
+
+    private final AtomicLong now = new AtomicLong(1000);
+
+    private static Principal principal(int userId, String username) {
+        return new Principal(userId, username, Role.USER);
+    }
+
+    @Test
+    void testGet_hitUntilExpired() {
+        // Arrange
+        SessionCache cache = new SessionCache(10, 500, now::get);
+        cache.put("kienboec-mtcgToken", principal(1, "kienboec"));
+
+        // Act
+        Principal beforeExpiry = cache.get("kienboec-mtcgToken");
+        now.addAndGet(500);
+        Principal afterExpiry = cache.get("kienboec-mtcgToken");
+
+        // Assert
+        assertEquals(1, beforeExpiry.getUserId());
+        assertNull(afterExpiry);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testPut_evictsLeastRecentlyUsed() {
+        // Arrange
+        SessionCache cache = new SessionCache(2, 500, now::get);
+        cache.put("a", principal(1, "a"));
+        cache.put("b", principal(2, "b"));
+
+        // Act
+        cache.get("a");
+        cache.put("c", principal(3, "c"));
+
+        // Assert
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+    }
+
+    @Test
+    void testInvalidateUser() {
+        // Arrange
+        SessionCache cache = new SessionCache(10, 500, now::get);
+        cache.put("altenhof-1", principal(1, "altenhof"));
+        cache.put("altenhof-2", principal(1, "altenhof"));
+        cache.put("kienboec-1", principal(2, "kienboec"));
+        cache.put("kienboec-2", principal(2, "kienboec"));
+
+        // Act
+        cache.invalidateUser("altenhof");
+
+        // Assert
+        assertNull(cache.get("altenhof-1"));
+        assertNull(cache.get("altenhof-2"));
+        assertEquals("kienboec", cache.get("kienboec-1").getUsername());
+        assertEquals("kienboec", cache.get("kienboec-2").getUsername());
+    }
+}
@@ -0,0 +1,141 @@
+package at.fhtw.mctg.dal;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class ConnectionPoolTest {
+
+    private ConnectionPool pool;
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    private static Connection newConnection() throws SQLException {
+        Connection connection = Mockito.mock(Connection.class);
+        when(connection.isValid(anyInt())).thenReturn(true);
+        when(connection.getAutoCommit()).thenReturn(false);
+        return connection;
+    }
+
+    @Test
+    void testBorrow_reusesReleasedConnection() {
+        // Arrange
+        pool = new ConnectionPool(ConnectionPoolTest::newConnection, 2, 100, 60000, 0, 1);
+
+        // Act
+        Connection first = pool.borrow();
+        pool.release(first);
+        Connection second = pool.borrow();
+
+        // Assert
+        assertSame(first, second);
+        assertEquals(1, pool.getCreatedCount());
+        assertEquals(2, pool.getBorrowCount());
+        assertEquals(1, pool.getActiveCount());
+    }
+
+    @Test
+    void testRelease_rollsBackUncommittedWork() throws SQLException {
+        // Arrange
+        pool = new ConnectionPool(ConnectionPoolTest::newConnection, 1, 100, 60000, 0, 1);
+        Connection connection = pool.borrow();
+
+        // Act
+        pool.release(connection);
+
+        // Assert
+        verify(connection).rollback();
+        verify(connection).setAutoCommit(true);
+        assertEquals(0, pool.getActiveCount());
+        assertEquals(1, pool.getIdleCount());
+    }
+
+    @Test
+    void testBorrow_timesOutWhenExhausted() {
+        // Arrange
+        pool = new ConnectionPool(ConnectionPoolTest::newConnection, 1, 50, 60000, 0, 1);
+        pool.borrow();
+
+        // Act & Assert
+        assertThrows(DataAccessException.class, () -> pool.borrow());
+        assertEquals(1, pool.getTimeoutCount());
+    }
+
+    @Test
+    void testRelease_ignoresConnectionsNotLent() throws SQLException {
+        // Arrange
+        pool = new ConnectionPool(ConnectionPoolTest::newConnection, 1, 50, 60000, 0, 1);
+        Connection connection = pool.borrow();
+
+        // Act
+        pool.release(connection);
+        pool.release(connection);
+        pool.release(newConnection());
+        pool.borrow();
+
+        // Assert
+        assertThrows(DataAccessException.class, () -> pool.borrow());
+        assertEquals(1, pool.getActiveCount());
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    @Test
+    void testBorrow_discardsInvalidConnection() throws SQLException {
+        // Arrange
+        pool = new ConnectionPool(ConnectionPoolTest::newConnection, 1, 100, 60000, 0, 1);
+        Connection broken = pool.borrow();
+        pool.release(broken);
+        when(broken.isValid(anyInt())).thenReturn(false);
+
+        // Act
+        Connection fresh = pool.borrow();
+
+        // Assert
+        assertNotSame(broken, fresh);
+        verify(broken).close();
+        assertEquals(1, pool.getValidationFailureCount());
+        assertEquals(2, pool.getCreatedCount());
+    }
+
+    @Test
+    void testBorrow_factoryFailureDoesNotLeakPermit() {
+        // Arrange
+        pool = new ConnectionPool(() -> {
+            throw new SQLException("refused");
+        }, 1, 50, 60000, 0, 1);
+
+        // Act & Assert
+        assertThrows(DataAccessException.class, () -> pool.borrow());
+        assertThrows(DataAccessException.class, () -> pool.borrow());
+        assertEquals(0, pool.getActiveCount());
+        assertEquals(0, pool.getTimeoutCount());
+    }
+
+    @Test
+    void testEvictIdleConnections_closesExpiredConnections() throws Exception {
+        // Arrange
+        pool = new ConnectionPool(ConnectionPoolTest::newConnection, 1, 100, 1, 0, 1);
+        Connection connection = pool.borrow();
+        pool.release(connection);
+        Thread.sleep(5);
+
+        // Act
+        pool.evictIdleConnections();
+
+        // Assert
+        assertEquals(0, pool.getIdleCount());
+        verify(connection).close();
+    }
+}
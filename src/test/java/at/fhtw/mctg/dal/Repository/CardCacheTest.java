@@ -0,0 +1,83 @@
+package at.fhtw.mctg.dal.Repository;
+
+import at.fhtw.mctg.model.Card;
+import at.fhtw.mctg.model.CardType;
+import at.fhtw.mctg.model.Elements;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CardCacheTest {
+
+    private static List<Card> cards(int userId, int count) {
+        List<Card> cards = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            cards.add(new Card(userId + "-" + i, "WaterGoblin", 10, CardType.MONSTER, Elements.WATER, i == 0, userId, 1));
+        }
+        return cards;
+    }
+
+    @Test
+    void testGet_countsHitsAndReturnsCopies() {
+        // Arrange
+        CardCache cache = new CardCache(100);
+        cache.put(1, cards(1, 3), cache.generation());
+
+        // Act
+        List<Card> first = cache.get(1);
+        first.get(0).setDamage(99);
+        List<Card> second = cache.get(1);
+        List<Card> missing = cache.get(2);
+
+        // Assert
+        assertEquals(3, second.size());
+        assertEquals(10, second.get(0).getDamage());
+        assertNull(missing);
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(2.0 / 3, cache.getHitRate(), 1e-9);
+    }
+
+    @Test
+    void testPut_evictsLeastRecentlyUsedWhenFull() {
+        // Arrange
+        CardCache cache = new CardCache(12); // every user counts as 4 cards + 1
+        cache.put(1, cards(1, 4), cache.generation());
+        cache.put(2, cards(2, 4), cache.generation());
+
+        // Act
+        cache.get(1);
+        cache.put(3, cards(3, 4), cache.generation());
+
+        // Assert
+        assertNotNull(cache.get(1));
+        assertNull(cache.get(2));
+        assertNotNull(cache.get(3));
+        assertEquals(1, cache.getEvictions());
+        assertEquals(8, cache.cardCount());
+    }
+
+    @Test
+    void testWrite_keepsUserOutOfCacheUntilEnded() {
+        // Arrange
+        CardCache cache = new CardCache(100);
+        cache.put(1, cards(1, 2), cache.generation());
+        long loadedBeforeWrite = cache.generation();
+
+        // Act
+        cache.beginWrite(1);
+        assertNull(cache.get(1));
+        cache.put(1, cards(1, 3), cache.generation());
+        assertNull(cache.get(1));
+        cache.endWrite(1);
+        cache.put(1, cards(1, 2), loadedBeforeWrite);
+
+        // Assert
+        assertNull(cache.get(1));
+        cache.put(1, cards(1, 3), cache.generation());
+        assertEquals(3, cache.get(1).size());
+    }
+}
@@ -5,12 +5,15 @@ import at.fhtw.httpserver.http.HttpStatus;
 import at.fhtw.httpserver.http.Method;
 import at.fhtw.httpserver.server.Request;
 import at.fhtw.httpserver.server.Response;
+import at.fhtw.httpserver.server.StreamingResponse;
 import at.fhtw.mctg.controller.battle.BattleController;
 import at.fhtw.mctg.model.Battle;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
+import java.nio.charset.StandardCharsets;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
@@ -102,8 +105,8 @@ class BattleServiceTest {
         Battle mockBattle = new Battle(123, null, null, 0, 999);
         when(battleControllerMock.initBattle(any(Request.class))).thenReturn(mockBattle);
 
-        // waitForBattle(...) does not return anything
-        doNothing().when(battleControllerMock).waitForBattle(mockBattle);
+        // waitForBattle(...) returns once the battle is complete
+        when(battleControllerMock.waitForBattle(mockBattle)).thenReturn(true);
 
         // getLog(...) returns a success response
         Response logResponse = new Response(HttpStatus.OK, ContentType.JSON, "{\"log\":\"some data\"}");
@@ -123,4 +126,85 @@ class BattleServiceTest {
         verify(battleControllerMock).waitForBattle(mockBattle);
         verify(battleControllerMock).getLog(mockBattle);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testHandleRequest_postBattleStillRunning() {
+        // Arrange
+        Request request = new Request();
+        request.setMethod(Method.POST);
+        request.getHeaderMap().ingest("Authorization:Bearer some-token");
+
+        Battle mockBattle = new Battle(123, null, null, 0, 999);
+        when(battleControllerMock.initBattle(any(Request.class))).thenReturn(mockBattle);
+        when(battleControllerMock.waitForBattle(mockBattle)).thenReturn(false);
+
+        Response pendingResponse = new Response(HttpStatus.ACCEPTED, ContentType.JSON, "{ \"battleId\" : 123 }");
+        when(battleControllerMock.battlePending(mockBattle)).thenReturn(pendingResponse);
+
+        // Act
+        Response response = battleService.handleRequest(request);
+
+        // Assert
+        assertEquals(HttpStatus.ACCEPTED.code, response.getStatus());
+        verify(battleControllerMock, never()).getLog(any(Battle.class));
+    }
+
+    @Test
+    void testHandleRequest_getBattleResult() {
+        // Arrange
+        Request request = new Request();
+        request.setMethod(Method.GET);
+        request.setPathname("/battles/123");
+        request.getHeaderMap().ingest("Authorization:Bearer some-token");
+
+        Response logResponse = new Response(HttpStatus.OK, ContentType.PLAIN_TEXT, "1: Battle Initialized by kienboec");
+        when(battleControllerMock.getBattleResult(any(Request.class))).thenReturn(logResponse);
+
+        // Act
+        Response response = battleService.handleRequest(request);
+
+        // Assert
+        assertEquals(HttpStatus.OK.code, response.getStatus());
+        verify(battleControllerMock).getBattleResult(request);
+    }
+
+    @Test
+    void testHandleRequest_getBattleLogStream() {
+        // Arrange
+        Request request = new Request();
+        request.setMethod(Method.GET);
+        request.setPathname("/battles/123/log");
+        request.getHeaderMap().ingest("Authorization:Bearer some-token");
+
+        Response logResponse = new StreamingResponse(HttpStatus.OK, ContentType.PLAIN_TEXT,
+                out -> out.write("1: Battle Initialized by kienboec\n".getBytes(StandardCharsets.UTF_8)));
+        when(battleControllerMock.streamLog(any(Request.class))).thenReturn(logResponse);
+
+        // Act
+        Response response = battleService.handleRequest(request);
+
+        // Assert
+        assertSame(logResponse, response);
+        verify(battleControllerMock).streamLog(request);
+        verify(battleControllerMock, never()).getBattleResult(any(Request.class));
+    }
+
+    @Test
+    void testHandleRequest_deleteLeavesQueue() {
+        // Arrange
+        Request request = new Request();
+        request.setMethod(Method.DELETE);
+        request.getHeaderMap().ingest("Authorization:Bearer some-token");
+
+        Response leaveResponse = new Response(HttpStatus.OK, ContentType.JSON, "{ \"message\" : \"Left the battle queue\" }");
+        when(battleControllerMock.leaveQueue(any(Request.class))).thenReturn(leaveResponse);
+
+        // Act
+        Response response = battleService.handleRequest(request);
+
+        // Assert
+        assertEquals(HttpStatus.OK.code, response.getStatus());
+        verify(battleControllerMock).leaveQueue(request);
+        verify(battleControllerMock, never()).initBattle(any(Request.class));
+    }
+}
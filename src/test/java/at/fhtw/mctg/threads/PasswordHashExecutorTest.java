@@ -0,0 +1,83 @@
+package at.fhtw.mctg.threads;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHashExecutorTest {
+
+    @Test
+    void testHashAndVerify() throws Exception {
+        // Arrange
+        PasswordHashExecutor executor = new PasswordHashExecutor(1, 1);
+
+        // Act
+        String stored = executor.hash("daniel");
+
+        // Assert
+        assertTrue(executor.verify("daniel", stored));
+        assertFalse(executor.verify("markus", stored));
+    }
+
+    @Test
+    void testRun_rejectedWhenSaturated() throws Exception {
+        // Arrange
+        PasswordHashExecutor executor = new PasswordHashExecutor(1, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        // one task keeps the thread busy, the next one waits in the queue
+        CompletableFuture<Boolean> running = CompletableFuture.supplyAsync(() -> call(executor, () -> {
+            started.countDown();
+            return release.await(5, TimeUnit.SECONDS);
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(() -> call(executor, () -> true));
+        while (!queued.isDone() && executor.queued() == 0) {
+            Thread.onSpinWait();
+        }
+
+        // Act & Assert
+        assertThrows(RejectedExecutionException.class, () -> executor.run(() -> true));
+
+        release.countDown();
+        assertTrue(running.get(5, TimeUnit.SECONDS));
+        assertTrue(queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testRun_rejectedWhenTooManyCallers() throws Exception {
+        // Arrange
+        PasswordHashExecutor executor = new PasswordHashExecutor(4, 4, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        // the only caller slot is taken, although threads are free
+        CompletableFuture<Boolean> running = CompletableFuture.supplyAsync(() -> call(executor, () -> {
+            started.countDown();
+            return release.await(5, TimeUnit.SECONDS);
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // Act & Assert
+        assertThrows(RejectedExecutionException.class, () -> executor.run(() -> true));
+
+        release.countDown();
+        assertTrue(running.get(5, TimeUnit.SECONDS));
+        assertTrue(executor.run(() -> true));
+    }
+
+    private static boolean call(PasswordHashExecutor executor, Callable<Boolean> task) {
+        try {
+            return executor.run(task);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
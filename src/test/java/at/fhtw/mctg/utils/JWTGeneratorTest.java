@@ -2,6 +2,8 @@ package at.fhtw.mctg.utils;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.Map;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class JWTGeneratorTest {
@@ -86,4 +88,44 @@ class JWTGeneratorTest {
         // Act & Assert
         assertFalse(JWTGenerator.validateJWT(invalidToken), "Token with invalid signature should not validate");
     }
+
+    @Test
+    void testCreateToken_andVerifyClaims() {
+        // Arrange
+        long expiresAt = System.currentTimeMillis() / 1000 + 60;
+        String token = JWTGenerator.createToken(7, "kien\"boec", "USER", expiresAt);
+
+        // Act
+        Map<String, Object> claims = JWTGenerator.verify(token);
+
+        // Assert
+        assertNotNull(claims);
+        assertEquals("kien\"boec", claims.get("sub"));
+        assertEquals(7L, claims.get("uid"));
+        assertEquals("USER", claims.get("role"));
+        assertEquals(expiresAt, claims.get("exp"));
+    }
+
+    @Test
+    void testVerify_expiredToken() {
+        // Arrange
+        String token = JWTGenerator.createToken(7, "kienboec", "USER", System.currentTimeMillis() / 1000 - 1);
+
+        // Act & Assert
+        assertTrue(JWTGenerator.validateJWT(token), "Signature is still valid");
+        assertNull(JWTGenerator.verify(token), "Expired token should not verify");
+    }
+
+    @Test
+    void testVerify_unsupportedPayload() {
+        // Arrange
+        String header = "{\"alg\":\"HS256\",\"typ\":\"JWT\"}";
+        String nested = JWTGenerator.createJWT(header, "{\"sub\":{\"name\":\"Alice\"}}");
+        String notJson = JWTGenerator.createJWT(header, "{\"user\":Alice}");
+
+        // Act & Assert
+        assertNull(JWTGenerator.verify(nested));
+        assertNull(JWTGenerator.verify(notJson));
+        assertNull(JWTGenerator.verify("a.b.c.d"));
+    }
 }
@@ -0,0 +1,68 @@
+package at.fhtw.mctg.utils;
+
+import at.fhtw.mctg.model.Card;
+import at.fhtw.mctg.model.CardType;
+import at.fhtw.mctg.model.Elements;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PackageParserTest {
+
+    @Test
+    void testParseJson_packagesWithTypeAndElement() {
+        // Arrange
+        String json = """
+                [
+                  [{"Id":"845f0dc7", "Name":"WaterGoblin", "Damage": 10.0}, {"Id":"99f8f8dc", "Name":"Dragon", "Damage": 50.0}],
+                  [{"Id":"e85e3976", "Name":"FireSpell", "Damage": 25.0}]
+                ]
+                """;
+
+        // Act
+        List<List<Card>> packages = PackageParser.parseJson(json);
+
+        // Assert
+        assertEquals(2, packages.size());
+        assertEquals(2, packages.get(0).size());
+        Card goblin = packages.get(0).get(0);
+        assertEquals("845f0dc7", goblin.getCardId());
+        assertEquals(10, goblin.getDamage());
+        assertEquals(CardType.MONSTER, goblin.getType());
+        assertEquals(Elements.WATER, goblin.getElement());
+        Card spell = packages.get(1).get(0);
+        assertEquals(CardType.SPELL, spell.getType());
+        assertEquals(Elements.FIRE, spell.getElement());
+    }
+
+    @Test
+    void testParseCsv_groupsByPackageKey() {
+        // Arrange
+        String csv = """
+                package,Id,Name,Damage
+                a,845f0dc7,WaterGoblin,10.0
+                b,e85e3976,FireSpell,25
+                a,99f8f8dc,Dragon,50
+                """;
+
+        // Act
+        List<List<Card>> packages = PackageParser.parseCsv(csv);
+
+        // Assert
+        assertEquals(2, packages.size());
+        assertEquals(List.of("845f0dc7", "99f8f8dc"), packages.get(0).stream().map(Card::getCardId).toList());
+        assertEquals(Elements.NORMAL, packages.get(0).get(1).getElement());
+        assertEquals(25, packages.get(1).get(0).getDamage());
+    }
+
+    @Test
+    void testParse_invalidContent() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> PackageParser.parseJson("[[]]"));
+        assertThrows(IllegalArgumentException.class, () -> PackageParser.parseJson("{\"Id\":1}"));
+        assertThrows(IllegalArgumentException.class, () -> PackageParser.parseCsv("a,845f0dc7,WaterGoblin"));
+        assertThrows(IllegalArgumentException.class, () -> PackageParser.parseCsv("a,845f0dc7,WaterGoblin,strong"));
+    }
+}